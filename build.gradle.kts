@@ -6,6 +6,7 @@ plugins {
     java
     application
     checkstyle
+    id("me.champeau.jmh") version "0.6.8"
 }
 
 group = "hk.ust.comp3021"
@@ -17,7 +18,7 @@ repositories {
 
 java {
     toolchain {
-        languageVersion.set(JavaLanguageVersion.of(18))
+        languageVersion.set(JavaLanguageVersion.of(21))
     }
 }
 
@@ -42,6 +43,11 @@ dependencies {
     testRuntimeOnly("org.junit.jupiter:junit-jupiter-engine:5.9.0")
 }
 
+jmh {
+    jmhVersion.set("1.35")
+    jvmArgsAppend.add("--enable-preview")
+}
+
 checkstyle {
     toolVersion = "10.3.2"
     sourceSets = setOf(project.sourceSets.main.get())
@@ -0,0 +1,70 @@
+package hk.ust.comp3021.game;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Maps used by the benchmarks: the built-in maps and generated large maps.
+ */
+public final class BenchmarkMaps {
+
+    private BenchmarkMaps() {
+    }
+
+    /**
+     * @param name The name of a built-in map, "medium" for a generated 100x100 map or "large" for a generated 1000x1000 map.
+     * @return The text of the map.
+     */
+    public static String load(String name) {
+        if (name.equals("medium")) {
+            return generate(100, 100, 40);
+        }
+        if (name.equals("large")) {
+            return generate(1000, 1000, 200);
+        }
+        try (var stream = BenchmarkMaps.class.getClassLoader().getResourceAsStream(name + ".map")) {
+            if (stream == null) {
+                throw new IllegalArgumentException("No such built-in map: " + name);
+            }
+            return new String(stream.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Generate an open map surrounded by walls, with a pillar every 8 cells.
+     * Player A stands at the top-left corner, the boxes are spread over the upper half of the map
+     * and the destinations over the lower half.
+     *
+     * @param width  The width of the map.
+     * @param height The height of the map.
+     * @param boxes  The number of boxes.
+     * @return The text of the map.
+     */
+    public static String generate(int width, int height, int boxes) {
+        final var cells = new char[height][width];
+        for (int y = 0; y < height; ++y) {
+            for (int x = 0; x < width; ++x) {
+                final var border = x == 0 || y == 0 || x == width - 1 || y == height - 1;
+                cells[y][x] = border || (x % 8 == 0 && y % 8 == 0) ? '#' : '.';
+            }
+        }
+        cells[1][1] = 'A';
+        int placed = 0;
+        for (int y = 3; y < height / 2 && placed < boxes; y += 4) {
+            for (int x = 3; x < width - 3 && placed < boxes; x += 4) {
+                cells[y][x] = 'a';
+                cells[height - 1 - y][x] = '@';
+                placed++;
+            }
+        }
+        final var builder = new StringBuilder((width + 1) * (height + 1));
+        builder.append("-1\n");
+        for (var row : cells) {
+            builder.append(row).append('\n');
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,39 @@
+package hk.ust.comp3021.game;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares loading a map from the binary encoding with parsing its text.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GameMapCodecBenchmark {
+
+    @Param({"map00", "map01", "medium", "large"})
+    public String mapName;
+
+    private String text;
+    private byte[] encoded;
+
+    @Setup
+    public void setUp() {
+        text = BenchmarkMaps.load(mapName);
+        encoded = GameMapCodec.encode(GameMap.parse(text));
+    }
+
+    @Benchmark
+    public GameMap parse() {
+        return GameMap.parse(text);
+    }
+
+    @Benchmark
+    public GameMap decode() {
+        return GameMapCodec.decode(encoded);
+    }
+}
@@ -0,0 +1,80 @@
+package hk.ust.comp3021.game;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures moving entities in a {@link GameState} and undoing chains of checkpoints.
+ * <p>
+ * The generated maps have a box at (3, 3) with free cells on its right,
+ * which the benchmarks move back and forth without following the rules of the game.
+ * Every move is journaled for undo, so the benchmarks undo what they did to keep the journal from growing.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GameStateBenchmark {
+
+    private static final int MOVES = 256;
+
+    private static final Position BOX = new Position(3, 3);
+    private static final Position NEXT_TO_BOX = new Position(4, 3);
+
+    @Param({"medium", "large"})
+    public String mapName;
+
+    private GameState state;
+
+    @Setup
+    public void setUp() {
+        state = new GameState(GameMap.parse(BenchmarkMaps.load(mapName)));
+    }
+
+    /**
+     * Move a box back and forth, then undo all the moves at once.
+     * The time is per move, and includes undoing it.
+     */
+    @Benchmark
+    @OperationsPerInvocation(MOVES)
+    public void move() {
+        state.checkpoint();
+        for (int i = 0; i < MOVES; i += 2) {
+            state.move(BOX, NEXT_TO_BOX);
+            state.move(NEXT_TO_BOX, BOX);
+        }
+        state.undo();
+    }
+
+    /**
+     * Record a chain of checkpoints, each followed by a move of a box, then undo them one by one.
+     * The time is per chain.
+     */
+    @Benchmark
+    public void checkpointUndoChain(Chain chain) {
+        final var depth = chain.depth;
+        for (int i = 0; i < depth; ++i) {
+            state.checkpoint();
+            if (i % 2 == 0) {
+                state.move(BOX, NEXT_TO_BOX);
+            } else {
+                state.move(NEXT_TO_BOX, BOX);
+            }
+        }
+        for (int i = 0; i < depth; ++i) {
+            state.undo();
+        }
+    }
+
+    /**
+     * The depth of the chains of checkpoints.
+     */
+    @State(Scope.Thread)
+    public static class Chain {
+        @Param({"1", "16", "256", "4096"})
+        public int depth;
+    }
+}
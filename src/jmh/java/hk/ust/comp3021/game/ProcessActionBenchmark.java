@@ -0,0 +1,105 @@
+package hk.ust.comp3021.game;
+
+import hk.ust.comp3021.actions.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link AbstractSokobanGame#processAction} for every type of action on the generated maps.
+ * <p>
+ * Player A is first walked from (1, 1) to (2, 3), on the left of the box at (3, 3).
+ * The benchmarks which change the state undo their changes, and the games are recreated for every iteration
+ * since each processed action is appended to the action journal of the game.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProcessActionBenchmark {
+
+    private static final int MOVES = 256;
+
+    private static final Action UP = new Move.Up(0);
+    private static final Action DOWN = new Move.Down(0);
+    private static final Action RIGHT = new Move.Right(0);
+    private static final Action UNDO = new Undo(0);
+    private static final Action EXIT = new Exit(0);
+    private static final Action INVALID_INPUT = new InvalidInput(0, "Invalid Input.");
+    private static final Action MISSING_PLAYER = new Move.Up(1);
+
+    @Param({"medium", "large"})
+    public String mapName;
+
+    private GameMap map;
+    private Game game;
+
+    @Setup(Level.Trial)
+    public void loadMap() {
+        map = GameMap.parse(BenchmarkMaps.load(mapName));
+    }
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        game = new Game(new GameState(map));
+        game.processAction(RIGHT);
+        game.processAction(DOWN);
+        game.processAction(DOWN);
+    }
+
+    /**
+     * Push the box, walk up and down next to it, then undo everything.
+     * The time is per action.
+     */
+    @Benchmark
+    @OperationsPerInvocation(MOVES + 2)
+    public void move() {
+        game.processAction(RIGHT);
+        for (int i = 0; i < MOVES; i += 2) {
+            game.processAction(UP);
+            game.processAction(DOWN);
+        }
+        game.processAction(UNDO);
+    }
+
+    /**
+     * Push the box and undo the push. The time is per action.
+     */
+    @Benchmark
+    @OperationsPerInvocation(2)
+    public void pushAndUndo() {
+        game.processAction(RIGHT);
+        game.processAction(UNDO);
+    }
+
+    @Benchmark
+    public ActionResult moveOfMissingPlayer() {
+        return game.processAction(MISSING_PLAYER);
+    }
+
+    @Benchmark
+    public ActionResult invalidInput() {
+        return game.processAction(INVALID_INPUT);
+    }
+
+    @Benchmark
+    public ActionResult exit() {
+        return game.processAction(EXIT);
+    }
+
+    /**
+     * A game driven by the benchmarks.
+     */
+    private static final class Game extends AbstractSokobanGame {
+
+        Game(GameState gameState) {
+            super(gameState);
+        }
+
+        @Override
+        public void run() {
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package hk.ust.comp3021.tui;
+
+import hk.ust.comp3021.game.BenchmarkMaps;
+import hk.ust.comp3021.game.GameMap;
+import hk.ust.comp3021.game.GameState;
+import hk.ust.comp3021.game.Position;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures rendering a frame after player A moves, drawing either full frames or differential frames.
+ * Frames are encoded by the {@link PrintStream} and discarded.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TerminalRenderingEngineBenchmark {
+
+    private static final Position START = new Position(1, 1);
+    private static final Position NEXT = new Position(2, 1);
+
+    @Param({"medium", "large"})
+    public String mapName;
+
+    @Param({"false", "true"})
+    public boolean differential;
+
+    private GameMap map;
+    private GameState state;
+    private TerminalRenderingEngine engine;
+
+    @Setup(Level.Trial)
+    public void loadMap() {
+        map = GameMap.parse(BenchmarkMaps.load(mapName));
+    }
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        state = new GameState(map);
+        engine = new TerminalRenderingEngine(new PrintStream(OutputStream.nullOutputStream()), differential);
+        engine.render(state);
+    }
+
+    /**
+     * Move player A forth and back, rendering after each move. The time is per frame.
+     */
+    @Benchmark
+    @OperationsPerInvocation(2)
+    public void render() {
+        state.move(START, NEXT);
+        engine.render(state);
+        state.move(NEXT, START);
+        engine.render(state);
+    }
+}
@@ -1,31 +1,146 @@
 package hk.ust.comp3021;
 
+import hk.ust.comp3021.game.AbstractSokobanGame;
+import hk.ust.comp3021.game.GameMap;
+import hk.ust.comp3021.game.GameMapPack;
+import hk.ust.comp3021.metrics.GameMetrics;
+import hk.ust.comp3021.server.SelectorSokobanServer;
+import hk.ust.comp3021.server.SokobanServer;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
 
 /**
  * The holder of the entry point of the game.
  */
 public class Sokoban {
 
+    private static final String SERVER_OPTION = "--server";
+    private static final String SELECTOR_SERVER_OPTION = "--selector-server";
+    private static final String DIFF_OPTION = "--diff";
+    private static final String METRICS_OPTION = "--metrics";
+    private static final String PACK_USAGE = "Usage: <pack> <index>";
+
     /**
      * The entry point of the program.
+     * The first argument is a map file or the name of a built-in map.
+     * If a second argument is given, the first one is a map pack and the second one is the index of the map in it.
+     * <p>
+     * With {@value #SERVER_OPTION} followed by an address and a map, the game is served over a socket instead,
+     * see {@link SokobanServer#parseAddress(String)}. With {@value #SELECTOR_SERVER_OPTION} it is served by
+     * a few selector threads, see {@link SelectorSokobanServer}.
+     * <p>
+     * A leading {@value #DIFF_OPTION} only redraws the cells changed by every move,
+     * see {@link hk.ust.comp3021.tui.AnsiFrameDiff}. A leading {@value #METRICS_OPTION} measures the games
+     * and writes the {@link GameMetrics} to the standard error when the game or the server exits.
      *
      * @param args The command line args.
      */
     public static void main(@NotNull String[] args) {
+        boolean differential = false;
+        GameMetrics metrics = null;
+        int options = 0;
+        for (; options < args.length; ++options) {
+            if (args[options].equals(DIFF_OPTION)) {
+                differential = true;
+            } else if (args[options].equals(METRICS_OPTION)) {
+                metrics = new GameMetrics();
+            } else {
+                break;
+            }
+        }
+        args = Arrays.copyOfRange(args, options, args.length);
         if (args.length < 1) {
             System.err.println("Map is not provided.");
             System.exit(1);
         }
+        if (args[0].equals(SERVER_OPTION) || args[0].equals(SELECTOR_SERVER_OPTION)) {
+            serve(args, differential, metrics);
+            return;
+        }
         final var mapFile = args[0];
+        final var mapIndex = args.length > 1 ? parseMapIndex(args[1]) : 0;
+        if (mapIndex < 0) {
+            System.err.println(PACK_USAGE);
+            System.exit(1);
+        }
         try {
-            final var game = SokobanGameFactory.createTUIGame(mapFile);
+            final GameMap map;
+            if (args.length > 1) {
+                final var pack = GameMapPack.open(Path.of(mapFile));
+                if (mapIndex >= pack.size()) {
+                    System.err.println("No map " + mapIndex + " in a pack of " + pack.size() + " maps.");
+                    System.err.println(PACK_USAGE);
+                    System.exit(1);
+                }
+                map = pack.load(mapIndex);
+            } else {
+                map = SokobanGameFactory.loadGameMap(mapFile);
+            }
+            final var game = SokobanGameFactory.createTUIGame(map, differential);
+            if (metrics != null && game instanceof AbstractSokobanGame measured) {
+                measured.setMetrics(metrics);
+            }
             game.run();
+            dumpMetrics(metrics);
         } catch (IOException e) {
             System.err.println("Failed to load game map: " + e);
             System.exit(1);
         }
     }
+
+    /**
+     * @return The index of a map in a pack, or -1 if the argument is not a valid index.
+     */
+    private static int parseMapIndex(@NotNull String index) {
+        try {
+            return Math.max(Integer.parseInt(index), -1);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static void serve(@NotNull String[] args, boolean differential, @Nullable GameMetrics metrics) {
+        if (args.length < 3) {
+            System.err.println("Usage: " + args[0] + " <address> <map>");
+            System.exit(1);
+        }
+        try {
+            final var address = SokobanServer.parseAddress(args[1]);
+            final var map = SokobanGameFactory.loadGameMap(args[2]);
+            if (args[0].equals(SELECTOR_SERVER_OPTION)) {
+                final var server = SelectorSokobanServer.start(address, map, Runtime.getRuntime().availableProcessors(), differential);
+                server.setMetrics(metrics);
+                Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                    server.close();
+                    dumpMetrics(metrics);
+                }));
+                System.out.println("Serving on " + server.getLocalAddress());
+                server.awaitTermination();
+            } else {
+                final var server = SokobanServer.start(address, map, Integer.MAX_VALUE, differential);
+                server.setMetrics(metrics);
+                Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                    server.close();
+                    dumpMetrics(metrics);
+                }));
+                System.out.println("Serving on " + server.getLocalAddress());
+                server.awaitTermination();
+            }
+        } catch (IOException e) {
+            System.err.println("Failed to start the server: " + e);
+            System.exit(1);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void dumpMetrics(@Nullable GameMetrics metrics) {
+        if (metrics != null) {
+            metrics.dump(System.err);
+        }
+    }
 }
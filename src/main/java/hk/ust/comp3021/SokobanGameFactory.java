@@ -1,6 +1,8 @@
 package hk.ust.comp3021;
 
 import hk.ust.comp3021.game.GameMap;
+import hk.ust.comp3021.game.GameMapCache;
+import hk.ust.comp3021.game.GameMapPack;
 import hk.ust.comp3021.game.GameState;
 import hk.ust.comp3021.game.SokobanGame;
 import hk.ust.comp3021.tui.TerminalInputEngine;
@@ -9,15 +11,41 @@ import hk.ust.comp3021.tui.TerminalSokobanGame;
 import org.jetbrains.annotations.NotNull;
 
 import java.io.IOException;
-import java.net.URISyntaxException;
+import java.io.InputStreamReader;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
 
 /**
  * Factory for creating Sokoban games
+ * <p>
+ * Loaded maps are kept in a process-wide {@link GameMapCache}, keyed by the name of a built-in map,
+ * or by the path, modification time and size of a map file, so a map is only parsed again after its file changes.
  */
 public class SokobanGameFactory {
 
+    /**
+     * The maximum number of maps in the cache.
+     */
+    public static final int MAP_CACHE_ENTRIES = 256;
+
+    /**
+     * The maximum estimated memory of the maps in the cache.
+     */
+    public static final long MAP_CACHE_BYTES = 64L << 20;
+
+    private static final GameMapCache MAP_CACHE = new GameMapCache(MAP_CACHE_ENTRIES, MAP_CACHE_BYTES);
+
+    /**
+     * @return The cache of loaded maps.
+     */
+    public static @NotNull GameMapCache getMapCache() {
+        return MAP_CACHE;
+    }
+
     /**
      * Create a TUI version of the Sokoban game.
      *
@@ -26,36 +54,99 @@ public class SokobanGameFactory {
      * @throws IOException if mapFile cannot be load
      */
     public static @NotNull SokobanGame createTUIGame(@NotNull String mapFile) throws IOException {
-        Path file;
-        if (!mapFile.endsWith(".map")) {
-            // treat as built-in maps
-            final var resource = SokobanGameFactory.class.getClassLoader().getResource(mapFile + ".map");
-            if (resource == null) throw new RuntimeException("No such built-in map: " + mapFile);
-            try {
-                file = Path.of(resource.toURI());
-            } catch (URISyntaxException e) {
-                throw new RuntimeException("Error loading map:" + mapFile);
-            }
-        } else {
-            file = Path.of(mapFile);
-        }
-        final var gameMap = loadGameMap(file);
+        return createTUIGame(loadGameMap(mapFile));
+    }
+
+    /**
+     * Create a TUI version of the Sokoban game with a map from a map pack.
+     * Only the requested map is read from the pack.
+     *
+     * @param packFile The map pack file, see {@link GameMapPack}.
+     * @param index    The index of the map in the pack, starting from 0.
+     * @return The Sokoban game.
+     * @throws IOException if packFile cannot be load
+     */
+    public static @NotNull SokobanGame createTUIGame(@NotNull Path packFile, int index) throws IOException {
+        return createTUIGame(MAP_CACHE.get(FileKey.of(packFile, index), () -> GameMapPack.open(packFile).load(index)));
+    }
+
+    private static @NotNull SokobanGame createTUIGame(@NotNull GameMap gameMap) {
+        return createTUIGame(gameMap, false);
+    }
+
+    /**
+     * Create a TUI version of the Sokoban game on a loaded map.
+     *
+     * @param gameMap      The game map.
+     * @param differential Whether to only redraw the cells changed by every move,
+     *                     see {@link hk.ust.comp3021.tui.AnsiFrameDiff}.
+     * @return The Sokoban game.
+     */
+    public static @NotNull SokobanGame createTUIGame(@NotNull GameMap gameMap, boolean differential) {
         return new TerminalSokobanGame(
             new GameState(gameMap),
             new TerminalInputEngine(System.in),
-            new TerminalRenderingEngine(System.out)
+            new TerminalRenderingEngine(System.out, differential)
         );
     }
 
 
     /**
+     * Load a game map from a file, or a built-in map if the name does not end with {@code .map}.
+     *
+     * @param mapFile The map file or the name of the built-in map.
+     * @return The parsed game map.
+     * @throws IOException When there is an issue loading the file.
+     */
+    public static @NotNull GameMap loadGameMap(@NotNull String mapFile) throws IOException {
+        if (!mapFile.endsWith(".map")) {
+            // treat as built-in maps
+            return MAP_CACHE.get(new ResourceKey(mapFile), () -> loadBuiltInMap(mapFile));
+        }
+        return loadGameMap(Path.of(mapFile));
+    }
+
+    private static @NotNull GameMap loadBuiltInMap(@NotNull String mapFile) throws IOException {
+        final var resource = SokobanGameFactory.class.getClassLoader().getResourceAsStream(mapFile + ".map");
+        if (resource == null) throw new RuntimeException("No such built-in map: " + mapFile);
+        try (var reader = new InputStreamReader(resource, StandardCharsets.UTF_8)) {
+            return GameMap.parse(reader);
+        }
+    }
+
+    /**
+     * Load a game map from a file.
+     * The file is memory-mapped and parsed in a single pass, so it is never copied into a string.
+     *
      * @param mapFile The file containing the game map.
      * @return The parsed game map.
      * @throws IOException When there is an issue loading the file.
      */
     public static @NotNull GameMap loadGameMap(@NotNull Path mapFile) throws IOException {
-        final var fileContent = Files.readString(mapFile);
-        return GameMap.parse(fileContent);
+        return MAP_CACHE.get(FileKey.of(mapFile, -1), () -> parseGameMap(mapFile));
     }
 
+    private static @NotNull GameMap parseGameMap(@NotNull Path mapFile) throws IOException {
+        try (var channel = FileChannel.open(mapFile, StandardOpenOption.READ)) {
+            final var buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return GameMap.parse(buffer);
+        }
+    }
+
+    /**
+     * The cache key of a built-in map.
+     */
+    private record ResourceKey(@NotNull String name) {
+    }
+
+    /**
+     * The cache key of a map file, or of a map in a map pack, which changes whenever the file is modified.
+     */
+    private record FileKey(@NotNull Path path, long modified, long size, int index) {
+        static @NotNull FileKey of(@NotNull Path file, int index) throws IOException {
+            final var attributes = Files.readAttributes(file, BasicFileAttributes.class);
+            return new FileKey(file.toAbsolutePath().normalize(), attributes.lastModifiedTime().toMillis(),
+                attributes.size(), index);
+        }
+    }
 }
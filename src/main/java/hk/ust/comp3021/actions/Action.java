@@ -5,8 +5,20 @@ package hk.ust.comp3021.actions;
  */
 public abstract sealed class Action permits InvalidInput, Move, Undo, Exit {
 
+    /**
+     * The number of player ids, from -1 (any player) to 25 (player Z), whose actions are shared by the {@code of} methods.
+     */
+    static final int SHARED_INITIATORS = 27;
+
     protected final int initiator;
 
+    /**
+     * The results of this action, created with it and handed out again, see {@link ActionResult.Success#of(Action)}.
+     * They never change, so a shared action can be processed by any thread.
+     */
+    final ActionResult.Success success;
+    final ActionResult.Failed[] failures;
+
     /**
      * @return The id of the player who performed the action.
      */
@@ -16,5 +28,7 @@ public abstract sealed class Action permits InvalidInput, Move, Undo, Exit {
 
     protected Action(int initiator) {
         this.initiator = initiator;
+        this.success = new ActionResult.Success(this);
+        this.failures = ActionResult.Failed.constantFailures(this);
     }
 }
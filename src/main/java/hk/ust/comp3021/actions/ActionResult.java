@@ -1,5 +1,6 @@
 package hk.ust.comp3021.actions;
 
+import hk.ust.comp3021.utils.StringResources;
 import org.jetbrains.annotations.NotNull;
 
 /**
@@ -34,6 +35,17 @@ public abstract sealed class ActionResult {
         public Success(@NotNull Action action) {
             super(action);
         }
+
+        /**
+         * Get a successful result of an action, shared by every call with the same action instance,
+         * so processing a shared action (see {@link Move#of(int, int)}) creates no result after the first time.
+         *
+         * @param action The action.
+         * @return The result.
+         */
+        public static @NotNull Success of(@NotNull Action action) {
+            return action.success;
+        }
     }
 
     /**
@@ -41,6 +53,17 @@ public abstract sealed class ActionResult {
      */
     public static final class Failed extends ActionResult {
 
+        private static final String[] MOVE_REASONS = {
+            StringResources.HIT_WALL_MESSAGE,
+            StringResources.HIT_PLAYER_MESSAGE,
+            StringResources.OTHER_PLAYERS_BOX_MESSAGE,
+            StringResources.PUSH_FAILED_MESSAGE,
+            StringResources.PLAYER_NOT_FOUND,
+        };
+        private static final String[] UNDO_REASONS = {StringResources.UNDO_QUOTA_RUN_OUT};
+        private static final String[] INVALID_INPUT_REASONS = {StringResources.INVALID_INPUT_MESSAGE};
+        private static final String[] EXIT_REASONS = {};
+
         private final String reason;
 
         /**
@@ -58,5 +81,40 @@ public abstract sealed class ActionResult {
             super(action);
             this.reason = reason;
         }
+
+        /**
+         * Get a failing result of an action, like {@link Success#of(Action)}.
+         * Every action comes with its failures for the constant reasons in {@link StringResources}
+         * that a game gives for its kind of action. Any other reason creates a new result.
+         *
+         * @param action The action.
+         * @param reason The reason for the failure.
+         * @return The result.
+         */
+        public static @NotNull Failed of(@NotNull Action action, @NotNull String reason) {
+            for (var failure : action.failures) {
+                if (failure.reason.equals(reason)) {
+                    return failure;
+                }
+            }
+            return new Failed(action, reason);
+        }
+
+        /**
+         * @return The failures of an action for every constant reason of its kind, see {@link #of(Action, String)}.
+         */
+        static @NotNull Failed @NotNull [] constantFailures(@NotNull Action action) {
+            final var reasons = switch (action) {
+                case Move ignored -> MOVE_REASONS;
+                case Undo ignored -> UNDO_REASONS;
+                case InvalidInput ignored -> INVALID_INPUT_REASONS;
+                case Exit ignored -> EXIT_REASONS;
+            };
+            final var failures = new Failed[reasons.length];
+            for (int i = 0; i < reasons.length; ++i) {
+                failures[i] = new Failed(action, reasons[i]);
+            }
+            return failures;
+        }
     }
 }
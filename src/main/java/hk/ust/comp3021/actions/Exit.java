@@ -1,13 +1,34 @@
 package hk.ust.comp3021.actions;
 
+import org.jetbrains.annotations.NotNull;
+
 /**
  * Exit action instructs the game to exit.
  */
 public final class Exit extends Action {
+
+    private static final Exit[] SHARED = new Exit[SHARED_INITIATORS];
+
+    static {
+        for (int id = -1; id < SHARED.length - 1; ++id) {
+            SHARED[id + 1] = new Exit(id);
+        }
+    }
+
     /**
      * @param initiator The id of the player who performed the action.
      */
     public Exit(int initiator) {
         super(initiator);
     }
+
+    /**
+     * Get an exit action. The exits of players -1 to 25 are created once and reused.
+     *
+     * @param initiator The id of the player who performed the action.
+     * @return The action.
+     */
+    public static @NotNull Exit of(int initiator) {
+        return initiator >= -1 && initiator < SHARED.length - 1 ? SHARED[initiator + 1] : new Exit(initiator);
+    }
 }
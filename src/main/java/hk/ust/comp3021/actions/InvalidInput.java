@@ -1,5 +1,6 @@
 package hk.ust.comp3021.actions;
 
+import hk.ust.comp3021.utils.StringResources;
 import org.jetbrains.annotations.NotNull;
 
 /**
@@ -7,6 +8,14 @@ import org.jetbrains.annotations.NotNull;
  */
 public final class InvalidInput extends Action {
 
+    private static final InvalidInput[] SHARED = new InvalidInput[SHARED_INITIATORS];
+
+    static {
+        for (int id = -1; id < SHARED.length - 1; ++id) {
+            SHARED[id + 1] = new InvalidInput(id, StringResources.INVALID_INPUT_MESSAGE);
+        }
+    }
+
     private final String message;
 
     /**
@@ -18,6 +27,18 @@ public final class InvalidInput extends Action {
         this.message = message;
     }
 
+    /**
+     * Get an invalid input with the usual message, {@link StringResources#INVALID_INPUT_MESSAGE},
+     * shared for players -1 to 25.
+     *
+     * @param initiator The id of the player who give the invalid input.
+     * @return The action.
+     */
+    public static @NotNull InvalidInput of(int initiator) {
+        return initiator >= -1 && initiator < SHARED.length - 1
+            ? SHARED[initiator + 1] : new InvalidInput(initiator, StringResources.INVALID_INPUT_MESSAGE);
+    }
+
     /**
      * @return The error message.
      */
@@ -7,10 +7,75 @@ import org.jetbrains.annotations.NotNull;
  * An actions of moving a player.
  */
 public abstract sealed class Move extends Action permits Move.Down, Move.Left, Move.Right, Move.Up {
+
+    /**
+     * The direction of {@link Up}, see {@link #getDirection()}.
+     */
+    public static final int DIRECTION_UP = 0;
+    /**
+     * The direction of {@link Down}, see {@link #getDirection()}.
+     */
+    public static final int DIRECTION_DOWN = 1;
+    /**
+     * The direction of {@link Left}, see {@link #getDirection()}.
+     */
+    public static final int DIRECTION_LEFT = 2;
+    /**
+     * The direction of {@link Right}, see {@link #getDirection()}.
+     */
+    public static final int DIRECTION_RIGHT = 3;
+    /**
+     * The number of directions.
+     */
+    public static final int DIRECTIONS = 4;
+
+    private static final Move[] SHARED = new Move[SHARED_INITIATORS * DIRECTIONS];
+
+    static {
+        for (int id = -1; id < SHARED_INITIATORS - 1; ++id) {
+            final var base = (id + 1) * DIRECTIONS;
+            SHARED[base + DIRECTION_UP] = new Up(id);
+            SHARED[base + DIRECTION_DOWN] = new Down(id);
+            SHARED[base + DIRECTION_LEFT] = new Left(id);
+            SHARED[base + DIRECTION_RIGHT] = new Right(id);
+        }
+    }
+
     protected Move(int initiator) {
         super(initiator);
     }
 
+    /**
+     * Get a move. Moves are immutable, so the moves of players -1 to 25 are created once and shared.
+     *
+     * @param initiator The id of the player who moves.
+     * @param direction One of {@link #DIRECTION_UP}, {@link #DIRECTION_DOWN}, {@link #DIRECTION_LEFT} and {@link #DIRECTION_RIGHT}.
+     * @return The move.
+     * @throws IllegalArgumentException if the direction is invalid.
+     */
+    public static @NotNull Move of(int initiator, int direction) {
+        if (direction < 0 || direction >= DIRECTIONS) {
+            throw new IllegalArgumentException("Invalid direction: " + direction);
+        }
+        if (initiator >= -1 && initiator < SHARED_INITIATORS - 1) {
+            return SHARED[(initiator + 1) * DIRECTIONS + direction];
+        }
+        return switch (direction) {
+            case DIRECTION_UP -> new Up(initiator);
+            case DIRECTION_DOWN -> new Down(initiator);
+            case DIRECTION_LEFT -> new Left(initiator);
+            default -> new Right(initiator);
+        };
+    }
+
+    /**
+     * The direction of the move as a number, used with the cell indices of
+     * {@link hk.ust.comp3021.game.GameState#neighbor(int, int)} to move without creating positions.
+     *
+     * @return One of {@link #DIRECTION_UP}, {@link #DIRECTION_DOWN}, {@link #DIRECTION_LEFT} and {@link #DIRECTION_RIGHT}.
+     */
+    public abstract int getDirection();
+
     /**
      * Generates the next position after the move based on the current position.
      *
@@ -31,10 +96,15 @@ public abstract sealed class Move extends Action permits Move.Down, Move.Left, M
             super(initiator);
         }
 
+        @Override
+        public int getDirection() {
+            return DIRECTION_DOWN;
+        }
+
         @Override
         public @NotNull Position nextPosition(@NotNull Position currentPosition) {
             // TODO
-            return new Position(currentPosition.x(), currentPosition.y()+1);
+            return Position.of(currentPosition.x(), currentPosition.y()+1);
         }
     }
 
@@ -49,10 +119,15 @@ public abstract sealed class Move extends Action permits Move.Down, Move.Left, M
             super(initiator);
         }
 
+        @Override
+        public int getDirection() {
+            return DIRECTION_LEFT;
+        }
+
         @Override
         public @NotNull Position nextPosition(@NotNull Position currentPosition) {
             // TODO
-            return new Position(currentPosition.x()-1, currentPosition.y());
+            return Position.of(currentPosition.x()-1, currentPosition.y());
         }
     }
 
@@ -67,10 +142,15 @@ public abstract sealed class Move extends Action permits Move.Down, Move.Left, M
             super(initiator);
         }
 
+        @Override
+        public int getDirection() {
+            return DIRECTION_RIGHT;
+        }
+
         @Override
         public @NotNull Position nextPosition(@NotNull Position currentPosition) {
             // TODO
-            return new Position(currentPosition.x()+1, currentPosition.y());
+            return Position.of(currentPosition.x()+1, currentPosition.y());
         }
     }
 
@@ -85,10 +165,15 @@ public abstract sealed class Move extends Action permits Move.Down, Move.Left, M
             super(initiator);
         }
 
+        @Override
+        public int getDirection() {
+            return DIRECTION_UP;
+        }
+
         @Override
         public @NotNull Position nextPosition(@NotNull Position currentPosition) {
             // TODO
-            return new Position(currentPosition.x(), currentPosition.y()-1);
+            return Position.of(currentPosition.x(), currentPosition.y()-1);
         }
     }
 }
@@ -1,13 +1,34 @@
 package hk.ust.comp3021.actions;
 
+import org.jetbrains.annotations.NotNull;
+
 /**
  * Denotes an undo action.
  */
 public final class Undo extends Action {
+
+    private static final Undo[] SHARED = new Undo[SHARED_INITIATORS];
+
+    static {
+        for (int id = -1; id < SHARED.length - 1; ++id) {
+            SHARED[id + 1] = new Undo(id);
+        }
+    }
+
     /**
      * @param initiator The id of the player who give the invalid input.
      */
     public Undo(int initiator) {
         super(initiator);
     }
+
+    /**
+     * Get an undo action, one shared instance per player from -1 to 25.
+     *
+     * @param initiator The id of the player who performed the action.
+     * @return The action.
+     */
+    public static @NotNull Undo of(int initiator) {
+        return initiator >= -1 && initiator < SHARED.length - 1 ? SHARED[initiator + 1] : new Undo(initiator);
+    }
 }
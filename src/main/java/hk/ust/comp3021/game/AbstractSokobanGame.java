@@ -2,8 +2,10 @@ package hk.ust.comp3021.game;
 
 import hk.ust.comp3021.actions.*;
 import hk.ust.comp3021.entities.*;
+import hk.ust.comp3021.metrics.GameMetrics;
 import hk.ust.comp3021.utils.StringResources;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 /**
  * A base implementation of Sokoban Game.
@@ -12,11 +14,45 @@ public abstract class AbstractSokobanGame implements SokobanGame {
     @NotNull
     protected final GameState state;
     protected boolean requestExit;
+    private final ActionJournal actionJournal = new ActionJournal();
+    private @Nullable GameMetrics metrics;
 
     protected AbstractSokobanGame(@NotNull GameState gameState) {
         this.state = gameState;
     }
 
+    /**
+     * Estimate the memory used by this game, leaving out the layers of the map it shares with other games.
+     *
+     * @return The estimated number of bytes.
+     */
+    public long estimateMemoryUsage() {
+        return this.state.estimateMemoryUsage() + this.actionJournal.estimateMemoryUsage();
+    }
+
+    /**
+     * @return The journal of the actions processed by this game so far.
+     */
+    public @NotNull ActionJournal getActionJournal() {
+        return this.actionJournal;
+    }
+
+    /**
+     * @return The metrics recording the actions of this game, or null if it is not measured.
+     */
+    public @Nullable GameMetrics getMetrics() {
+        return this.metrics;
+    }
+
+    /**
+     * Measure the actions, checkpoints, undos and renders of this game from now on.
+     *
+     * @param metrics The metrics to record into, possibly shared with other games, or null to stop measuring.
+     */
+    public void setMetrics(@Nullable GameMetrics metrics) {
+        this.metrics = metrics;
+    }
+
     /**
      * @return True is the game should stop running.
      * For example when the user specified to exit the game or the user won the game.
@@ -30,63 +66,117 @@ public abstract class AbstractSokobanGame implements SokobanGame {
     }
 
     /**
+     * Process an action and append it with its result to the {@link #getActionJournal() journal}.
+     *
      * @param action The action received from the user.
      * @return The result of the action.
      */
     protected ActionResult processAction(@NotNull Action action) {
+        final var metrics = this.metrics;
+        if (metrics == null) {
+            final var result = applyAction(action);
+            this.actionJournal.append(result);
+            return result;
+        }
+        final var start = System.nanoTime();
+        final var allocated = GameMetrics.allocatedBytes();
+        final var result = applyAction(action);
+        this.actionJournal.append(result);
+        metrics.recordAction(result, start, allocated);
+        return result;
+    }
+
+    /**
+     * Render the state of the game, measured by the {@link #getMetrics() metrics} if any.
+     *
+     * @param renderingEngine The engine to render with.
+     */
+    protected void render(@NotNull RenderingEngine renderingEngine) {
+        final var metrics = this.metrics;
+        if (metrics == null) {
+            renderingEngine.render(this.state);
+            return;
+        }
+        final var start = System.nanoTime();
+        final var allocated = GameMetrics.allocatedBytes();
+        renderingEngine.render(this.state);
+        metrics.record(GameMetrics.Operation.RENDER, start, allocated);
+    }
+
+    private void checkpoint() {
+        final var metrics = this.metrics;
+        if (metrics == null) {
+            this.state.checkpoint();
+            return;
+        }
+        final var start = System.nanoTime();
+        final var allocated = GameMetrics.allocatedBytes();
+        this.state.checkpoint();
+        metrics.record(GameMetrics.Operation.CHECKPOINT, start, allocated);
+    }
+
+    private void undo() {
+        final var metrics = this.metrics;
+        if (metrics == null) {
+            this.state.undo();
+            return;
+        }
+        final var start = System.nanoTime();
+        final var allocated = GameMetrics.allocatedBytes();
+        this.state.undo();
+        metrics.record(GameMetrics.Operation.UNDO, start, allocated);
+    }
+
+    private @NotNull ActionResult applyAction(@NotNull Action action) {
         // TODO
         return switch (action) {
-            case Exit e-> new ActionResult.Success(e);
+            case Exit e-> ActionResult.Success.of(e);
             case Undo u-> {
                 if (this.state.getUndoQuota().isEmpty()) {
-                    this.state.undo();
-                    yield new ActionResult.Success(u);
+                    this.undo();
+                    yield ActionResult.Success.of(u);
                 } else if (this.state.getUndoQuota().isPresent()) {
                     if (this.state.getUndoQuota().get() >= 1) {
-                        this.state.undo();
-                        yield new ActionResult.Success(u);
+                        this.undo();
+                        yield ActionResult.Success.of(u);
                     } else {
-                        yield new ActionResult.Failed(u, StringResources.UNDO_QUOTA_RUN_OUT);
+                        yield ActionResult.Failed.of(u, StringResources.UNDO_QUOTA_RUN_OUT);
                     }
                 } else {
-                    yield new ActionResult.Failed(u, StringResources.UNDO_QUOTA_RUN_OUT);
+                    yield ActionResult.Failed.of(u, StringResources.UNDO_QUOTA_RUN_OUT);
                 }
             }
             case Move m-> {
-                if (m.getInitiator() > 1 || this.state.getPlayerPositionById(m.getInitiator()) == null) {
-                    yield new ActionResult.Failed(m, StringResources.PLAYER_NOT_FOUND);
+                final var from = this.state.getPlayerCell(m.getInitiator());
+                if (m.getInitiator() > 1 || from < 0) {
+                    yield ActionResult.Failed.of(m, StringResources.PLAYER_NOT_FOUND);
                 }
-                Position currentpos = this.state.getPlayerPositionById(m.getInitiator());
-                Position nextpos = m.nextPosition(currentpos);
-                yield switch (this.state.getEntity(nextpos)) {
-                    case Player ignored-> new ActionResult.Failed(m, "You hit another player.");
-                    case Wall ignored-> new ActionResult.Failed(m, "You hit a wall");
+                final var to = this.state.neighbor(from, m.getDirection());
+                yield switch (this.state.getCell(to)) {
+                    case null -> ActionResult.Failed.of(m, StringResources.HIT_WALL_MESSAGE);
+                    case Player ignored-> ActionResult.Failed.of(m, StringResources.HIT_PLAYER_MESSAGE);
+                    case Wall ignored-> ActionResult.Failed.of(m, StringResources.HIT_WALL_MESSAGE);
                     case Empty ignored-> {
-                        this.state.move(currentpos, nextpos);
-                        yield new ActionResult.Success(m);
+                        this.state.move(from, to);
+                        yield ActionResult.Success.of(m);
                     }
                     case Box b-> {
                         if (b.getPlayerId() != m.getInitiator()) {
-                            yield new ActionResult.Failed(m,"You cannot move other players' boxes.");
+                            yield ActionResult.Failed.of(m, StringResources.OTHER_PLAYERS_BOX_MESSAGE);
                         }
-                        Position boxNextpos = switch(m) {
-                            case Move.Up u -> new Position(nextpos.x(), nextpos.y()-1);
-                            case Move.Down d -> new Position(nextpos.x(), nextpos.y()+1);
-                            case Move.Left l -> new Position(nextpos.x()-1, nextpos.y());
-                            case Move.Right r -> new Position(nextpos.x()+1, nextpos.y());
-                        };
-                        if (this.state.getEntity(boxNextpos) instanceof Empty) {
-                            this.state.checkpoint();
-                            this.state.move(nextpos, boxNextpos);
-                            this.state.move(currentpos, nextpos);
-                            yield new ActionResult.Success(m);
+                        final var boxTo = this.state.neighbor(to, m.getDirection());
+                        if (this.state.getCell(boxTo) instanceof Empty) {
+                            this.checkpoint();
+                            this.state.move(to, boxTo);
+                            this.state.move(from, to);
+                            yield ActionResult.Success.of(m);
                         } else {
-                            yield new ActionResult.Failed(m, "Failed to push the box.");
+                            yield ActionResult.Failed.of(m, StringResources.PUSH_FAILED_MESSAGE);
                         }
                     }
                 };
             }
-            case InvalidInput i-> new ActionResult.Failed(i, StringResources.INVALID_INPUT_MESSAGE);
+            case InvalidInput i-> ActionResult.Failed.of(i, StringResources.INVALID_INPUT_MESSAGE);
         };
     }
 }
@@ -0,0 +1,175 @@
+package hk.ust.comp3021.game;
+
+import hk.ust.comp3021.actions.*;
+import org.jetbrains.annotations.NotNull;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * The actions processed by a game and whether each of them succeeded, one byte per action.
+ * <p>
+ * The highest bit of an entry is set when the action failed. The other bits hold the action:
+ * <ul>
+ * <li>a move as its player id times 4 plus its direction (up, down, left, right), for players A to Z;</li>
+ * <li>a move of any other player id as 104 plus its direction, replayed as a move of a player who does not exist;</li>
+ * <li>an undo, an exit or an invalid input as one of the codes after those.</li>
+ * </ul>
+ * Undo, exit and invalid input are replayed with initiator -1 and invalid input with a generic message,
+ * since processing them does not depend on either.
+ * <p>
+ * A journal is not thread-safe.
+ */
+public final class ActionJournal {
+
+    /**
+     * The current version of the serialized journal.
+     */
+    public static final int VERSION = 1;
+
+    private static final int MAGIC = 0x534b414a;
+    private static final int HEADER_SIZE = 4 + 1;
+    private static final int DIRECTIONS = 4;
+    private static final int PLAYERS = 26;
+    private static final int OTHER_PLAYER_MOVE = PLAYERS * DIRECTIONS;
+    private static final int UNDO = OTHER_PLAYER_MOVE + DIRECTIONS;
+    private static final int EXIT = UNDO + 1;
+    private static final int INVALID_INPUT = EXIT + 1;
+    private static final int CODES = INVALID_INPUT + 1;
+    private static final int FAILED = 0x80;
+    private static final int INITIAL_CAPACITY = 64;
+    private static final long OBJECT_SIZE = 24;
+
+    private static final Action[] ACTIONS = new Action[CODES];
+
+    static {
+        for (int id = 0; id <= PLAYERS; ++id) {
+            for (int direction = 0; direction < DIRECTIONS; ++direction) {
+                ACTIONS[id * DIRECTIONS + direction] = Move.of(id, direction);
+            }
+        }
+        ACTIONS[UNDO] = Undo.of(-1);
+        ACTIONS[EXIT] = Exit.of(-1);
+        ACTIONS[INVALID_INPUT] = InvalidInput.of(-1);
+    }
+
+    private byte[] entries;
+    private int size;
+
+    /**
+     * Create an empty journal.
+     */
+    public ActionJournal() {
+        this.entries = new byte[0];
+    }
+
+    private ActionJournal(byte @NotNull [] entries) {
+        this.entries = entries;
+        this.size = entries.length;
+    }
+
+    /**
+     * Append the result of an action.
+     *
+     * @param result The result of the action.
+     */
+    public void append(@NotNull ActionResult result) {
+        if (size == entries.length) {
+            entries = Arrays.copyOf(entries, Math.max(INITIAL_CAPACITY, size * 2));
+        }
+        entries[size++] = (byte) (code(result.getAction()) | (result instanceof ActionResult.Failed ? FAILED : 0));
+    }
+
+    /**
+     * @return The number of actions in the journal.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @param index The index of the action, in the order they were appended.
+     * @return The action, as it is replayed. Actions are shared, so the same instance may be returned for several entries.
+     */
+    public @NotNull Action getAction(int index) {
+        return ACTIONS[entry(index) & ~FAILED];
+    }
+
+    /**
+     * @param index The index of the action, in the order they were appended.
+     * @return Whether the action succeeded.
+     */
+    public boolean isSuccess(int index) {
+        return (entry(index) & FAILED) == 0;
+    }
+
+    /**
+     * Serialize the journal, as the magic bytes "SKAJ", a one-byte format version and one byte per action.
+     *
+     * @return The serialized journal.
+     */
+    public byte @NotNull [] toByteArray() {
+        final var buffer = ByteBuffer.allocate(HEADER_SIZE + size);
+        buffer.putInt(MAGIC).put((byte) VERSION).put(entries, 0, size);
+        return buffer.array();
+    }
+
+    /**
+     * Deserialize a journal.
+     *
+     * @param bytes The serialized journal, as returned by {@link #toByteArray()}.
+     * @return The journal.
+     * @throws IllegalArgumentException if the bytes are not a serialized journal of a supported version.
+     */
+    public static @NotNull ActionJournal fromByteArray(byte @NotNull [] bytes) {
+        final var buffer = ByteBuffer.wrap(bytes);
+        try {
+            if (buffer.getInt() != MAGIC) {
+                throw new IllegalArgumentException("Not a serialized action journal.");
+            }
+            final var version = buffer.get();
+            if (version != VERSION) {
+                throw new IllegalArgumentException("Unsupported action journal version: " + version);
+            }
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Truncated action journal.", e);
+        }
+        final var entries = Arrays.copyOfRange(bytes, HEADER_SIZE, bytes.length);
+        for (int i = 0; i < entries.length; ++i) {
+            if ((entries[i] & ~FAILED) >= CODES) {
+                throw new IllegalArgumentException("Corrupted action journal at action " + i + ".");
+            }
+        }
+        return new ActionJournal(entries);
+    }
+
+    /**
+     * Estimate the memory used by this journal.
+     *
+     * @return The estimated number of bytes.
+     */
+    long estimateMemoryUsage() {
+        return OBJECT_SIZE + MemoryEstimates.array(entries.length, Byte.BYTES);
+    }
+
+    private int entry(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        return entries[index] & 0xff;
+    }
+
+    private static int code(@NotNull Action action) {
+        return switch (action) {
+            case Move m -> {
+                final var id = m.getInitiator();
+                final var base = id >= 0 && id < PLAYERS ? id * DIRECTIONS : OTHER_PLAYER_MOVE;
+                yield base + m.getDirection();
+            }
+            case Undo ignored -> UNDO;
+            case Exit ignored -> EXIT;
+            case InvalidInput ignored -> INVALID_INPUT;
+        };
+    }
+}
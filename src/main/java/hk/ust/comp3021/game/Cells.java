@@ -0,0 +1,142 @@
+package hk.ust.comp3021.game;
+
+import hk.ust.comp3021.entities.*;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Byte encodings of the cells in a {@link GameMap}, and the shared entity instances they decode to.
+ * <p>
+ * Every cell is described by two bytes:
+ * <ul>
+ * <li>a terrain code, stored in the static {@link MapLayout}, telling whether the cell is outside the map,
+ * a floor or a wall, plus a flag for box destinations;</li>
+ * <li>an occupant code, stored in the mutable layer of the {@link GameMap}, telling which player or box
+ * currently stands on the cell.</li>
+ * </ul>
+ * <p>
+ * Since {@link Entity} instances are immutable, decoding never allocates:
+ * all cells holding the same kind of entity share one instance.
+ */
+final class Cells {
+
+    /**
+     * The maximum number of players (and thus box owners) in a map.
+     */
+    static final int MAX_PLAYERS = 26;
+
+    static final byte VOID = 0;
+    static final byte FLOOR = 1;
+    static final byte WALL = 2;
+    static final byte TERRAIN_MASK = 3;
+    static final byte DESTINATION = 4;
+
+    static final byte NONE = 0;
+    static final byte PLAYER = 0x20;
+    static final byte BOX = 0x40;
+    static final byte KIND_MASK = 0x60;
+    static final byte ID_MASK = 0x1f;
+
+    private static final Empty EMPTY_ENTITY = new Empty();
+    private static final Wall WALL_ENTITY = new Wall();
+    private static final Player[] PLAYER_ENTITIES = new Player[MAX_PLAYERS];
+    private static final Box[] BOX_ENTITIES = new Box[MAX_PLAYERS];
+
+    static {
+        for (int id = 0; id < MAX_PLAYERS; ++id) {
+            PLAYER_ENTITIES[id] = new Player(id);
+            BOX_ENTITIES[id] = new Box(id);
+        }
+    }
+
+    private Cells() {
+    }
+
+    /**
+     * @param terrain  The terrain code of the cell.
+     * @param occupant The occupant code of the cell.
+     * @return The shared entity instance for the cell, or null if the cell is outside the map.
+     */
+    static @Nullable Entity decode(byte terrain, byte occupant) {
+        return switch (occupant & KIND_MASK) {
+            case PLAYER -> PLAYER_ENTITIES[occupant & ID_MASK];
+            case BOX -> BOX_ENTITIES[occupant & ID_MASK];
+            default -> switch (terrain & TERRAIN_MASK) {
+                case FLOOR -> EMPTY_ENTITY;
+                case WALL -> WALL_ENTITY;
+                default -> null;
+            };
+        };
+    }
+
+    /**
+     * @param entity The entity.
+     * @return The occupant code for the entity, {@link #NONE} for walls and empty cells.
+     * @throws IllegalArgumentException if the entity belongs to a player id that cannot be encoded.
+     */
+    static byte occupantOf(@NotNull Entity entity) {
+        return switch (entity) {
+            case Player p -> player(p.getId());
+            case Box b -> box(b.getPlayerId());
+            case Wall ignored -> NONE;
+            case Empty ignored -> NONE;
+        };
+    }
+
+    /**
+     * @param id The player id.
+     * @return The occupant code of the player.
+     */
+    static byte player(int id) {
+        checkPlayerId(id);
+        return (byte) (PLAYER | id);
+    }
+
+    /**
+     * @param id The id of the player owning the box.
+     * @return The occupant code of the box.
+     */
+    static byte box(int id) {
+        checkPlayerId(id);
+        return (byte) (BOX | id);
+    }
+
+    static boolean isPlayer(byte occupant) {
+        return (occupant & KIND_MASK) == PLAYER;
+    }
+
+    static boolean isBox(byte occupant) {
+        return (occupant & KIND_MASK) == BOX;
+    }
+
+    static int idOf(byte occupant) {
+        return occupant & ID_MASK;
+    }
+
+    /**
+     * The Zobrist key of an occupant on a cell. The hash of a board is the XOR of the keys of all its occupants,
+     * so moving an occupant updates the hash with two XORs.
+     * <p>
+     * Keys are computed by mixing the cell index and the occupant code with the SplitMix64 finalizer
+     * instead of being looked up in a table of random numbers, so they take no memory whatever the size of the map.
+     *
+     * @param index    The cell index.
+     * @param occupant The occupant code.
+     * @return The key, 0 for {@link #NONE}.
+     */
+    static long zobristKey(int index, byte occupant) {
+        if (occupant == NONE) {
+            return 0;
+        }
+        long z = ((long) index << Byte.SIZE | (occupant & 0xff)) + 0x9e3779b97f4a7c15L;
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    private static void checkPlayerId(int id) {
+        if (id < 0 || id >= MAX_PLAYERS) {
+            throw new IllegalArgumentException("Player id out of range: " + id);
+        }
+    }
+}
@@ -5,6 +5,9 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.jetbrains.annotations.Unmodifiable;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
 import java.util.*;
 
 /**
@@ -16,60 +19,97 @@ import java.util.*;
  * <li>Initial locations of boxes and player</li>
  * <p/>
  * GameBoard is capable to create many GameState instances, each representing an ongoing game.
+ * <p>
+ * The board is stored as bytes rather than entity objects (see {@link Cells}).
+ * Walls and destinations live in a {@link MapLayout} shared by all copies of the map,
+ * while players and boxes are kept in a small per-map occupant layer,
+ * together with a bitset of the cells holding a box, one bit per cell.
+ * {@link #getEntity(Position)} returns shared entity instances, so the returned entities must not be compared by identity.
  */
 public class GameMap {
-    private int width;
-    private int height;
+    private static final int PARSE_BUFFER_SIZE = 8192;
+    private static final long OBJECT_SIZE = 40;
+
+    private MapLayout layout;
     private Optional<Integer> undoLimit;
-    private Set<Position> destinations;
-    private Entity[][] map;
-    private Map<Character, Position> playerPosition;
+    private byte[] occupants;
+    private long[] boxes;
+    private boolean occupantsShared;
+    private int[] playerCells;
     /**
      * Create a new GameMap with width, height, set of box destinations and undo limit.
      *
      * @param maxWidth     Width of the game map.
      * @param maxHeight    Height of the game map.
-     * @param destinations Set of box destination positions.
+     * @param destinations Set of box destination positions. Destinations outside the map are left out.
      * @param undoLimit    Undo limit.
      *                     Positive numbers specify the maximum number of undo actions.
      *                     0 means undo is not allowed.
      *                     -1 means unlimited. Other negative numbers are not allowed.
      */
     public GameMap(int maxWidth, int maxHeight, Set<Position> destinations, int undoLimit) {
-        // TODO
         if (undoLimit < -1) {
             throw new IllegalArgumentException();
         }
-        this.width = maxWidth;
-        this.height = maxHeight;
-        this.destinations = destinations;
+        this.layout = new MapLayout(maxWidth, maxHeight, destinations);
         if (undoLimit == -1) {
             this.undoLimit = Optional.empty();
-        } else if (undoLimit >= 0) {
-            this.undoLimit = Optional.of(undoLimit);
         } else {
-            throw new IllegalArgumentException();
+            this.undoLimit = Optional.of(undoLimit);
         }
-        this.map = new Entity[maxHeight][maxWidth];
-        //throw new NotImplementedException();
+        this.occupants = new byte[this.layout.size()];
+        this.boxes = new long[PositionSet.words(this.occupants.length)];
+        this.playerCells = new int[Cells.MAX_PLAYERS];
+        Arrays.fill(this.playerCells, -1);
     }
 
+    /**
+     * Create a game map from its layers, taking ownership of the arrays.
+     *
+     * @param layout      The static layer.
+     * @param undoLimit   Undo limit, -1 for unlimited.
+     * @param occupants   The occupant codes of all cells.
+     * @param playerCells The cell index of every player id, -1 if absent.
+     */
+    GameMap(@NotNull MapLayout layout, int undoLimit, byte @NotNull [] occupants, int @NotNull [] playerCells) {
+        this.layout = layout;
+        this.undoLimit = undoLimit == -1 ? Optional.empty() : Optional.of(undoLimit);
+        this.occupants = occupants;
+        this.boxes = new long[PositionSet.words(occupants.length)];
+        for (int index = 0; index < occupants.length; ++index) {
+            if (Cells.isBox(occupants[index])) {
+                this.boxes[index >>> 6] |= 1L << index;
+            }
+        }
+        this.playerCells = playerCells;
+    }
+
+    /**
+     * Create a copy of a game map in constant time.
+     * The walls and destinations are shared with the original map for good.
+     * The boxes and players are shared too, until either map is modified and takes its own copy of them.
+     *
+     * @param gm The game map to copy.
+     */
     public GameMap(GameMap gm) {
-        this.width = gm.width;
-        this.height = gm.height;
+        this.layout = gm.layout.freeze();
         this.undoLimit = gm.undoLimit;
-        this.destinations = new HashSet<Position>(gm.destinations);
-        this.playerPosition = new HashMap<Character, Position>();
-        //this.playerPosition = new HashMap<Character, Position>(gm.playerPosition);
-        for (var entry : gm.playerPosition.keySet()) {
-            this.playerPosition.put(entry, new Position(gm.playerPosition.get(entry).x(), gm.playerPosition.get(entry).y()));
-        }
-        this.map = new Entity[this.height][this.width];
-        for (int i = 0; i < this.height; ++i) {
-            for (int j = 0; j < this.width; ++j) {
-                this.putEntity(new Position(j, i), gm.getEntity(new Position(j, i)));
-            }
+        this.occupants = gm.occupants;
+        this.boxes = gm.boxes;
+        this.occupantsShared = true;
+        if (!gm.occupantsShared) {
+            gm.occupantsShared = true;
         }
+        this.playerCells = gm.playerCells.clone();
+    }
+
+    /**
+     * Mark the layers of this map as shared, as if it had been copied,
+     * so that copying it afterwards only reads it and can be done by several threads at once.
+     */
+    void share() {
+        this.layout.freeze();
+        this.occupantsShared = true;
     }
 
     /**
@@ -108,102 +148,128 @@ public class GameMap {
      *                                  or if there are players that have no corresponding boxes.
      */
     public static GameMap parse(String mapText) {
-        // TODO
-        ArrayList<String> list = new ArrayList<String>(Arrays.asList(mapText.split("\\r?\\n")));
-        int undoLimit = Integer.parseInt(list.get(0));
-        if (undoLimit < -1) {
-            throw new IllegalArgumentException();
-        }
-        boolean illegal = false;
-
-        list.remove(0);
-        int height = list.size();
-        int width = list.get(0).length();
-        for (var entry : list) {
-            if (entry.length() > width) {
-                width = entry.length();
-            }
-        }
-        ArrayList<Position> destinationList = new ArrayList<Position>();
-
-        for (int i = 0; i < height; ++i) {
-            for (int j = 0; j < list.get(i).length(); ++j) {
-                char temp = list.get(i).charAt(j);
-                if (temp == '@') {
-                    destinationList.add(new Position(j, i));
-                }
-            }
-        }
-        var result = new GameMap(width, height, new HashSet<Position>(destinationList), undoLimit);
-        Map<Character, Position> playerPosition = new HashMap<Character, Position>();
-        Set<Character> boxType = new HashSet<Character>();
-        int boxCount = 0;
-
-        for (int i = 0; i < height; ++i) {
-            for (int j = 0; j < list.get(i).length(); ++j) {
-                char temp = list.get(i).charAt(j);
-                if (Character.isAlphabetic(temp)) {
-                    if (Character.isUpperCase(temp)) {
-                        if (playerPosition.containsKey(temp)) {
-                            illegal = true;
-                            break;
-                        }
-                        playerPosition.put(temp, new Position(j, i));
-                        result.putEntity(new Position(j, i), new Player(temp - 'A'));
-                    } else {
-                        boxCount++;
-                        boxType.add(temp);
-                        result.putEntity(new Position(j, i), new Box(temp - 'a'));
-                    }
-                } else {
-                    switch (temp) {
-                        case '#':
-                            result.putEntity(new Position(j, i), new Wall());
-                            break;
-                        case '@':
-                        case '.':
-                            result.putEntity(new Position(j, i), new Empty());
-                            break;
-                        default:
-                            break;
-                    }
-                }
-            }
-        }
-
-
-
-        if (playerPosition.isEmpty() || boxCount != destinationList.size() || boxType.size() != playerPosition.size()) {
-            illegal = true;
+        final var parser = new GameMapParser();
+        for (int i = 0; i < mapText.length(); ++i) {
+            parser.accept(mapText.charAt(i));
         }
+        return parser.finish();
+    }
 
-        if (boxType.size() == playerPosition.size()) {
-            for (var entry : boxType) {
-                if (!playerPosition.containsKey(Character.toUpperCase(entry))) {
-                    illegal = true;
-                    break;
-                }
+    /**
+     * Parses the map from a character stream in a single pass, without reading the whole text into memory.
+     * The format and the validation are the same as {@link #parse(String)}.
+     * The reader is not closed.
+     *
+     * @param reader The reader of the string representation.
+     * @return The parsed GameMap object.
+     * @throws IOException              if the reader fails.
+     * @throws IllegalArgumentException if the map is invalid, with the line and column of the problem when known.
+     */
+    public static GameMap parse(@NotNull Reader reader) throws IOException {
+        final var parser = new GameMapParser();
+        final var buffer = new char[PARSE_BUFFER_SIZE];
+        for (int count = reader.read(buffer); count >= 0; count = reader.read(buffer)) {
+            for (int i = 0; i < count; ++i) {
+                parser.accept(buffer[i]);
             }
         }
+        return parser.finish();
+    }
 
-        if (illegal) {
-            throw new IllegalArgumentException();
+    /**
+     * Parses the map from bytes, such as a memory-mapped map file, treating every byte as one character.
+     * The format and the validation are the same as {@link #parse(String)}.
+     * The remaining bytes of the buffer are consumed.
+     *
+     * @param buffer The buffer holding the string representation.
+     * @return The parsed GameMap object.
+     * @throws IllegalArgumentException if the map is invalid, with the line and column of the problem when known.
+     */
+    public static GameMap parse(@NotNull ByteBuffer buffer) {
+        final var parser = new GameMapParser();
+        while (buffer.hasRemaining()) {
+            parser.accept((char) (buffer.get() & 0xff));
         }
-
-        result.playerPosition = playerPosition;
-        return result;
+        return parser.finish();
     }
 
     /**
      * Get the entity object at the given position.
      *
      * @param position the position of the entity in the game map.
-     * @return Entity object.
+     * @return Entity object, or null if the position is outside the map.
      */
     @Nullable
     public Entity getEntity(Position position) {
-        // TODO
-        return this.map[position.y()][position.x()];
+        if (!this.layout.contains(position.x(), position.y())) {
+            return null;
+        }
+        final var index = this.layout.index(position.x(), position.y());
+        return Cells.decode(this.layout.terrain(index), this.occupants[index]);
+    }
+
+    /**
+     * Get the index of the cell at the given coordinates.
+     * Cells are numbered row by row from 0, so the cell at (x, y) has index {@code y * getMaxWidth() + x}.
+     * The index methods do the same as those taking a {@link Position} without creating any object.
+     *
+     * @param x The horizontal displacement.
+     * @param y The vertical displacement.
+     * @return The cell index, or -1 if the coordinates are outside the map.
+     */
+    public int idx(int x, int y) {
+        return this.layout.contains(x, y) ? this.layout.index(x, y) : -1;
+    }
+
+    /**
+     * @return The number of cells in the map. Cell indices range from 0 to this number exclusive.
+     */
+    public int getCellCount() {
+        return this.layout.size();
+    }
+
+    /**
+     * Get the entity object in the given cell.
+     *
+     * @param idx The cell index, see {@link #idx(int, int)}.
+     * @return Entity object, or null if the index is outside the map.
+     */
+    public @Nullable Entity getCell(int idx) {
+        if (idx < 0 || idx >= this.occupants.length) {
+            return null;
+        }
+        return Cells.decode(this.layout.terrain(idx), this.occupants[idx]);
+    }
+
+    /**
+     * @param idx       The cell index, see {@link #idx(int, int)}.
+     * @param direction A direction, see {@link hk.ust.comp3021.actions.Move#getDirection()}.
+     * @return The index of the neighbouring cell in the direction, or -1 if either cell is outside the map.
+     * @throws IllegalArgumentException if the direction is invalid.
+     */
+    public int neighbor(int idx, int direction) {
+        return this.layout.neighbor(idx, direction);
+    }
+
+    /**
+     * Get the offset from a cell index to the index of its neighbour in a direction.
+     * Unlike {@link #neighbor(int, int)}, adding the offset does not check whether the neighbour is in the map.
+     *
+     * @param direction A direction, see {@link hk.ust.comp3021.actions.Move#getDirection()}.
+     * @return The offset, such as {@code -getMaxWidth()} for up and 1 for right.
+     * @throws IllegalArgumentException if the direction is invalid.
+     */
+    public int getDirectionOffset(int direction) {
+        return this.layout.offset(direction);
+    }
+
+    /**
+     * @param idx The cell index, see {@link #idx(int, int)}.
+     * @return The position of the cell.
+     * @throws IndexOutOfBoundsException if the index is outside the map.
+     */
+    public @NotNull Position getPosition(int idx) {
+        return this.positionOf(Objects.checkIndex(idx, this.occupants.length));
     }
 
     /**
@@ -213,48 +279,54 @@ public class GameMap {
      * @param entity   the entity to put into game map.
      */
     public void putEntity(Position position, Entity entity) {
-        // TODO
         if (entity == null) {
             return;
         }
-        int x = position.x();
-        int y = position.y();
-        switch (entity) {
-            case Box b -> {
-                this.map[y][x] = new Box(b.getPlayerId());
-            }
-            case Empty ignored -> {
-                this.map[y][x] = new Empty();
-            }
-            case Player p -> {
-                this.map[y][x] = new Player(p.getId());
-            }
-            case Wall ignored -> {
-                this.map[y][x] = new Wall();
-            }
+        if (!this.layout.contains(position.x(), position.y())) {
+            throw new IndexOutOfBoundsException("Position outside the map: " + position);
+        }
+        final var index = this.layout.index(position.x(), position.y());
+        if (entity instanceof Wall) {
+            this.writableLayout().setTerrain(index, Cells.WALL);
+        } else {
+            this.ensureFloor(index);
         }
+        this.place(index, Cells.occupantOf(entity));
     }
 
     /**
      * Get all box destination positions as a set in the game map.
+     * The set is a view of a bitset shared by all copies of the map, so membership takes constant time.
      *
      * @return a set of positions.
      */
     public @NotNull @Unmodifiable Set<Position> getDestinations() {
-        // TODO
-        return this.destinations;
+        return this.layout.destinations();
     }
 
-    public @NotNull Set<Position> getBoxPositions() {
-        Set<Position> result = new HashSet<Position>();
-        for (int y = 0; y < getMaxHeight(); ++y) {
-            for (int x = 0; x < map[y].length; ++x) {
-                if (getEntity(new Position(x, y)) instanceof Box) {
-                    result.add(new Position(x, y));
-                }
-            }
-        }
-        return result;
+    /**
+     * Check whether a box at the given position can never be pushed to any box destination,
+     * even if no other box or player were in the way, e.g. in a corner or along a wall without destinations.
+     * <p>
+     * The dead squares are computed once, on first use, and shared by all copies of the map
+     * and all game states created from them.
+     *
+     * @param position the position in the game map.
+     * @return true if the position is a dead square, false for walls, destinations and positions outside the map.
+     */
+    public boolean isDeadSquare(@NotNull Position position) {
+        return this.layout.contains(position.x(), position.y())
+            && this.layout.isDeadSquare(this.layout.index(position.x(), position.y()));
+    }
+
+    /**
+     * Get the positions of all boxes currently in the game map.
+     * The set is a snapshot of the box bitset, taken by copying one word per 64 cells.
+     *
+     * @return a read-only set of positions.
+     */
+    public @NotNull @Unmodifiable Set<Position> getBoxPositions() {
+        return new PositionSet(this.boxes.clone(), this.layout.width(), this.layout.height());
     }
 
     /**
@@ -273,10 +345,11 @@ public class GameMap {
      * @return a set of player id.
      */
     public Set<Integer> getPlayerIds() {
-        // TODO
         var result = new HashSet<Integer>();
-        for (var entry : this.playerPosition.keySet()) {
-            result.add(entry - 'A');
+        for (int id = 0; id < this.playerCells.length; ++id) {
+            if (this.playerCells[id] >= 0) {
+                result.add(id);
+            }
         }
         return result;
     }
@@ -287,8 +360,7 @@ public class GameMap {
      * @return maximum width.
      */
     public int getMaxWidth() {
-        // TODO
-        return this.width;
+        return this.layout.width();
     }
 
     /**
@@ -297,11 +369,128 @@ public class GameMap {
      * @return maximum height.
      */
     public int getMaxHeight() {
-        // TODO
-        return this.height;
+        return this.layout.height();
     }
 
+    /**
+     * Get the positions of all players, keyed by the upper-case letter of the player.
+     *
+     * @return a snapshot of the player positions.
+     */
     public Map<Character, Position> getPlayerPosition() {
-        return this.playerPosition;
+        final var result = new HashMap<Character, Position>();
+        for (int id = 0; id < this.playerCells.length; ++id) {
+            if (this.playerCells[id] >= 0) {
+                result.put((char) ('A' + id), this.positionOf(this.playerCells[id]));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Estimate the memory used by this map alone, leaving out the layers it shares with other maps.
+     *
+     * @return The estimated number of bytes.
+     */
+    long estimateMemoryUsage() {
+        return OBJECT_SIZE
+            + (this.layout.isFrozen() ? 0 : this.layout.estimateMemoryUsage())
+            + (this.occupantsShared ? 0 : MemoryEstimates.array(this.occupants.length, Byte.BYTES)
+                + MemoryEstimates.array(this.boxes.length, Long.BYTES))
+            + MemoryEstimates.array(this.playerCells.length, Integer.BYTES);
+    }
+
+    @NotNull MapLayout layout() {
+        return this.layout;
+    }
+
+    byte occupant(int index) {
+        return this.occupants[index];
+    }
+
+    /**
+     * @return The cells holding a box as a bitset. It must not be modified and changes as the boxes move.
+     */
+    long @NotNull [] boxBits() {
+        return this.boxes;
+    }
+
+    /**
+     * @param id The player id.
+     * @return The cell index of the player, or -1 if there is no such player.
+     */
+    int playerCell(int id) {
+        return id >= 0 && id < this.playerCells.length ? this.playerCells[id] : -1;
+    }
+
+    @NotNull Position positionOf(int index) {
+        return this.layout.position(index);
+    }
+
+    /**
+     * Move whatever is at one cell to another cell, leaving an empty cell behind.
+     * Moving a player or a box only touches the occupant layer and never allocates.
+     *
+     * @param from The cell index to move from.
+     * @param to   The cell index to move to.
+     */
+    void moveEntity(int from, int to) {
+        final var occupant = this.occupants[from];
+        if (occupant == Cells.NONE) {
+            // Moving walls or empty cells is only possible through the public API and is rare.
+            this.putEntity(this.positionOf(to), Cells.decode(this.layout.terrain(from), occupant));
+            this.putEntity(this.positionOf(from), new Empty());
+            return;
+        }
+        this.ensureFloor(to);
+        this.place(to, occupant);
+        this.place(from, Cells.NONE);
+    }
+
+    /**
+     * Replace the occupant of a cell, which must be inside the map.
+     *
+     * @param index    The cell index.
+     * @param occupant The new occupant code.
+     */
+    void setOccupant(int index, byte occupant) {
+        if (occupant != Cells.NONE) {
+            this.ensureFloor(index);
+        }
+        this.place(index, occupant);
+    }
+
+    private void place(int index, byte occupant) {
+        if (this.occupantsShared) {
+            this.occupants = this.occupants.clone();
+            this.boxes = this.boxes.clone();
+            this.occupantsShared = false;
+        }
+        final var previous = this.occupants[index];
+        if (Cells.isPlayer(previous) && this.playerCells[Cells.idOf(previous)] == index) {
+            this.playerCells[Cells.idOf(previous)] = -1;
+        }
+        this.occupants[index] = occupant;
+        if (Cells.isPlayer(occupant)) {
+            this.playerCells[Cells.idOf(occupant)] = index;
+        }
+        if (Cells.isBox(occupant)) {
+            this.boxes[index >>> 6] |= 1L << index;
+        } else {
+            this.boxes[index >>> 6] &= ~(1L << index);
+        }
+    }
+
+    private void ensureFloor(int index) {
+        if ((this.layout.terrain(index) & Cells.TERRAIN_MASK) != Cells.FLOOR) {
+            this.writableLayout().setTerrain(index, Cells.FLOOR);
+        }
+    }
+
+    private @NotNull MapLayout writableLayout() {
+        if (this.layout.isFrozen()) {
+            this.layout = this.layout.copy();
+        }
+        return this.layout;
     }
 }
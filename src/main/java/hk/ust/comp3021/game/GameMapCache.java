@@ -0,0 +1,184 @@
+package hk.ust.comp3021.game;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * A cache of parsed game maps, bounded by a number of maps and an estimated number of bytes,
+ * which evicts the least recently used maps first.
+ * <p>
+ * Maps are handed out as constant-time copies of the cached map (see {@link GameMap#GameMap(GameMap)}),
+ * so modifying a map taken from the cache does not affect the cache.
+ * When several threads miss the same key at once, only the first one loads the map and the others wait for it.
+ * A failed load is not cached.
+ * <p>
+ * A cache is thread-safe.
+ */
+public final class GameMapCache {
+
+    /**
+     * Loads a map on a cache miss.
+     */
+    @FunctionalInterface
+    public interface Loader {
+        /**
+         * @return The loaded map.
+         * @throws IOException if the map cannot be read.
+         */
+        @NotNull GameMap load() throws IOException;
+    }
+
+    private final int maxEntries;
+    private final long maxBytes;
+    private final LinkedHashMap<Object, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long bytes;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    /**
+     * @param maxEntries The maximum number of cached maps.
+     * @param maxBytes   The maximum estimated memory of the cached maps.
+     *                   The latest map is kept even if it alone exceeds the budget.
+     */
+    public GameMapCache(int maxEntries, long maxBytes) {
+        if (maxEntries <= 0 || maxBytes <= 0) {
+            throw new IllegalArgumentException("The maximum number of maps and of bytes must be positive.");
+        }
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Get a map from the cache, loading it on a miss.
+     *
+     * @param key    The key of the map. Keys are compared with {@link Object#equals(Object)},
+     *               so a key should also identify the version of the map, such as the modification time of its file.
+     * @param loader Loads the map if it is not cached.
+     * @return A copy of the cached map.
+     * @throws IOException if the loader fails to read the map.
+     */
+    public @NotNull GameMap get(@NotNull Object key, @NotNull Loader loader) throws IOException {
+        final Entry entry;
+        final boolean loading;
+        synchronized (this) {
+            final var cached = entries.get(key);
+            if (cached != null) {
+                hits++;
+                entry = cached;
+                loading = false;
+            } else {
+                misses++;
+                entry = new Entry();
+                entries.put(key, entry);
+                loading = true;
+            }
+        }
+        if (loading) {
+            return new GameMap(load(key, entry, loader));
+        }
+        try {
+            return new GameMap(entry.map.join());
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof IOException io) {
+                throw new IOException(io.getMessage(), io);
+            }
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw e;
+        }
+    }
+
+    private @NotNull GameMap load(@NotNull Object key, @NotNull Entry entry, @NotNull Loader loader) throws IOException {
+        final GameMap map;
+        try {
+            map = loader.load();
+        } catch (IOException | RuntimeException e) {
+            synchronized (this) {
+                entries.remove(key, entry);
+            }
+            entry.map.completeExceptionally(e);
+            throw e;
+        }
+        final var size = map.estimateMemoryUsage();
+        map.share();
+        synchronized (this) {
+            if (entries.get(key) == entry) {
+                entry.bytes = size;
+                bytes += size;
+                evict(entry);
+            }
+        }
+        entry.map.complete(map);
+        return map;
+    }
+
+    private void evict(@NotNull Entry latest) {
+        final var iterator = entries.values().iterator();
+        while ((entries.size() > maxEntries || bytes > maxBytes) && iterator.hasNext()) {
+            final var eldest = iterator.next();
+            if (eldest == latest) {
+                continue;
+            }
+            iterator.remove();
+            bytes -= eldest.bytes;
+            evictions++;
+        }
+    }
+
+    /**
+     * Remove every map from the cache. The statistics are kept.
+     */
+    public synchronized void clear() {
+        entries.clear();
+        bytes = 0;
+    }
+
+    /**
+     * @return The number of cached maps, including those being loaded.
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return The estimated memory of the cached maps in bytes.
+     */
+    public synchronized long getEstimatedBytes() {
+        return bytes;
+    }
+
+    /**
+     * @return The number of requests served from the cache, including those waiting for another thread to load the map.
+     */
+    public synchronized long getHitCount() {
+        return hits;
+    }
+
+    /**
+     * @return The number of requests which loaded a map.
+     */
+    public synchronized long getMissCount() {
+        return misses;
+    }
+
+    /**
+     * @return The number of maps evicted to stay within the budget.
+     */
+    public synchronized long getEvictionCount() {
+        return evictions;
+    }
+
+    /**
+     * A cached map, or a map being loaded by another thread.
+     */
+    private static final class Entry {
+        private final CompletableFuture<GameMap> map = new CompletableFuture<>();
+        private long bytes;
+    }
+}
@@ -0,0 +1,221 @@
+package hk.ust.comp3021.game;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * A compact, versioned binary encoding of {@link GameMap}, used to cache parsed maps.
+ * <p>
+ * An encoded map consists of
+ * <ul>
+ * <li>the magic bytes "SKMB" and a one-byte format version;</li>
+ * <li>the width, the height and the undo limit (-1 for unlimited) as variable-length integers;</li>
+ * <li>a palette of the distinct cells in the map, each as a terrain byte and an occupant byte (see {@link Cells});</li>
+ * <li>the cells row by row, each as its index in the palette, packed into as few bits as the palette needs.</li>
+ * </ul>
+ * <p>
+ * A map usually has fewer than 8 distinct cells, so it takes 3 bits per cell instead of a character per cell.
+ * Decoding copies the cells straight into the layers of the map and needs no validation of the game rules,
+ * since only maps that passed {@link GameMap#parse(String)} are expected to be encoded.
+ */
+public final class GameMapCodec {
+
+    /**
+     * The current version of the encoding.
+     */
+    public static final int VERSION = 1;
+
+    private static final int MAGIC = 0x534b4d42;
+    private static final int HEADER_SIZE = 4 + 1 + 4 * 5;
+    private static final int OCCUPANT_BITS = 7;
+    private static final int OCCUPANT_MASK = (1 << OCCUPANT_BITS) - 1;
+    private static final int MAX_PALETTE_SIZE = 1 << (3 + OCCUPANT_BITS);
+
+    private GameMapCodec() {
+    }
+
+    /**
+     * Encode a game map.
+     *
+     * @param gameMap The game map.
+     * @return The encoded map.
+     */
+    public static byte @NotNull [] encode(@NotNull GameMap gameMap) {
+        final var layout = gameMap.layout();
+        final var cells = layout.size();
+
+        final var paletteIndices = new short[MAX_PALETTE_SIZE];
+        Arrays.fill(paletteIndices, (short) -1);
+        final var palette = new short[MAX_PALETTE_SIZE];
+        int paletteSize = 0;
+        for (int index = 0; index < cells; ++index) {
+            final var cell = cell(layout.terrain(index), gameMap.occupant(index));
+            if (paletteIndices[cell] < 0) {
+                paletteIndices[cell] = (short) paletteSize;
+                palette[paletteSize++] = (short) cell;
+            }
+        }
+        final var bits = bitsFor(paletteSize);
+
+        final var undoLimit = gameMap.getUndoLimit().orElse(-1);
+        final var buffer = ByteBuffer.allocate(Math.toIntExact(
+            HEADER_SIZE + 2L * paletteSize + ((long) cells * bits + Byte.SIZE - 1) / Byte.SIZE));
+        buffer.putInt(MAGIC).put((byte) VERSION);
+        putVarInt(buffer, layout.width());
+        putVarInt(buffer, layout.height());
+        putVarInt(buffer, undoLimit + 1);
+        putVarInt(buffer, paletteSize);
+        for (int i = 0; i < paletteSize; ++i) {
+            buffer.put((byte) (palette[i] >>> OCCUPANT_BITS));
+            buffer.put((byte) (palette[i] & OCCUPANT_MASK));
+        }
+        long pending = 0;
+        int pendingBits = 0;
+        for (int index = 0; index < cells; ++index) {
+            pending |= (long) paletteIndices[cell(layout.terrain(index), gameMap.occupant(index))] << pendingBits;
+            pendingBits += bits;
+            while (pendingBits >= Byte.SIZE) {
+                buffer.put((byte) pending);
+                pending >>>= Byte.SIZE;
+                pendingBits -= Byte.SIZE;
+            }
+        }
+        if (pendingBits > 0) {
+            buffer.put((byte) pending);
+        }
+        return Arrays.copyOf(buffer.array(), buffer.position());
+    }
+
+    /**
+     * Decode a game map.
+     *
+     * @param encoded The encoded map.
+     * @return The decoded game map.
+     * @throws IllegalArgumentException if the bytes are not an encoded map of a supported version.
+     */
+    public static @NotNull GameMap decode(byte @NotNull [] encoded) {
+        return decode(ByteBuffer.wrap(encoded));
+    }
+
+    /**
+     * Decode a game map, consuming the encoded bytes from the buffer.
+     *
+     * @param buffer The buffer holding the encoded map.
+     * @return The decoded game map.
+     * @throws IllegalArgumentException if the bytes are not an encoded map of a supported version.
+     */
+    public static @NotNull GameMap decode(@NotNull ByteBuffer buffer) {
+        try {
+            if (buffer.getInt() != MAGIC) {
+                throw new IllegalArgumentException("Not an encoded game map.");
+            }
+            final var version = buffer.get();
+            if (version != VERSION) {
+                throw new IllegalArgumentException("Unsupported game map encoding version: " + version);
+            }
+            final var width = getVarInt(buffer);
+            final var height = getVarInt(buffer);
+            final var undoLimit = getVarInt(buffer) - 1;
+            if (width < 0 || height < 0 || (long) width * height > MapLayout.MAX_CELLS || undoLimit < -1) {
+                throw new IllegalArgumentException("Corrupted game map header.");
+            }
+            final var paletteSize = getVarInt(buffer);
+            if (paletteSize < 0 || paletteSize > MAX_PALETTE_SIZE || (paletteSize == 0 && width * height > 0)) {
+                throw new IllegalArgumentException("Corrupted game map palette.");
+            }
+            final var paletteTerrain = new byte[paletteSize];
+            final var paletteOccupants = new byte[paletteSize];
+            final var paletteSpecial = new boolean[paletteSize];
+            for (int i = 0; i < paletteSize; ++i) {
+                paletteTerrain[i] = buffer.get();
+                paletteOccupants[i] = buffer.get();
+                checkCell(paletteTerrain[i], paletteOccupants[i]);
+                paletteSpecial[i] = (paletteTerrain[i] & Cells.DESTINATION) != 0 || Cells.isPlayer(paletteOccupants[i]);
+            }
+            final var bits = bitsFor(paletteSize);
+            final var mask = (1 << bits) - 1;
+
+            final var cells = width * height;
+            final var packed = new byte[(int) (((long) cells * bits + Byte.SIZE - 1) / Byte.SIZE)];
+            buffer.get(packed);
+            final var terrain = new byte[cells];
+            final var occupants = new byte[cells];
+            final var playerCells = new int[Cells.MAX_PLAYERS];
+            Arrays.fill(playerCells, -1);
+            long pending = 0;
+            int pendingBits = 0;
+            int next = 0;
+            for (int index = 0; index < cells; ++index) {
+                while (pendingBits < bits) {
+                    pending |= (long) (packed[next++] & 0xff) << pendingBits;
+                    pendingBits += Byte.SIZE;
+                }
+                final var symbol = (int) pending & mask;
+                pending >>>= bits;
+                pendingBits -= bits;
+                if (symbol >= paletteSize) {
+                    throw new IllegalArgumentException("Corrupted game map cells.");
+                }
+                terrain[index] = paletteTerrain[symbol];
+                occupants[index] = paletteOccupants[symbol];
+                if (!paletteSpecial[symbol]) {
+                    continue;
+                }
+                final var occupant = occupants[index];
+                if (Cells.isPlayer(occupant)) {
+                    if (playerCells[Cells.idOf(occupant)] >= 0) {
+                        throw new IllegalArgumentException("Corrupted game map cells: duplicate player.");
+                    }
+                    playerCells[Cells.idOf(occupant)] = index;
+                }
+            }
+            final var layout = new MapLayout(width, height, terrain);
+            return new GameMap(layout.freeze(), undoLimit, occupants, playerCells);
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Truncated game map encoding.", e);
+        }
+    }
+
+    private static int cell(byte terrain, byte occupant) {
+        return (terrain << OCCUPANT_BITS) | occupant;
+    }
+
+    private static void checkCell(byte terrain, byte occupant) {
+        final var validTerrain = (terrain & ~(Cells.TERRAIN_MASK | Cells.DESTINATION)) == 0
+            && (terrain & Cells.TERRAIN_MASK) != Cells.TERRAIN_MASK;
+        final var validOccupant = occupant == Cells.NONE
+            || ((Cells.isPlayer(occupant) || Cells.isBox(occupant))
+            && (occupant & ~(Cells.KIND_MASK | Cells.ID_MASK)) == 0
+            && Cells.idOf(occupant) < Cells.MAX_PLAYERS);
+        if (!validTerrain || !validOccupant) {
+            throw new IllegalArgumentException("Corrupted game map palette.");
+        }
+    }
+
+    private static int bitsFor(int paletteSize) {
+        return 32 - Integer.numberOfLeadingZeros(Math.max(paletteSize - 1, 0));
+    }
+
+    private static void putVarInt(@NotNull ByteBuffer buffer, int value) {
+        while ((value & ~0x7f) != 0) {
+            buffer.put((byte) ((value & 0x7f) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    private static int getVarInt(@NotNull ByteBuffer buffer) {
+        int value = 0;
+        for (int shift = 0; shift < Integer.SIZE; shift += 7) {
+            final var b = buffer.get();
+            value |= (b & 0x7f) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Corrupted game map header.");
+    }
+}
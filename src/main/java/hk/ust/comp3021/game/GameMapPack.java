@@ -0,0 +1,180 @@
+package hk.ust.comp3021.game;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A file holding many game maps, each of which can be loaded by its index without reading the others.
+ * <p>
+ * A pack file consists of
+ * <ul>
+ * <li>a header: the magic bytes "SKPK", a format version and the number of maps, each as a 4-byte integer;</li>
+ * <li>an index of the byte offset where every map starts, plus the offset where the last map ends, each as an 8-byte integer;</li>
+ * <li>the text of the maps, in the format of {@link GameMap#parse(String)}, one after another.</li>
+ * </ul>
+ * <p>
+ * All integers are big-endian. The offsets take 8 bytes, but since the whole file is mapped as one buffer,
+ * a pack may be at most {@link #MAX_PACK_SIZE} bytes long.
+ * The file is memory-mapped when the pack is opened, so loading a map is a single seek followed by a parse,
+ * and a pack can be shared by any number of threads.
+ */
+public final class GameMapPack {
+
+    /**
+     * The current version of the pack format.
+     */
+    public static final int VERSION = 1;
+
+    /**
+     * The maximum size of a pack file in bytes, the largest buffer a file can be mapped to.
+     */
+    public static final long MAX_PACK_SIZE = Integer.MAX_VALUE;
+
+    private static final int MAGIC = 0x534b504b;
+    private static final int HEADER_SIZE = 12;
+
+    private final ByteBuffer content;
+    private final int size;
+
+    private GameMapPack(@NotNull ByteBuffer content) {
+        if (content.limit() < HEADER_SIZE || content.getInt(0) != MAGIC) {
+            throw new IllegalArgumentException("Not a map pack.");
+        }
+        if (content.getInt(4) != VERSION) {
+            throw new IllegalArgumentException("Unsupported map pack version: " + content.getInt(4));
+        }
+        this.size = content.getInt(8);
+        if (this.size < 0 || dataOffset(this.size) > content.limit()) {
+            throw new IllegalArgumentException("Corrupted map pack index.");
+        }
+        this.content = content;
+    }
+
+    /**
+     * Open a pack file.
+     *
+     * @param packFile The pack file.
+     * @return The opened pack.
+     * @throws IOException              if the file cannot be mapped.
+     * @throws IllegalArgumentException if the file is not a pack of a supported version,
+     *                                  or is larger than {@link #MAX_PACK_SIZE}.
+     */
+    public static @NotNull GameMapPack open(@NotNull Path packFile) throws IOException {
+        try (var channel = FileChannel.open(packFile, StandardOpenOption.READ)) {
+            if (channel.size() > MAX_PACK_SIZE) {
+                throw new IllegalArgumentException("Map pack larger than " + MAX_PACK_SIZE + " bytes: " + channel.size());
+            }
+            final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new GameMapPack(buffer);
+        }
+    }
+
+    /**
+     * @return The number of maps in the pack.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Load and parse one map of the pack. The other maps are not read.
+     *
+     * @param index The index of the map, starting from 0.
+     * @return The parsed game map.
+     * @throws IndexOutOfBoundsException if there is no map with the index.
+     * @throws IllegalArgumentException  if the map is invalid.
+     */
+    public @NotNull GameMap load(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("No map " + index + " in a pack of " + size + " maps.");
+        }
+        final var start = content.getLong(HEADER_SIZE + Long.BYTES * index);
+        final var end = content.getLong(HEADER_SIZE + Long.BYTES * (index + 1));
+        // The content is at most MAX_PACK_SIZE bytes long, so checking against its limit keeps both offsets in int range.
+        if (start < dataOffset(size) || end < start || end > content.limit()) {
+            throw new IllegalArgumentException("Corrupted map pack index at map " + index + ".");
+        }
+        return GameMap.parse(content.slice((int) start, (int) (end - start)));
+    }
+
+    /**
+     * Write the maps of a directory into a pack file.
+     * Every file whose name ends with ".map" is validated and added, in the order of the file names.
+     *
+     * @param directory The directory containing the map files.
+     * @param packFile  The pack file to create or overwrite.
+     * @return The file names of the packed maps, in the order of their indices in the pack.
+     * @throws IOException              if the files cannot be read or written.
+     * @throws IllegalArgumentException if any of the maps is invalid.
+     */
+    public static @NotNull List<String> pack(@NotNull Path directory, @NotNull Path packFile) throws IOException {
+        final List<Path> mapFiles;
+        try (var files = Files.list(directory)) {
+            mapFiles = files.filter(it -> it.getFileName().toString().endsWith(".map"))
+                .filter(Files::isRegularFile)
+                .sorted()
+                .toList();
+        }
+        final var maps = new ArrayList<byte[]>(mapFiles.size());
+        for (var mapFile : mapFiles) {
+            final var bytes = Files.readAllBytes(mapFile);
+            try {
+                GameMap.parse(ByteBuffer.wrap(bytes));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Invalid map " + mapFile + ": " + e.getMessage(), e);
+            }
+            maps.add(bytes);
+        }
+        write(maps, packFile);
+        return mapFiles.stream().map(it -> it.getFileName().toString()).toList();
+    }
+
+    /**
+     * Write maps into a pack file. The maps are not validated.
+     *
+     * @param maps     The text of every map, encoded as bytes.
+     * @param packFile The pack file to create or overwrite.
+     * @throws IOException              if the file cannot be written.
+     * @throws IllegalArgumentException if the pack would be larger than {@link #MAX_PACK_SIZE}.
+     */
+    public static void write(@NotNull List<byte[]> maps, @NotNull Path packFile) throws IOException {
+        final var header = ByteBuffer.allocate(Math.toIntExact(dataOffset(maps.size())));
+        header.putInt(MAGIC).putInt(VERSION).putInt(maps.size());
+        var offset = dataOffset(maps.size());
+        header.putLong(offset);
+        for (var map : maps) {
+            offset += map.length;
+            header.putLong(offset);
+        }
+        if (offset > MAX_PACK_SIZE) {
+            throw new IllegalArgumentException("Map pack larger than " + MAX_PACK_SIZE + " bytes: " + offset);
+        }
+        header.flip();
+        try (var channel = FileChannel.open(packFile,
+            StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            writeFully(channel, header);
+            for (var map : maps) {
+                writeFully(channel, ByteBuffer.wrap(map));
+            }
+        }
+    }
+
+    private static long dataOffset(int size) {
+        return HEADER_SIZE + (long) Long.BYTES * (size + 1);
+    }
+
+    private static void writeFully(@NotNull FileChannel channel, @NotNull ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+}
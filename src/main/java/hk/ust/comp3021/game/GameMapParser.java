@@ -0,0 +1,274 @@
+package hk.ust.comp3021.game;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+
+/**
+ * A single-pass parser for the text format described in {@link GameMap#parse(String)}.
+ * <p>
+ * Characters are fed one at a time with {@link #accept(char)}, so the parser works on any source
+ * without holding the text in memory. Cells are encoded into terrain and occupant bytes as they are read,
+ * and the only extra memory is the row buffers, which become the layers of the map when all rows have the same width.
+ * Validation errors report the line and column (both starting from 1) of the offending character.
+ */
+final class GameMapParser {
+    private static final int INITIAL_CAPACITY = 256;
+    private static final int MAX_UNDO_LIMIT_LENGTH = 11;
+
+    private int line = 1;
+    private int column;
+    private boolean pendingCarriageReturn;
+
+    private boolean readingUndoLimit = true;
+    private final StringBuilder undoLimitText = new StringBuilder();
+    private int undoLimit;
+
+    private byte[] terrain = new byte[INITIAL_CAPACITY];
+    private byte[] occupants = new byte[INITIAL_CAPACITY];
+    private int cellCount;
+    private int[] rowStarts = new int[INITIAL_CAPACITY];
+    private int rowCount;
+    private int pendingBlankRows;
+    private boolean rowOpen;
+    private int width;
+
+    private final int[] playerCells = new int[Cells.MAX_PLAYERS];
+    private final long[] playerLocations = new long[Cells.MAX_PLAYERS];
+    private final int[] boxCounts = new int[Cells.MAX_PLAYERS];
+    private final long[] boxLocations = new long[Cells.MAX_PLAYERS];
+    private int boxCount;
+    private int destinationCount;
+
+    GameMapParser() {
+        Arrays.fill(playerCells, -1);
+    }
+
+    /**
+     * Feed the next character of the map text.
+     *
+     * @param c The character.
+     * @throws IllegalArgumentException if the character makes the map invalid.
+     */
+    void accept(char c) {
+        if (pendingCarriageReturn) {
+            pendingCarriageReturn = false;
+            if (c == '\n') {
+                endLine();
+                return;
+            }
+            consume('\r');
+        }
+        if (c == '\r') {
+            pendingCarriageReturn = true;
+        } else if (c == '\n') {
+            endLine();
+        } else {
+            consume(c);
+        }
+    }
+
+    /**
+     * Finish parsing after the last character has been fed.
+     *
+     * @return The parsed game map.
+     * @throws IllegalArgumentException if the map is invalid.
+     */
+    @NotNull GameMap finish() {
+        if (pendingCarriageReturn) {
+            pendingCarriageReturn = false;
+            consume('\r');
+        }
+        if (readingUndoLimit) {
+            parseUndoLimit();
+        }
+        if (rowCount == 0) {
+            throw new IllegalArgumentException("The map has no rows.");
+        }
+        validate();
+
+        final var cells = Math.multiplyExact(width, rowCount);
+        final byte[] terrainLayer;
+        final byte[] occupantLayer;
+        if (cellCount == cells) {
+            terrainLayer = Arrays.copyOf(terrain, cells);
+            occupantLayer = Arrays.copyOf(occupants, cells);
+        } else {
+            terrainLayer = new byte[cells];
+            occupantLayer = new byte[cells];
+            for (int row = 0; row < rowCount; ++row) {
+                final var start = rowStarts[row];
+                final var end = row + 1 < rowCount ? rowStarts[row + 1] : cellCount;
+                System.arraycopy(terrain, start, terrainLayer, row * width, end - start);
+                System.arraycopy(occupants, start, occupantLayer, row * width, end - start);
+            }
+            for (int id = 0; id < Cells.MAX_PLAYERS; ++id) {
+                if (playerCells[id] >= 0) {
+                    playerCells[id] = row(playerLocations[id]) * width + column(playerLocations[id]);
+                }
+            }
+        }
+        final var layout = new MapLayout(width, rowCount, terrainLayer);
+        return new GameMap(layout.freeze(), undoLimit, occupantLayer, playerCells);
+    }
+
+    private void consume(char c) {
+        column++;
+        if (readingUndoLimit) {
+            if (undoLimitText.length() == MAX_UNDO_LIMIT_LENGTH) {
+                throw error("Invalid undo limit", "the number is too long");
+            }
+            undoLimitText.append(c);
+            return;
+        }
+        if (!rowOpen) {
+            while (pendingBlankRows > 0) {
+                openRow();
+                pendingBlankRows--;
+            }
+            openRow();
+        }
+        final var row = rowCount - 1;
+        final var x = column - 1;
+        byte cellTerrain = Cells.VOID;
+        byte cellOccupant = Cells.NONE;
+        if (Character.isAlphabetic(c)) {
+            cellTerrain = Cells.FLOOR;
+            if (Character.isUpperCase(c)) {
+                final var id = playerId(c, 'A');
+                if (playerCells[id] >= 0) {
+                    throw error("Duplicate player '" + c + "'", "first seen at " + location(playerLocations[id]));
+                }
+                playerCells[id] = cellCount;
+                playerLocations[id] = location(row, x);
+                cellOccupant = Cells.player(id);
+            } else {
+                final var id = playerId(c, 'a');
+                if (boxCounts[id]++ == 0) {
+                    boxLocations[id] = location(row, x);
+                }
+                boxCount++;
+                cellOccupant = Cells.box(id);
+            }
+        } else {
+            switch (c) {
+                case '#':
+                    cellTerrain = Cells.WALL;
+                    break;
+                case '@':
+                    cellTerrain = Cells.FLOOR | Cells.DESTINATION;
+                    destinationCount++;
+                    break;
+                case '.':
+                    cellTerrain = Cells.FLOOR;
+                    break;
+                default:
+                    break;
+            }
+        }
+        if (cellCount == terrain.length) {
+            final var capacity = Math.multiplyExact(terrain.length, 2);
+            terrain = Arrays.copyOf(terrain, capacity);
+            occupants = Arrays.copyOf(occupants, capacity);
+        }
+        terrain[cellCount] = cellTerrain;
+        occupants[cellCount] = cellOccupant;
+        cellCount++;
+        if (column > width) {
+            width = column;
+            checkSize();
+        }
+    }
+
+    private void endLine() {
+        if (readingUndoLimit) {
+            parseUndoLimit();
+        } else if (!rowOpen) {
+            pendingBlankRows++;
+        }
+        rowOpen = false;
+        line++;
+        column = 0;
+    }
+
+    private void openRow() {
+        if (rowCount == rowStarts.length) {
+            rowStarts = Arrays.copyOf(rowStarts, rowCount * 2);
+        }
+        rowStarts[rowCount++] = cellCount;
+        rowOpen = true;
+        checkSize();
+    }
+
+    private void checkSize() {
+        if ((long) rowCount * width > MapLayout.MAX_CELLS) {
+            throw error("The map is too large", "at most " + MapLayout.MAX_CELLS + " cells are supported");
+        }
+    }
+
+    private void parseUndoLimit() {
+        readingUndoLimit = false;
+        try {
+            undoLimit = Integer.parseInt(undoLimitText.toString());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid undo limit at line 1: \"" + undoLimitText + "\"", e);
+        }
+        if (undoLimit < -1) {
+            throw new IllegalArgumentException("Invalid undo limit at line 1: " + undoLimit);
+        }
+    }
+
+    private int playerId(char c, char first) {
+        final var id = c - first;
+        if (id < 0 || id >= Cells.MAX_PLAYERS) {
+            throw error("Invalid character '" + c + "'", "players and boxes must be ASCII letters");
+        }
+        return id;
+    }
+
+    private void validate() {
+        int players = 0;
+        for (int id = 0; id < Cells.MAX_PLAYERS; ++id) {
+            final var hasPlayer = playerCells[id] >= 0;
+            final var hasBoxes = boxCounts[id] > 0;
+            if (hasPlayer) {
+                players++;
+            }
+            if (hasPlayer && !hasBoxes) {
+                throw new IllegalArgumentException("Player '" + (char) ('A' + id) + "' at "
+                    + location(playerLocations[id]) + " has no boxes.");
+            }
+            if (hasBoxes && !hasPlayer) {
+                throw new IllegalArgumentException("Box '" + (char) ('a' + id) + "' at "
+                    + location(boxLocations[id]) + " has no matching player.");
+            }
+        }
+        if (players == 0) {
+            throw new IllegalArgumentException("There are no players in the map.");
+        }
+        if (boxCount != destinationCount) {
+            throw new IllegalArgumentException("The number of boxes (" + boxCount
+                + ") does not match the number of destinations (" + destinationCount + ").");
+        }
+    }
+
+    private @NotNull IllegalArgumentException error(@NotNull String problem, @NotNull String detail) {
+        return new IllegalArgumentException(problem + " at line " + line + ", column " + column + ": " + detail + ".");
+    }
+
+    private static long location(int row, int x) {
+        return ((long) row << 32) | x;
+    }
+
+    private static int row(long location) {
+        return (int) (location >>> 32);
+    }
+
+    private static int column(long location) {
+        return (int) location;
+    }
+
+    private static @NotNull String location(long location) {
+        return "line " + (row(location) + 2) + ", column " + (column(location) + 1);
+    }
+}
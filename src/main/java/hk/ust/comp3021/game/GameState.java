@@ -1,13 +1,11 @@
 package hk.ust.comp3021.game;
 
-import hk.ust.comp3021.entities.Box;
-import hk.ust.comp3021.entities.Empty;
 import hk.ust.comp3021.entities.Entity;
-import hk.ust.comp3021.entities.Player;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.jetbrains.annotations.Unmodifiable;
 
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Optional;
 import java.util.Set;
@@ -23,22 +21,39 @@ import java.util.Set;
  * <li>A move history.</li>
  * <li>Current location of player.</li>
  * <li>Undo quota left.</li>
+ * <p>
+ * All of these belong to the game state alone, so any number of games can run in one JVM.
+ * A game state is not thread-safe: it must only be used by the thread running its game.
  */
 public class GameState {
-    private GameMap map;
-    private static Optional<Integer> undoQuota;
-    private GameState checkpoint;
+    private static final long OBJECT_SIZE = 64;
+
+    private final GameMap map;
+    private Optional<Integer> undoQuota;
+    private final UndoJournal journal = new UndoJournal();
     private GameMap state;
+    private final int[] boxesOnDestinations = new int[Cells.MAX_PLAYERS];
+    private int totalBoxesOnDestinations;
+    private boolean hashKnown;
+    private long hash;
+    private boolean deadlockKnown;
+    private boolean deadlocked;
+    private int[] visiting = new int[0];
+    private int visitingSize;
+    private int[] frozen = new int[0];
+    private int frozenSize;
     /**
      * Create a running game state from a game map.
+     * The state shares the board of the game map and only copies the boxes and players on the first move,
+     * so creating a state takes constant time regardless of the map size.
      *
      * @param map the game map from which to create this game state.
      */
     public GameState(@NotNull GameMap map) {
-        // TODO
         this.map = map;
         this.undoQuota = map.getUndoLimit();
         this.state = new GameMap(map);
+        this.countBoxesOnDestinations();
     }
 
     /**
@@ -48,8 +63,8 @@ public class GameState {
      * @return the current position of the player.
      */
     public @Nullable Position getPlayerPositionById(int id) {
-        // TODO
-        return this.state.getPlayerPosition().get((char)('A'+id));
+        final var cell = this.state.playerCell(id);
+        return cell < 0 ? null : this.state.positionOf(cell);
     }
 
     /**
@@ -58,7 +73,6 @@ public class GameState {
      * @return a set of positions of all players.
      */
     public @NotNull Set<Position> getAllPlayerPositions() {
-        // TODO
         return new HashSet<Position>(this.state.getPlayerPosition().values());
     }
 
@@ -73,6 +87,64 @@ public class GameState {
         return this.state.getEntity(position);
     }
 
+    /**
+     * Get the index of the cell at the given coordinates, see {@link GameMap#idx(int, int)}.
+     *
+     * @param x the horizontal displacement.
+     * @param y the vertical displacement.
+     * @return the cell index, or -1 if the coordinates are outside the map.
+     */
+    public int idx(int x, int y) {
+        return this.state.idx(x, y);
+    }
+
+    /**
+     * Get the entity that is currently in the given cell.
+     *
+     * @param idx the cell index, see {@link #idx(int, int)}.
+     * @return the entity object, or null if the index is outside the map.
+     */
+    public @Nullable Entity getCell(int idx) {
+        return this.state.getCell(idx);
+    }
+
+    /**
+     * Get the cell the player with the given id currently stands on.
+     *
+     * @param id player id.
+     * @return the cell index of the player, or -1 if there is no such player.
+     */
+    public int getPlayerCell(int id) {
+        return this.state.playerCell(id);
+    }
+
+    /**
+     * @param idx       the cell index, see {@link #idx(int, int)}.
+     * @param direction a direction, see {@link hk.ust.comp3021.actions.Move#getDirection()}.
+     * @return the index of the neighbouring cell in the direction, or -1 if either cell is outside the map.
+     * @see GameMap#neighbor(int, int)
+     */
+    public int neighbor(int idx, int direction) {
+        return this.state.neighbor(idx, direction);
+    }
+
+    /**
+     * @param direction a direction, see {@link hk.ust.comp3021.actions.Move#getDirection()}.
+     * @return the offset from a cell index to the index of its neighbour in the direction.
+     * @see GameMap#getDirectionOffset(int)
+     */
+    public int getDirectionOffset(int direction) {
+        return this.state.getDirectionOffset(direction);
+    }
+
+    /**
+     * @param idx the cell index, see {@link #idx(int, int)}.
+     * @return the position of the cell.
+     */
+    public @NotNull Position getPosition(int idx) {
+        return this.state.getPosition(idx);
+    }
+
     /**
      * Get all box destination positions as a set in the game map.
      * This should be the same as that in {@link GameMap} class.
@@ -99,18 +171,161 @@ public class GameState {
     /**
      * Check whether the game wins or not.
      * The game wins only when all box destinations have been occupied by boxes.
+     * <p>
+     * The number of boxes on destinations is maintained as the boxes move, so this check takes constant time.
      *
      * @return true is the game wins.
      */
     public boolean isWin() {
-// TODO
-        for (var position : this.map.getDestinations()) {
-            if (!(this.state.getEntity(position) instanceof Box)) {
-                return false;
+        return this.totalBoxesOnDestinations == this.map.getDestinations().size();
+    }
+
+    /**
+     * Get the number of boxes currently placed on box destinations.
+     *
+     * @return the number of boxes on destinations.
+     */
+    public int getBoxesOnDestinations() {
+        return this.totalBoxesOnDestinations;
+    }
+
+    /**
+     * Get the number of boxes of a player currently placed on box destinations.
+     *
+     * @param playerId the id of the player owning the boxes.
+     * @return the number of boxes of the player on destinations, 0 if there is no such player.
+     */
+    public int getBoxesOnDestinations(int playerId) {
+        if (playerId < 0 || playerId >= this.boxesOnDestinations.length) {
+            return 0;
+        }
+        return this.boxesOnDestinations[playerId];
+    }
+
+    /**
+     * Check whether the game can no longer be won, because a box which is not on a destination can never reach one.
+     * This is the case when the box is
+     * <ul>
+     * <li>on a dead square (see {@link GameMap#isDeadSquare(Position)}), or</li>
+     * <li>frozen: blocked both horizontally and vertically by walls, dead squares and other frozen boxes.</li>
+     * </ul>
+     * <p>
+     * The whole map is only checked on the first call and after undoing.
+     * Afterwards the check is kept up to date on every push by only looking around the pushed box.
+     *
+     * @return true if the game is deadlocked.
+     */
+    public boolean isDeadlocked() {
+        if (!this.deadlockKnown) {
+            this.deadlocked = this.findDeadlock();
+            this.deadlockKnown = true;
+        }
+        return this.deadlocked;
+    }
+
+    /**
+     * Get the Zobrist hash of the current positions of all players and boxes.
+     * States with the same players and boxes at the same positions have the same hash,
+     * and different states have different hashes with high probability.
+     * <p>
+     * The whole map is only hashed on the first call and after undoing to the initial state.
+     * Afterwards the hash is updated on every move and undo, so this method takes constant time.
+     *
+     * @return the hash of the current state.
+     */
+    public long getZobristHash() {
+        if (!this.hashKnown) {
+            long result = 0;
+            final var size = this.state.layout().size();
+            for (int index = 0; index < size; ++index) {
+                result ^= Cells.zobristKey(index, this.state.occupant(index));
+            }
+            this.hash = result;
+            this.hashKnown = true;
+        }
+        return this.hash;
+    }
+
+    /**
+     * Get the canonical key of the current state, which leaves out where exactly a single player stands
+     * within the area they can walk to. See {@link StateKey}.
+     *
+     * @return the key of the current state.
+     */
+    public @NotNull StateKey getStateKey() {
+        final var size = this.state.layout().size();
+        final var boxes = this.state.boxBits().clone();
+        final var owners = new byte[PositionSet.count(boxes)];
+        int boxCount = 0;
+        for (int index = PositionSet.nextSetBit(boxes, 0); index >= 0; index = PositionSet.nextSetBit(boxes, index + 1)) {
+            owners[boxCount++] = (byte) Cells.idOf(this.state.occupant(index));
+        }
+        final var players = new int[Cells.MAX_PLAYERS];
+        int playerCount = 0;
+        for (int id = 0; id < players.length; ++id) {
+            players[id] = this.state.playerCell(id);
+            if (players[id] >= 0) {
+                playerCount++;
+            }
+        }
+        // Players block each other, so with more than one player only the exact cells tell states apart.
+        if (playerCount == 1) {
+            for (int id = 0; id < players.length; ++id) {
+                if (players[id] >= 0) {
+                    players[id] = this.topLeftReachable(players[id], new long[boxes.length], new int[size]);
+                }
+            }
+        }
+        return new StateKey(boxes, owners, players);
+    }
+
+    /**
+     * Take an immutable copy of the current positions of all players and boxes,
+     * to branch from without checkpoints, e.g. in a search or a preview. See {@link PersistentGameState}.
+     *
+     * @return the persistent state.
+     */
+    public @NotNull PersistentGameState snapshot() {
+        return new PersistentGameState(this.state);
+    }
+
+    /**
+     * Find the top-left cell a player can walk to from a cell, around walls and boxes.
+     *
+     * @param visited A bitset of cells, cleared again before returning.
+     * @param queue   Room for the index of every cell.
+     */
+    private int topLeftReachable(int start, long @NotNull [] visited, int @NotNull [] queue) {
+        final var layout = this.state.layout();
+        final var width = layout.width();
+        visited[start >>> 6] |= 1L << start;
+        queue[0] = start;
+        int tail = 1;
+        int min = start;
+        for (int head = 0; head < tail; ++head) {
+            final var cell = queue[head];
+            final var x = cell % width;
+            for (int i = 0; i < 4; ++i) {
+                final var next = switch (i) {
+                    case 0 -> x > 0 ? cell - 1 : -1;
+                    case 1 -> x < width - 1 ? cell + 1 : -1;
+                    case 2 -> cell - width;
+                    default -> cell + width;
+                };
+                if (next < 0 || next >= layout.size() || (visited[next >>> 6] & (1L << next)) != 0
+                    || (layout.terrain(next) & Cells.TERRAIN_MASK) != Cells.FLOOR
+                    || Cells.isBox(this.state.occupant(next))) {
+                    continue;
+                }
+                visited[next >>> 6] |= 1L << next;
+                queue[tail++] = next;
+                min = Math.min(min, next);
             }
         }
-        return true;
-        //throw new NotImplementedException();
+        for (int i = 0; i < tail; ++i) {
+            visited[queue[i] >>> 6] &= ~(1L << queue[i]);
+        }
+        return min;
     }
 
     /**
@@ -122,12 +337,36 @@ public class GameState {
      * @param to   The position to move the entity to.
      */
     public void move(Position from, Position to) {
-        // TODO
-        if (this.state.getEntity(from) instanceof Player p) {
-            this.state.getPlayerPosition().put((char)(p.getId() + 'A'), to);
+        final var layout = this.state.layout();
+        this.moveCell(layout.index(from.x(), from.y()), layout.index(to.x(), to.y()));
+    }
+
+    /**
+     * Move the entity from one cell to another through {@link #move(Position, Position)},
+     * so that overriding it still sees every move.
+     * The positions are shared by the map, so moving a player or a box allocates nothing,
+     * apart from growing the undo journal from time to time.
+     *
+     * @param from The index of the cell of the entity to move, see {@link #idx(int, int)}.
+     * @param to   The index of the cell to move the entity to.
+     */
+    public void move(int from, int to) {
+        this.move(this.state.positionOf(from), this.state.positionOf(to));
+    }
+
+    /**
+     * Moves before the first checkpoint are not journaled, since undoing without a checkpoint
+     * goes back to the initial state anyway.
+     */
+    private void moveCell(int from, int to) {
+        final var occupant = this.state.occupant(from);
+        if (occupant != Cells.NONE && this.journal.hasCheckpoint()) {
+            this.journal.recordMove(from, to, this.state.occupant(to));
+        }
+        this.moveEntity(from, to);
+        if (Cells.isBox(occupant) && this.deadlockKnown && !this.deadlocked) {
+            this.deadlocked = this.isDeadlocked(to);
         }
-        this.state.putEntity(to, this.state.getEntity(from));
-        this.state.putEntity(from, new Empty());
     }
 
     /**
@@ -137,13 +376,12 @@ public class GameState {
      * <p>
      * Checkpoint is used in {@link GameState#undo()}.
      * Every undo actions reverts the game state to the last checkpoint.
+     * <p>
+     * Only a marker is recorded. The moves made after it are journaled as they happen,
+     * so a checkpoint costs constant time and memory whatever the size of the map.
      */
     public void checkpoint() {
-        // TODO
-        var newState = new GameState(new GameMap(this.state));
-        newState.checkpoint = this.checkpoint;
-        this.checkpoint = newState;
-        this.checkpoint.undoQuota = this.undoQuota;
+        this.journal.recordCheckpoint();
     }
 
     /**
@@ -152,37 +390,192 @@ public class GameState {
      * <p>
      * If there is no checkpoint recorded, i.e., before moving any box when the game starts,
      * revert to the initial game state.
+     * <p>
+     * A checkpoint after which no box has moved is skipped, and the undo continues to the checkpoint before it.
      */
     public void undo() {
-        // TODO
-        if (this.checkpoint == null) {
+        if (!this.journal.hasCheckpoint()) {
             this.state = new GameMap(this.map);
+            this.journal.clear();
+            this.countBoxesOnDestinations();
+            this.hashKnown = false;
+            this.deadlockKnown = false;
+            return;
+        }
+        boolean boxMoved = false;
+        for (var entry = this.journal.pop(); !UndoJournal.isCheckpoint(entry); entry = this.journal.pop()) {
+            final var to = UndoJournal.to(entry);
+            boxMoved |= Cells.isBox(this.state.occupant(to));
+            this.moveEntity(to, UndoJournal.from(entry));
+            this.setOccupant(to, UndoJournal.displaced(entry));
+        }
+        if (this.undoQuota.isPresent()) {
+            if (this.undoQuota.get() >= 1) {
+                this.undoQuota = Optional.of(this.undoQuota.get() - 1);
+            }
+        }
+        this.deadlockKnown = false;
+        if (!boxMoved) {
+            undo();
+        }
+    }
+
+    private void moveEntity(int from, int to) {
+        final var fromBefore = this.state.occupant(from);
+        final var toBefore = this.state.occupant(to);
+        this.state.moveEntity(from, to);
+        this.occupantChanged(from, fromBefore);
+        this.occupantChanged(to, toBefore);
+    }
+
+    private void setOccupant(int index, byte occupant) {
+        final var before = this.state.occupant(index);
+        this.state.setOccupant(index, occupant);
+        this.occupantChanged(index, before);
+    }
+
+    private void occupantChanged(int index, byte before) {
+        if (this.hashKnown) {
+            this.hash ^= Cells.zobristKey(index, before) ^ Cells.zobristKey(index, this.state.occupant(index));
+        }
+        this.updateBoxesOnDestinations(index, before);
+    }
+
+    private void updateBoxesOnDestinations(int index, byte before) {
+        if (!this.state.layout().isDestination(index)) {
+            return;
+        }
+        final var after = this.state.occupant(index);
+        if (Cells.isBox(before)) {
+            this.boxesOnDestinations[Cells.idOf(before)]--;
+            this.totalBoxesOnDestinations--;
+        }
+        if (Cells.isBox(after)) {
+            this.boxesOnDestinations[Cells.idOf(after)]++;
+            this.totalBoxesOnDestinations++;
+        }
+    }
+
+    private boolean findDeadlock() {
+        final var boxes = this.state.boxBits();
+        for (int index = PositionSet.nextSetBit(boxes, 0); index >= 0; index = PositionSet.nextSetBit(boxes, index + 1)) {
+            if (this.isDeadlocked(index)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean isDeadlocked(int index) {
+        final var layout = this.state.layout();
+        if (!layout.isDestination(index) && layout.isDeadSquare(index)) {
+            return true;
+        }
+        // A frozen box on a destination only deadlocks the game if it freezes boxes which are not on one.
+        this.visitingSize = 0;
+        this.frozenSize = 0;
+        if (!this.isFrozen(index % layout.width(), index / layout.width())) {
+            return false;
+        }
+        for (int i = 0; i < this.frozenSize; ++i) {
+            if (!layout.isDestination(this.frozen[i])) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Check whether the box at a position can never move again.
+     * The boxes being checked are kept in {@link #visiting} and treated as walls to avoid checking a box twice,
+     * and the boxes found frozen are added to {@link #frozen}.
+     * Both are usually a handful of cells, so they are scanned linearly and reused from one push to the next.
+     * When the box turns out not to be frozen, both lists are restored to what they were before checking it,
+     * since the boxes checked meanwhile were only frozen on the assumption that this box could not move.
+     */
+    private boolean isFrozen(int x, int y) {
+        final var index = this.state.layout().index(x, y);
+        final var visitingBefore = this.visitingSize;
+        final var frozenBefore = this.frozenSize;
+        this.visiting = append(this.visiting, this.visitingSize++, index);
+        final var result = this.isBlocked(x - 1, y, x + 1, y) && this.isBlocked(x, y - 1, x, y + 1);
+        if (result) {
+            this.frozen = append(this.frozen, this.frozenSize++, index);
         } else {
-            var currentBoxPositions = this.state.getBoxPositions();
-            //var checkpointBoxPositions = this.checkpoint.state.getBoxPositions();
-            for (var entry : currentBoxPositions) {
-                if (!(this.checkpoint.state.getEntity(entry) instanceof Box)) {
-                    this.state = new GameMap(this.checkpoint.map);
-                    if (this.undoQuota.isPresent()) {
-                        if (this.undoQuota.get() >= 1) {
-                            this.undoQuota = Optional.of(this.undoQuota.get()-1);
-                        }
-                    }
-                    this.checkpoint = this.checkpoint.checkpoint;
-                    return;
-                }
+            this.visitingSize = visitingBefore;
+            this.frozenSize = frozenBefore;
+        }
+        return result;
+    }
+
+    /**
+     * Check whether a box between two positions cannot be pushed towards either of them.
+     */
+    private boolean isBlocked(int x1, int y1, int x2, int y2) {
+        return this.isWall(x1, y1) || this.isWall(x2, y2)
+            || (this.isDeadSquare(x1, y1) && this.isDeadSquare(x2, y2))
+            || this.isFrozenBox(x1, y1) || this.isFrozenBox(x2, y2);
+    }
+
+    private boolean isWall(int x, int y) {
+        final var layout = this.state.layout();
+        if (!layout.contains(x, y)) {
+            return true;
+        }
+        final var index = layout.index(x, y);
+        if ((layout.terrain(index) & Cells.TERRAIN_MASK) != Cells.FLOOR) {
+            return true;
+        }
+        for (int i = 0; i < this.visitingSize; ++i) {
+            if (this.visiting[i] == index) {
+                return true;
             }
-            //System.out.println("recursive");
-            this.checkpoint = this.checkpoint.checkpoint;
-            if (this.undoQuota.isPresent()) {
-                if (this.undoQuota.get() >= 1) {
-                    this.undoQuota = Optional.of(this.undoQuota.get()-1);
-                }
+        }
+        return false;
+    }
+
+    private boolean isDeadSquare(int x, int y) {
+        final var layout = this.state.layout();
+        return layout.contains(x, y) && layout.isDeadSquare(layout.index(x, y));
+    }
+
+    private boolean isFrozenBox(int x, int y) {
+        final var layout = this.state.layout();
+        return layout.contains(x, y) && Cells.isBox(this.state.occupant(layout.index(x, y)))
+            && this.isFrozen(x, y);
+    }
+
+    private static int @NotNull [] append(int @NotNull [] cells, int size, int cell) {
+        final var result = size < cells.length ? cells : Arrays.copyOf(cells, Math.max(8, size * 2));
+        result[size] = cell;
+        return result;
+    }
+
+    private void countBoxesOnDestinations() {
+        Arrays.fill(this.boxesOnDestinations, 0);
+        this.totalBoxesOnDestinations = 0;
+        final var destinations = this.state.layout().destinationBits();
+        final var boxes = this.state.boxBits();
+        for (int word = 0; word < destinations.length; ++word) {
+            for (var bits = destinations[word] & boxes[word]; bits != 0; bits &= bits - 1) {
+                this.updateBoxesOnDestinations(word * Long.SIZE + Long.numberOfTrailingZeros(bits), Cells.NONE);
             }
-            undo();
         }
     }
 
+    /**
+     * Estimate the memory used by this game state alone, leaving out what it shares with other game states
+     * created from the same game map, such as the walls and destinations.
+     *
+     * @return the estimated number of bytes.
+     */
+    public long estimateMemoryUsage() {
+        return OBJECT_SIZE + this.journal.estimateMemoryUsage() + this.state.estimateMemoryUsage()
+            + MemoryEstimates.array(this.boxesOnDestinations.length, Integer.BYTES)
+            + MemoryEstimates.array(this.visiting.length, Integer.BYTES)
+            + MemoryEstimates.array(this.frozen.length, Integer.BYTES);
+    }
+
     /**
      * Get the maximum width of the game map.
      * This should be the same as that in {@link GameMap} class.
@@ -15,4 +15,20 @@ public interface InputEngine {
      */
     @NotNull
     Action fetchAction();
+
+    /**
+     * Check whether the next action was entered together with the last action fetched, as part of a batch.
+     * Such an action is fetched without waiting, and the game only needs to be rendered at the end of the batch.
+     *
+     * @return True if the batch of the last action fetched has more actions.
+     */
+    default boolean hasBufferedAction() {
+        return false;
+    }
+
+    /**
+     * Drop the rest of the batch of the last action fetched, for example because that action failed.
+     */
+    default void discardBufferedActions() {
+    }
 }
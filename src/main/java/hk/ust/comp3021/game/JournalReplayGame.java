@@ -0,0 +1,71 @@
+package hk.ust.comp3021.game;
+
+import hk.ust.comp3021.actions.ActionResult;
+import hk.ust.comp3021.actions.Exit;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * A game without input or rendering which replays the actions of an {@link ActionJournal},
+ * to audit a recorded game or to check that a change of the rules gives the same results as before.
+ * <p>
+ * The actions go through {@link #processAction} like in any other game, so the replay records a journal of its own.
+ * It stops at the end of the recorded journal, or earlier when the game is won or an exit is replayed.
+ */
+public final class JournalReplayGame extends AbstractSokobanGame {
+
+    private final ActionJournal recorded;
+    private int replayed;
+    private int firstDivergence = -1;
+
+    /**
+     * @param gameState The state to replay on, usually the initial state of the recorded game.
+     * @param recorded  The journal to replay.
+     */
+    public JournalReplayGame(@NotNull GameState gameState, @NotNull ActionJournal recorded) {
+        super(gameState);
+        this.recorded = recorded;
+    }
+
+    @Override
+    public void run() {
+        while (replayed < recorded.size() && !shouldStop()) {
+            final var action = recorded.getAction(replayed);
+            if (action instanceof Exit) {
+                requestExit = true;
+            }
+            final var success = processAction(action) instanceof ActionResult.Success;
+            if (success != recorded.isSuccess(replayed) && firstDivergence < 0) {
+                firstDivergence = replayed;
+            }
+            ++replayed;
+        }
+    }
+
+    /**
+     * @return The number of actions replayed so far.
+     */
+    public int getReplayedCount() {
+        return replayed;
+    }
+
+    /**
+     * @return The index of the first replayed action whose success differs from the recorded one, or -1 if there is none.
+     */
+    public int getFirstDivergence() {
+        return firstDivergence;
+    }
+
+    /**
+     * @return True if every action of the recorded journal was replayed with the recorded result.
+     */
+    public boolean matchesRecording() {
+        return replayed == recorded.size() && firstDivergence < 0;
+    }
+
+    /**
+     * @return The state of the game.
+     */
+    public @NotNull GameState getState() {
+        return state;
+    }
+}
@@ -0,0 +1,325 @@
+package hk.ust.comp3021.game;
+
+import hk.ust.comp3021.actions.Move;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Unmodifiable;
+
+import java.util.Set;
+
+/**
+ * The static layer of a {@link GameMap}: its dimensions, walls and box destinations.
+ * <p>
+ * Cells are stored row by row as terrain codes (see {@link Cells}), one byte per cell.
+ * A layout may only be written by the map that created it, and only until it is frozen.
+ * Once frozen it never changes again, so any number of maps can share it,
+ * together with what is derived from it, such as the dead squares.
+ * <p>
+ * The destinations are also kept as a bitset with one bit per cell, which copies of the layout share,
+ * since replacing the terrain of a cell keeps its destination flag.
+ */
+final class MapLayout {
+
+    /**
+     * The maximum number of cells in a map, so that a cell index fits in an {@link UndoJournal} entry.
+     */
+    static final int MAX_CELLS = 1 << UndoJournal.CELL_BITS;
+
+    private static final long OBJECT_SIZE = 32;
+    private static final long POSITION_SIZE = 16;
+    private static final int REFERENCE_SIZE = 4;
+    private static final int POSITION_BLOCK_BITS = 6;
+    /**
+     * The x and y displacements of every direction, indexed by {@link Move#getDirection()}.
+     */
+    private static final int[][] DIRECTIONS = {{0, -1}, {0, 1}, {-1, 0}, {1, 0}};
+
+    private final int width;
+    private final int height;
+    private final byte[] terrain;
+    private final long[] destinationBits;
+    private final PositionSet destinations;
+    private volatile boolean frozen;
+    private volatile long[] deadSquares;
+    private volatile Position[][] positions;
+
+    /**
+     * Create a layout in which every cell is outside the map.
+     * Destinations outside the map are left out.
+     *
+     * @param width        Width of the game map.
+     * @param height       Height of the game map.
+     * @param destinations Set of box destination positions.
+     */
+    MapLayout(int width, int height, @NotNull Set<Position> destinations) {
+        this(width, height, flagDestinations(width, height, destinations));
+    }
+
+    /**
+     * Create a layout from terrain codes in which the destinations are already flagged.
+     *
+     * @param width   Width of the game map.
+     * @param height  Height of the game map.
+     * @param terrain The terrain codes, owned by the layout from now on.
+     */
+    MapLayout(int width, int height, byte @NotNull [] terrain) {
+        if (terrain.length != checkSize(width, height)) {
+            throw new IllegalArgumentException("Terrain does not match the map size.");
+        }
+        this.width = width;
+        this.height = height;
+        this.terrain = terrain;
+        this.destinationBits = new long[PositionSet.words(terrain.length)];
+        for (int index = 0; index < terrain.length; ++index) {
+            if ((terrain[index] & Cells.DESTINATION) != 0) {
+                this.destinationBits[index >>> 6] |= 1L << index;
+            }
+        }
+        this.destinations = new PositionSet(this.destinationBits, width, height);
+    }
+
+    private MapLayout(@NotNull MapLayout layout) {
+        this.width = layout.width;
+        this.height = layout.height;
+        this.terrain = layout.terrain.clone();
+        this.destinationBits = layout.destinationBits;
+        this.destinations = layout.destinations;
+    }
+
+    private static byte @NotNull [] flagDestinations(int width, int height, @NotNull Set<Position> destinations) {
+        final var terrain = new byte[checkSize(width, height)];
+        for (var destination : destinations) {
+            if (destination.x() >= 0 && destination.x() < width && destination.y() >= 0 && destination.y() < height) {
+                terrain[destination.y() * width + destination.x()] |= Cells.DESTINATION;
+            }
+        }
+        return terrain;
+    }
+
+    private static int checkSize(int width, int height) {
+        if (width < 0 || height < 0 || (long) width * height > MAX_CELLS) {
+            throw new IllegalArgumentException("Invalid map size: " + width + "x" + height);
+        }
+        return width * height;
+    }
+
+    int width() {
+        return width;
+    }
+
+    int height() {
+        return height;
+    }
+
+    int size() {
+        return terrain.length;
+    }
+
+    boolean contains(int x, int y) {
+        return x >= 0 && x < width && y >= 0 && y < height;
+    }
+
+    int index(int x, int y) {
+        return y * width + x;
+    }
+
+    /**
+     * @param direction A direction, see {@link Move#getDirection()}.
+     * @return The difference between the index of a cell and the index of its neighbour in the direction.
+     */
+    int offset(int direction) {
+        if (direction < 0 || direction >= DIRECTIONS.length) {
+            throw new IllegalArgumentException("Invalid direction: " + direction);
+        }
+        return DIRECTIONS[direction][1] * width + DIRECTIONS[direction][0];
+    }
+
+    /**
+     * @param index     The cell index.
+     * @param direction A direction, see {@link Move#getDirection()}.
+     * @return The index of the neighbour of the cell in the direction,
+     * or -1 if either the cell or its neighbour is outside the map.
+     */
+    int neighbor(int index, int direction) {
+        if (index < 0 || index >= terrain.length) {
+            return -1;
+        }
+        return switch (direction) {
+            case Move.DIRECTION_UP -> index >= width ? index - width : -1;
+            case Move.DIRECTION_DOWN -> index < terrain.length - width ? index + width : -1;
+            case Move.DIRECTION_LEFT -> index % width != 0 ? index - 1 : -1;
+            case Move.DIRECTION_RIGHT -> (index + 1) % width != 0 ? index + 1 : -1;
+            default -> throw new IllegalArgumentException("Invalid direction: " + direction);
+        };
+    }
+
+    /**
+     * The positions are made on first use, in blocks of neighbouring cells, and then shared by every map using this
+     * layout, so finding the position of a cell again allocates nothing, however large the map is.
+     *
+     * @param index The cell index.
+     * @return The position of the cell.
+     */
+    @NotNull Position position(int index) {
+        var blocks = positions;
+        if (blocks == null) {
+            blocks = new Position[(terrain.length >>> POSITION_BLOCK_BITS) + 1][];
+            positions = blocks;
+        }
+        var block = blocks[index >>> POSITION_BLOCK_BITS];
+        if (block == null) {
+            block = new Position[1 << POSITION_BLOCK_BITS];
+            blocks[index >>> POSITION_BLOCK_BITS] = block;
+        }
+        final var slot = index & ((1 << POSITION_BLOCK_BITS) - 1);
+        var position = block[slot];
+        if (position == null) {
+            position = Position.of(index % width, index / width);
+            block[slot] = position;
+        }
+        return position;
+    }
+
+    byte terrain(int index) {
+        return terrain[index];
+    }
+
+    boolean isDestination(int index) {
+        return (terrain[index] & Cells.DESTINATION) != 0;
+    }
+
+    @NotNull @Unmodifiable Set<Position> destinations() {
+        return destinations;
+    }
+
+    /**
+     * @return The destinations as a bitset of cell indices. It must not be modified.
+     */
+    long @NotNull [] destinationBits() {
+        return destinationBits;
+    }
+
+    /**
+     * Replace the terrain kind of a cell, keeping its destination flag.
+     * Only valid before the layout is frozen.
+     *
+     * @param index The cell index.
+     * @param kind  One of {@link Cells#VOID}, {@link Cells#FLOOR} and {@link Cells#WALL}.
+     */
+    void setTerrain(int index, byte kind) {
+        assert !frozen;
+        terrain[index] = (byte) ((terrain[index] & ~Cells.TERRAIN_MASK) | kind);
+        deadSquares = null;
+    }
+
+    /**
+     * A box on a dead square can never be pushed to any destination, even without other boxes and players in the way.
+     * Corners and cells along a wall without destinations are dead squares, for example.
+     * <p>
+     * The dead squares are computed on first use and then shared by every map using this layout.
+     *
+     * @param index The cell index.
+     * @return Whether the cell is a dead square. Walls and cells outside the map are not.
+     */
+    boolean isDeadSquare(int index) {
+        var dead = deadSquares;
+        if (dead == null) {
+            dead = computeDeadSquares();
+            deadSquares = dead;
+        }
+        return (dead[index >>> 6] & (1L << index)) != 0;
+    }
+
+    /**
+     * Find the cells a box can be pulled to from a destination; the other floor cells are dead.
+     */
+    private long @NotNull [] computeDeadSquares() {
+        final var live = new long[PositionSet.words(terrain.length)];
+        final var queue = new int[terrain.length];
+        int tail = 0;
+        for (int index = 0; index < terrain.length; ++index) {
+            if (isFloor(index) && isDestination(index)) {
+                live[index >>> 6] |= 1L << index;
+                queue[tail++] = index;
+            }
+        }
+        for (int head = 0; head < tail; ++head) {
+            final var x = queue[head] % width;
+            final var y = queue[head] / width;
+            for (var direction : DIRECTIONS) {
+                final var boxX = x + direction[0];
+                final var boxY = y + direction[1];
+                if (!isFloor(boxX, boxY) || !isFloor(boxX + direction[0], boxY + direction[1])) {
+                    continue;
+                }
+                final var box = index(boxX, boxY);
+                if ((live[box >>> 6] & (1L << box)) == 0) {
+                    live[box >>> 6] |= 1L << box;
+                    queue[tail++] = box;
+                }
+            }
+        }
+        final var dead = new long[live.length];
+        for (int index = 0; index < terrain.length; ++index) {
+            if (isFloor(index) && (live[index >>> 6] & (1L << index)) == 0) {
+                dead[index >>> 6] |= 1L << index;
+            }
+        }
+        return dead;
+    }
+
+    private boolean isFloor(int index) {
+        return (terrain[index] & Cells.TERRAIN_MASK) == Cells.FLOOR;
+    }
+
+    private boolean isFloor(int x, int y) {
+        return contains(x, y) && isFloor(index(x, y));
+    }
+
+    /**
+     * @return The estimated memory used by the layout in bytes, including the destinations shared with its copies.
+     */
+    long estimateMemoryUsage() {
+        final var dead = deadSquares;
+        return OBJECT_SIZE + MemoryEstimates.array(terrain.length, Byte.BYTES)
+            + MemoryEstimates.array(destinationBits.length, Long.BYTES)
+            + (dead == null ? 0 : MemoryEstimates.array(dead.length, Long.BYTES))
+            + estimatePositionsMemoryUsage();
+    }
+
+    private long estimatePositionsMemoryUsage() {
+        final var blocks = positions;
+        if (blocks == null) {
+            return 0;
+        }
+        var size = MemoryEstimates.array(blocks.length, REFERENCE_SIZE);
+        for (var block : blocks) {
+            if (block != null) {
+                size += MemoryEstimates.array(block.length, REFERENCE_SIZE) + block.length * POSITION_SIZE;
+            }
+        }
+        return size;
+    }
+
+    boolean isFrozen() {
+        return frozen;
+    }
+
+    /**
+     * Mark this layout as shared. It must not be written afterwards.
+     *
+     * @return This layout.
+     */
+    @NotNull MapLayout freeze() {
+        if (!frozen) {
+            frozen = true;
+        }
+        return this;
+    }
+
+    /**
+     * @return A writable copy of this layout.
+     */
+    @NotNull MapLayout copy() {
+        return new MapLayout(this);
+    }
+}
@@ -0,0 +1,23 @@
+package hk.ust.comp3021.game;
+
+/**
+ * Rough sizes of objects on a 64-bit JVM with compressed references, used to estimate the memory of game sessions.
+ */
+final class MemoryEstimates {
+
+    private static final long ARRAY_HEADER = 16;
+    private static final long ALIGNMENT = 8;
+
+    private MemoryEstimates() {
+    }
+
+    /**
+     * @param length      The number of elements.
+     * @param elementSize The size of every element in bytes.
+     * @return The estimated size of the array in bytes.
+     */
+    static long array(int length, int elementSize) {
+        final var size = ARRAY_HEADER + (long) length * elementSize;
+        return (size + ALIGNMENT - 1) / ALIGNMENT * ALIGNMENT;
+    }
+}
@@ -0,0 +1,115 @@
+package hk.ust.comp3021.game;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * A persistent vector of occupant codes (see {@link Cells}), one byte per cell.
+ * <p>
+ * The cells are stored in leaves of 32 cells under a trie of nodes with up to 32 children each.
+ * Setting a cell copies only the path from the root to its leaf, a few hundred bytes at most,
+ * and the new vector shares every other node with the old one. Nodes are never modified once shared,
+ * so a vector can be read by any number of threads.
+ */
+final class OccupantTrie {
+
+    private static final int BITS = 5;
+    private static final int WIDTH = 1 << BITS;
+    private static final int MASK = WIDTH - 1;
+
+    /**
+     * A {@code byte[]} leaf if {@link #shift} is 0, otherwise an {@code Object[]} node.
+     */
+    private final Object root;
+    private final int shift;
+    private final int size;
+
+    private OccupantTrie(@NotNull Object root, int shift, int size) {
+        this.root = root;
+        this.shift = shift;
+        this.size = size;
+    }
+
+    /**
+     * @param cells The occupant codes of all cells, which are copied.
+     * @return A vector holding the codes.
+     */
+    static @NotNull OccupantTrie of(byte @NotNull [] cells) {
+        var level = new Object[Math.max(1, (cells.length + MASK) >>> BITS)];
+        for (int i = 0; i < level.length; ++i) {
+            final var leaf = new byte[WIDTH];
+            System.arraycopy(cells, i << BITS, leaf, 0, Math.min(WIDTH, cells.length - (i << BITS)));
+            level[i] = leaf;
+        }
+        int shift = 0;
+        while (level.length > 1) {
+            final var parent = new Object[(level.length + MASK) >>> BITS];
+            for (int i = 0; i < parent.length; ++i) {
+                final var node = new Object[Math.min(WIDTH, level.length - (i << BITS))];
+                System.arraycopy(level, i << BITS, node, 0, node.length);
+                parent[i] = node;
+            }
+            level = parent;
+            shift += BITS;
+        }
+        return new OccupantTrie(level[0], shift, cells.length);
+    }
+
+    int size() {
+        return size;
+    }
+
+    byte get(int index) {
+        var node = root;
+        for (int level = shift; level > 0; level -= BITS) {
+            node = ((Object[]) node)[(index >>> level) & MASK];
+        }
+        return ((byte[]) node)[index & MASK];
+    }
+
+    /**
+     * @param index The cell index.
+     * @param value The new occupant code.
+     * @return A vector with the cell set to the code, this vector if the cell already holds it.
+     */
+    @NotNull OccupantTrie set(int index, byte value) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        if (get(index) == value) {
+            return this;
+        }
+        return new OccupantTrie(set(root, shift, index, value), shift, size);
+    }
+
+    private static @NotNull Object set(@NotNull Object node, int level, int index, byte value) {
+        if (level == 0) {
+            final var leaf = ((byte[]) node).clone();
+            leaf[index & MASK] = value;
+            return leaf;
+        }
+        final var children = ((Object[]) node).clone();
+        final var slot = (index >>> level) & MASK;
+        children[slot] = set(children[slot], level - BITS, index, value);
+        return children;
+    }
+
+    /**
+     * @return The occupant codes of all cells in a new array.
+     */
+    byte @NotNull [] toArray() {
+        final var result = new byte[size];
+        copy(root, shift, 0, result);
+        return result;
+    }
+
+    private static void copy(@NotNull Object node, int level, int start, byte @NotNull [] target) {
+        if (level == 0) {
+            System.arraycopy((byte[]) node, 0, target, start, Math.min(WIDTH, target.length - start));
+            return;
+        }
+        final var children = (Object[]) node;
+        for (int i = 0; i < children.length; ++i) {
+            copy(children[i], level - BITS, start + (i << level), target);
+        }
+    }
+}
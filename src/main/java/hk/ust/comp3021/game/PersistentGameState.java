@@ -0,0 +1,257 @@
+package hk.ust.comp3021.game;
+
+import hk.ust.comp3021.actions.Move;
+import hk.ust.comp3021.entities.Entity;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.annotations.Unmodifiable;
+
+import java.util.Set;
+
+/**
+ * An immutable state of a Sokoban game, for branching searches, hints and "what if" previews.
+ * <p>
+ * Unlike {@link GameState}, a persistent state is never modified: {@link #apply(Move)} returns a new state
+ * and leaves this one as it is, so any number of states can be forked from one another and used by any thread.
+ * A new state shares the walls and destinations with every other state of the same map,
+ * and shares the boxes and players with its parent except for the few cells the move touched.
+ * Forking a state thus takes a few hundred bytes and no time proportional to the size of the map.
+ * <p>
+ * The moves follow the same rules as {@link AbstractSokobanGame}: a player walks onto an empty cell,
+ * or pushes a box of their own onto an empty cell.
+ * There are no checkpoints or undo, since keeping the earlier states is how a persistent state goes back.
+ */
+public final class PersistentGameState {
+
+    private final MapLayout layout;
+    private final int undoLimit;
+    private final OccupantTrie occupants;
+    private final int[] playerCells;
+    private final int boxesOnDestinations;
+    private final long hash;
+    private final int moveCount;
+
+    /**
+     * Create a state holding the current players and boxes of a game map.
+     * Later changes to the game map do not affect the state.
+     *
+     * @param map the game map.
+     */
+    public PersistentGameState(@NotNull GameMap map) {
+        this.layout = map.layout().freeze();
+        this.undoLimit = map.getUndoLimit().orElse(-1);
+        final var cells = new byte[this.layout.size()];
+        int onDestinations = 0;
+        long zobrist = 0;
+        for (int index = 0; index < cells.length; ++index) {
+            cells[index] = map.occupant(index);
+            zobrist ^= Cells.zobristKey(index, cells[index]);
+            if (Cells.isBox(cells[index]) && this.layout.isDestination(index)) {
+                onDestinations++;
+            }
+        }
+        this.occupants = OccupantTrie.of(cells);
+        this.playerCells = new int[Cells.MAX_PLAYERS];
+        for (int id = 0; id < this.playerCells.length; ++id) {
+            this.playerCells[id] = map.playerCell(id);
+        }
+        this.boxesOnDestinations = onDestinations;
+        this.hash = zobrist;
+        this.moveCount = 0;
+    }
+
+    private PersistentGameState(@NotNull PersistentGameState parent, @NotNull OccupantTrie occupants,
+                                int @NotNull [] playerCells, int boxesOnDestinations, long hash) {
+        this.layout = parent.layout;
+        this.undoLimit = parent.undoLimit;
+        this.occupants = occupants;
+        this.playerCells = playerCells;
+        this.boxesOnDestinations = boxesOnDestinations;
+        this.hash = hash;
+        this.moveCount = parent.moveCount + 1;
+    }
+
+    /**
+     * Make a move.
+     *
+     * @param move the move.
+     * @return the state after the move, or this state if the move is not possible.
+     */
+    public @NotNull PersistentGameState apply(@NotNull Move move) {
+        return this.apply(move.getInitiator(), move.getDirection());
+    }
+
+    /**
+     * Make a move, like {@link #apply(Move)}.
+     *
+     * @param playerId  the id of the player to move.
+     * @param direction a direction, see {@link Move#getDirection()}.
+     * @return the state after the move, or this state if the move is not possible.
+     * @throws IllegalArgumentException if the direction is invalid.
+     */
+    public @NotNull PersistentGameState apply(int playerId, int direction) {
+        final var from = this.getPlayerCell(playerId);
+        if (from < 0) {
+            return this;
+        }
+        final var to = this.layout.neighbor(from, direction);
+        if (!this.isFloor(to)) {
+            return this;
+        }
+        final var player = this.occupants.get(from);
+        final var target = this.occupants.get(to);
+        var cells = this.occupants;
+        var onDestinations = this.boxesOnDestinations;
+        var zobrist = this.hash;
+        if (target != Cells.NONE) {
+            if (!Cells.isBox(target) || Cells.idOf(target) != playerId) {
+                return this;
+            }
+            final var boxTo = this.layout.neighbor(to, direction);
+            if (!this.isFloor(boxTo) || this.occupants.get(boxTo) != Cells.NONE) {
+                return this;
+            }
+            cells = cells.set(boxTo, target);
+            zobrist ^= Cells.zobristKey(boxTo, target);
+            if (this.layout.isDestination(to)) {
+                onDestinations--;
+            }
+            if (this.layout.isDestination(boxTo)) {
+                onDestinations++;
+            }
+        }
+        cells = cells.set(to, player).set(from, Cells.NONE);
+        zobrist ^= Cells.zobristKey(from, player) ^ Cells.zobristKey(to, target) ^ Cells.zobristKey(to, player);
+        final var players = this.playerCells.clone();
+        players[playerId] = to;
+        return new PersistentGameState(this, cells, players, onDestinations, zobrist);
+    }
+
+    private boolean isFloor(int index) {
+        return index >= 0 && (this.layout.terrain(index) & Cells.TERRAIN_MASK) == Cells.FLOOR;
+    }
+
+    /**
+     * Get the entity that is at the given position.
+     *
+     * @param position the position of the entity.
+     * @return the entity object, or null if the position is outside the map.
+     */
+    public @Nullable Entity getEntity(@NotNull Position position) {
+        return this.getCell(this.idx(position.x(), position.y()));
+    }
+
+    /**
+     * Get the index of the cell at the given coordinates, see {@link GameMap#idx(int, int)}.
+     *
+     * @param x the horizontal displacement.
+     * @param y the vertical displacement.
+     * @return the cell index, or -1 if the coordinates are outside the map.
+     */
+    public int idx(int x, int y) {
+        return this.layout.contains(x, y) ? this.layout.index(x, y) : -1;
+    }
+
+    /**
+     * Get the entity that is in the given cell.
+     *
+     * @param idx the cell index, see {@link #idx(int, int)}.
+     * @return the entity object, or null if the index is outside the map.
+     */
+    public @Nullable Entity getCell(int idx) {
+        if (idx < 0 || idx >= this.layout.size()) {
+            return null;
+        }
+        return Cells.decode(this.layout.terrain(idx), this.occupants.get(idx));
+    }
+
+    /**
+     * Get the cell the player with the given id stands on.
+     *
+     * @param id player id.
+     * @return the cell index of the player, or -1 if there is no such player.
+     */
+    public int getPlayerCell(int id) {
+        return id >= 0 && id < this.playerCells.length ? this.playerCells[id] : -1;
+    }
+
+    /**
+     * Get the position of the player with the given id.
+     *
+     * @param id player id.
+     * @return the position of the player, or null if there is no such player.
+     */
+    public @Nullable Position getPlayerPositionById(int id) {
+        final var cell = this.getPlayerCell(id);
+        return cell < 0 ? null : Position.of(cell % this.layout.width(), cell / this.layout.width());
+    }
+
+    /**
+     * Get all box destination positions as a set in the game map.
+     *
+     * @return a set of positions.
+     */
+    public @NotNull @Unmodifiable Set<Position> getDestinations() {
+        return this.layout.destinations();
+    }
+
+    /**
+     * Check whether the game wins, i.e. all box destinations are occupied by boxes.
+     *
+     * @return true if the game wins.
+     */
+    public boolean isWin() {
+        return this.boxesOnDestinations == this.layout.destinations().size();
+    }
+
+    /**
+     * @return the number of boxes placed on box destinations.
+     */
+    public int getBoxesOnDestinations() {
+        return this.boxesOnDestinations;
+    }
+
+    /**
+     * Get the Zobrist hash of the positions of all players and boxes, the same as {@link GameState#getZobristHash()}
+     * for a game state with the players and boxes at the same positions.
+     *
+     * @return the hash of this state.
+     */
+    public long getZobristHash() {
+        return this.hash;
+    }
+
+    /**
+     * @return the number of successful moves from the state created from the game map to this state.
+     */
+    public int getMoveCount() {
+        return this.moveCount;
+    }
+
+    /**
+     * Create a game map with the players and boxes of this state, e.g. to continue playing from it with a {@link GameState}.
+     *
+     * @return a new game map, sharing the walls and destinations with this state.
+     */
+    public @NotNull GameMap toGameMap() {
+        return new GameMap(this.layout, this.undoLimit, this.occupants.toArray(), this.playerCells.clone());
+    }
+
+    /**
+     * Get the maximum width of the game map.
+     *
+     * @return maximum width.
+     */
+    public int getMapMaxWidth() {
+        return this.layout.width();
+    }
+
+    /**
+     * Get the maximum height of the game map.
+     *
+     * @return maximum height.
+     */
+    public int getMapMaxHeight() {
+        return this.layout.height();
+    }
+}
@@ -12,14 +12,30 @@ import org.jetbrains.annotations.NotNull;
  */
 public record Position(int x, int y) {
 
+    private static final int INTERNED_SIZE = 64;
+    private static final Position[] INTERNED = new Position[INTERNED_SIZE * INTERNED_SIZE];
+
+    static {
+        for (int y = 0; y < INTERNED_SIZE; ++y) {
+            for (int x = 0; x < INTERNED_SIZE; ++x) {
+                INTERNED[y * INTERNED_SIZE + x] = new Position(x, y);
+            }
+        }
+    }
+
     /**
-     * Creates a new position.
+     * Returns a position.
+     * Positions within the first 64 rows and columns are shared instances, so most maps need no new positions.
+     * Positions must still be compared with {@link #equals(Object)}.
      *
      * @param x The horizontal displacement.
      * @param y The vertical displacement.
-     * @return The newly created position.
+     * @return The position.
      */
     public static @NotNull Position of(int x, int y) {
+        if (x >= 0 && x < INTERNED_SIZE && y >= 0 && y < INTERNED_SIZE) {
+            return INTERNED[y * INTERNED_SIZE + x];
+        }
         return new Position(x, y);
     }
 
@@ -0,0 +1,109 @@
+package hk.ust.comp3021.game;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A read-only set of positions backed by a bitset of cell indices, one bit per cell of a map, row by row.
+ * <p>
+ * Membership takes constant time and iterating costs one word per 64 cells, plus one {@link Position} per element.
+ * The set does not copy the bitset, which must not change as long as the set is in use.
+ */
+final class PositionSet extends AbstractSet<Position> {
+
+    private final long[] bits;
+    private final int width;
+    private final int height;
+    private final int size;
+
+    /**
+     * @param bits   The bitset, owned by the set from now on.
+     * @param width  The width of the map.
+     * @param height The height of the map.
+     */
+    PositionSet(long @NotNull [] bits, int width, int height) {
+        this.bits = bits;
+        this.width = width;
+        this.height = height;
+        this.size = count(bits);
+    }
+
+    /**
+     * @param cells The number of cells of a map.
+     * @return The number of words of a bitset with one bit per cell.
+     */
+    static int words(int cells) {
+        return (cells + Long.SIZE - 1) / Long.SIZE;
+    }
+
+    /**
+     * @return The number of bits set.
+     */
+    static int count(long @NotNull [] bits) {
+        int result = 0;
+        for (var word : bits) {
+            result += Long.bitCount(word);
+        }
+        return result;
+    }
+
+    /**
+     * @param bits  A bitset.
+     * @param index The index to start from.
+     * @return The index of the first bit set from the index on, or -1 if there is none.
+     */
+    static int nextSetBit(long @NotNull [] bits, int index) {
+        var word = index >>> 6;
+        if (word >= bits.length) {
+            return -1;
+        }
+        var remaining = bits[word] & (-1L << index);
+        while (remaining == 0) {
+            if (++word == bits.length) {
+                return -1;
+            }
+            remaining = bits[word];
+        }
+        return word * Long.SIZE + Long.numberOfTrailingZeros(remaining);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        if (!(o instanceof Position position)
+            || position.x() < 0 || position.x() >= width || position.y() < 0 || position.y() >= height) {
+            return false;
+        }
+        final var index = position.y() * width + position.x();
+        return (bits[index >>> 6] & (1L << index)) != 0;
+    }
+
+    @Override
+    public @NotNull Iterator<Position> iterator() {
+        return new Iterator<>() {
+            private int next = nextSetBit(bits, 0);
+
+            @Override
+            public boolean hasNext() {
+                return next >= 0;
+            }
+
+            @Override
+            public Position next() {
+                if (next < 0) {
+                    throw new NoSuchElementException();
+                }
+                final var result = Position.of(next % width, next / width);
+                next = nextSetBit(bits, next + 1);
+                return result;
+            }
+        };
+    }
+}
@@ -20,4 +20,11 @@ public interface RenderingEngine {
      * @param content The message
      */
     void message(@NotNull String content);
+
+    /**
+     * Clear the messages displayed since the previous action, before the result of the next action is displayed.
+     * An engine which keeps every message on display, like a plain terminal, does nothing.
+     */
+    default void clearMessages() {
+    }
 }
@@ -0,0 +1,53 @@
+package hk.ust.comp3021.game;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+
+/**
+ * A compact, canonical key of a game state.
+ * <p>
+ * Two states have equal keys when their boxes are at the same positions, belonging to the same players,
+ * and the players stand at the same positions.
+ * When there is only one player, their exact position is left out and only the positions they can walk to,
+ * around the boxes, have to be the same, since walking without pushing a box never changes
+ * which positions can still be reached. With more players, the players block each other's way,
+ * so they are kept at their exact positions.
+ * <p>
+ * A key holds the boxes as a bitset of cells, the owners of the boxes in the order of their cells,
+ * and the cell of every player, or the top-left cell a single player can walk to.
+ * Keys are immutable, so they can be kept in hash sets and maps, e.g. to detect repeated states
+ * or to share results between sessions of the same map.
+ */
+public final class StateKey {
+
+    private final long[] boxes;
+    private final byte[] owners;
+    private final int[] players;
+    private final int hash;
+
+    StateKey(long @NotNull [] boxes, byte @NotNull [] owners, int @NotNull [] players) {
+        this.boxes = boxes;
+        this.owners = owners;
+        this.players = players;
+        this.hash = 31 * (31 * Arrays.hashCode(boxes) + Arrays.hashCode(owners)) + Arrays.hashCode(players);
+    }
+
+    @Override
+    public boolean equals(@Nullable Object o) {
+        if (this == o) {
+            return true;
+        }
+        return o instanceof StateKey other
+            && this.hash == other.hash
+            && Arrays.equals(this.boxes, other.boxes)
+            && Arrays.equals(this.owners, other.owners)
+            && Arrays.equals(this.players, other.players);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+}
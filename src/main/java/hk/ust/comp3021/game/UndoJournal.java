@@ -0,0 +1,93 @@
+package hk.ust.comp3021.game;
+
+import java.util.Arrays;
+
+/**
+ * A journal of the entities moved in a {@link GameState}, used to undo moves without taking snapshots of the board.
+ * <p>
+ * Each move is recorded as a single long holding the cell the entity moved from, the cell it moved to,
+ * and the occupant code it overwrote there (see {@link Cells}).
+ * Checkpoints are recorded as markers between the moves, so the journal grows by 8 bytes per move.
+ */
+final class UndoJournal {
+
+    /**
+     * The number of bits used to store a cell index in an entry.
+     */
+    static final int CELL_BITS = 28;
+
+    private static final long CELL_MASK = (1L << CELL_BITS) - 1;
+    private static final long CHECKPOINT = -1L;
+    private static final long OBJECT_SIZE = 24;
+
+    private long[] entries = new long[16];
+    private int size;
+    private int checkpoints;
+
+    /**
+     * @param from      The cell index the entity moved from.
+     * @param to        The cell index the entity moved to.
+     * @param displaced The occupant code previously at the target cell.
+     */
+    void recordMove(int from, int to, byte displaced) {
+        push(((long) (displaced & 0xff) << (2 * CELL_BITS)) | ((long) to << CELL_BITS) | from);
+    }
+
+    void recordCheckpoint() {
+        push(CHECKPOINT);
+        checkpoints++;
+    }
+
+    boolean hasCheckpoint() {
+        return checkpoints > 0;
+    }
+
+    /**
+     * Remove the latest entry.
+     * This method assumes the journal is not empty.
+     *
+     * @return The removed entry.
+     */
+    long pop() {
+        final var entry = entries[--size];
+        if (entry == CHECKPOINT) {
+            checkpoints--;
+        }
+        return entry;
+    }
+
+    void clear() {
+        size = 0;
+        checkpoints = 0;
+    }
+
+    /**
+     * @return The estimated memory used by the journal in bytes.
+     */
+    long estimateMemoryUsage() {
+        return OBJECT_SIZE + MemoryEstimates.array(entries.length, Long.BYTES);
+    }
+
+    static boolean isCheckpoint(long entry) {
+        return entry == CHECKPOINT;
+    }
+
+    static int from(long entry) {
+        return (int) (entry & CELL_MASK);
+    }
+
+    static int to(long entry) {
+        return (int) ((entry >>> CELL_BITS) & CELL_MASK);
+    }
+
+    static byte displaced(long entry) {
+        return (byte) (entry >>> (2 * CELL_BITS));
+    }
+
+    private void push(long entry) {
+        if (size == entries.length) {
+            entries = Arrays.copyOf(entries, size * 2);
+        }
+        entries[size++] = entry;
+    }
+}
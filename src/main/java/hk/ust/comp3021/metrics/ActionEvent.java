@@ -0,0 +1,33 @@
+package hk.ust.comp3021.metrics;
+
+import jdk.jfr.*;
+
+/**
+ * A JFR event for an action processed by a game with {@link GameMetrics}.
+ */
+@Name("hk.ust.comp3021.Action")
+@Label("Sokoban Action")
+@Category("Sokoban")
+@StackTrace(false)
+final class ActionEvent extends Event {
+
+    @Label("Action")
+    String action;
+
+    @Label("Initiator")
+    int initiator;
+
+    @Label("Success")
+    boolean success;
+
+    @Label("Failure Reason")
+    String reason;
+
+    @Label("Latency")
+    @Timespan(Timespan.NANOSECONDS)
+    long latency;
+
+    @Label("Allocated")
+    @DataAmount
+    long allocated;
+}
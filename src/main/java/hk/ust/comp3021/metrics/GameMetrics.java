@@ -0,0 +1,235 @@
+package hk.ust.comp3021.metrics;
+
+import hk.ust.comp3021.actions.ActionResult;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.annotations.Unmodifiable;
+
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latencies, allocations and results of the actions processed by games,
+ * attached with {@link hk.ust.comp3021.game.AbstractSokobanGame#setMetrics(GameMetrics)}.
+ * <p>
+ * For every {@link Operation}, the latency goes into a {@link LatencyHistogram} and the bytes allocated by the thread
+ * doing it are summed up. Action results are counted by type and failure reason.
+ * Every record is also committed as a JFR event in the "Sokoban" category when a recording enables it.
+ * <p>
+ * Allocations cannot be measured on virtual threads, e.g. in the sessions of a
+ * {@link hk.ust.comp3021.session.SessionRegistry}, since the JVM does not count them per virtual thread.
+ * Such operations still count towards the latencies and results, but not towards the allocations,
+ * and their JFR events report -1 bytes allocated.
+ * <p>
+ * Metrics are thread-safe and can be shared by all the games of a server.
+ * A game without metrics skips the measurements altogether.
+ */
+public final class GameMetrics {
+
+    /**
+     * The measured operations of a game.
+     */
+    public enum Operation {
+        /**
+         * Processing an action, including any checkpoint or undo it makes.
+         */
+        PROCESS_ACTION,
+        /**
+         * Recording a checkpoint before a box is pushed.
+         */
+        CHECKPOINT,
+        /**
+         * Undoing the moves since the last checkpoint.
+         */
+        UNDO,
+        /**
+         * Rendering the map.
+         */
+        RENDER
+    }
+
+    private static final @Nullable com.sun.management.ThreadMXBean THREADS = threadBean();
+
+    private final Map<Operation, LatencyHistogram> latencies = new EnumMap<>(Operation.class);
+    private final Map<Operation, LongAdder> allocations = new EnumMap<>(Operation.class);
+    private final Map<Operation, LongAdder> allocationCounts = new EnumMap<>(Operation.class);
+    private final LongAdder successes = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final ConcurrentHashMap<String, LongAdder> failureReasons = new ConcurrentHashMap<>();
+
+    /**
+     * Create empty metrics.
+     */
+    public GameMetrics() {
+        for (var operation : Operation.values()) {
+            latencies.put(operation, new LatencyHistogram());
+            allocations.put(operation, new LongAdder());
+            allocationCounts.put(operation, new LongAdder());
+        }
+    }
+
+    /**
+     * @return The number of bytes allocated by the current thread so far,
+     * or -1 if the JVM does not measure it or the current thread is virtual.
+     */
+    public static long allocatedBytes() {
+        if (THREADS == null || Thread.currentThread().isVirtual()) {
+            return -1;
+        }
+        final var allocated = THREADS.getCurrentThreadAllocatedBytes();
+        return allocated < 0 ? -1 : allocated;
+    }
+
+    /**
+     * @param startAllocated The value of {@link #allocatedBytes()} before an operation.
+     * @return The number of bytes allocated since, or -1 if it cannot be measured.
+     */
+    private static long allocatedSince(long startAllocated) {
+        final var allocated = startAllocated < 0 ? -1 : allocatedBytes();
+        return allocated < 0 ? -1 : allocated - startAllocated;
+    }
+
+    private void recordAllocation(@NotNull Operation operation, long allocated) {
+        if (allocated >= 0) {
+            allocations.get(operation).add(allocated);
+            allocationCounts.get(operation).increment();
+        }
+    }
+
+    /**
+     * Record an action processed by the current thread.
+     *
+     * @param result         The result of the action.
+     * @param startNanos     The value of {@link System#nanoTime()} before processing the action.
+     * @param startAllocated The value of {@link #allocatedBytes()} before processing the action.
+     */
+    public void recordAction(@NotNull ActionResult result, long startNanos, long startAllocated) {
+        final var latency = System.nanoTime() - startNanos;
+        final var allocated = allocatedSince(startAllocated);
+        latencies.get(Operation.PROCESS_ACTION).record(latency);
+        recordAllocation(Operation.PROCESS_ACTION, allocated);
+        final var failed = result instanceof ActionResult.Failed;
+        if (failed) {
+            failures.increment();
+            failureReasons.computeIfAbsent(((ActionResult.Failed) result).getReason(), reason -> new LongAdder()).increment();
+        } else {
+            successes.increment();
+        }
+
+        final var event = new ActionEvent();
+        if (event.shouldCommit()) {
+            event.action = result.getAction().getClass().getSimpleName();
+            event.initiator = result.getAction().getInitiator();
+            event.success = !failed;
+            event.reason = failed ? ((ActionResult.Failed) result).getReason() : null;
+            event.latency = latency;
+            event.allocated = allocated;
+            event.commit();
+        }
+    }
+
+    /**
+     * Record an operation other than processing an action, done by the current thread.
+     *
+     * @param operation      The operation.
+     * @param startNanos     The value of {@link System#nanoTime()} before the operation.
+     * @param startAllocated The value of {@link #allocatedBytes()} before the operation.
+     */
+    public void record(@NotNull Operation operation, long startNanos, long startAllocated) {
+        final var latency = System.nanoTime() - startNanos;
+        final var allocated = allocatedSince(startAllocated);
+        latencies.get(operation).record(latency);
+        recordAllocation(operation, allocated);
+
+        final var event = new OperationEvent();
+        if (event.shouldCommit()) {
+            event.operation = operation.name();
+            event.latency = latency;
+            event.allocated = allocated;
+            event.commit();
+        }
+    }
+
+    /**
+     * @param operation The operation.
+     * @return The latencies of the operation.
+     */
+    public @NotNull LatencyHistogram getLatency(@NotNull Operation operation) {
+        return latencies.get(operation);
+    }
+
+    /**
+     * @param operation The operation.
+     * @return The total number of bytes allocated by the operation, on all threads where it could be measured.
+     */
+    public long getAllocatedBytes(@NotNull Operation operation) {
+        return allocations.get(operation).sum();
+    }
+
+    /**
+     * @param operation The operation.
+     * @return The number of times the operation was recorded with its allocation measured,
+     * see {@link #getAllocatedBytes(Operation)}.
+     */
+    public long getAllocationCount(@NotNull Operation operation) {
+        return allocationCounts.get(operation).sum();
+    }
+
+    /**
+     * @return The number of successful actions.
+     */
+    public long getSuccessCount() {
+        return successes.sum();
+    }
+
+    /**
+     * @return The number of failed actions.
+     */
+    public long getFailureCount() {
+        return failures.sum();
+    }
+
+    /**
+     * @return The number of failed actions by failure reason, sorted by reason.
+     */
+    public @NotNull @Unmodifiable Map<String, Long> getFailureCounts() {
+        final var counts = new TreeMap<String, Long>();
+        failureReasons.forEach((reason, count) -> counts.put(reason, count.sum()));
+        return Collections.unmodifiableMap(counts);
+    }
+
+    /**
+     * Write a summary of the metrics, one line per operation and per failure reason.
+     *
+     * @param out The stream to write to.
+     */
+    public void dump(@NotNull PrintStream out) {
+        for (var operation : Operation.values()) {
+            final var latency = latencies.get(operation);
+            final var count = getAllocationCount(operation);
+            if (count == 0 && latency.getCount() > 0) {
+                out.printf("%-14s %s allocated=n/a%n", operation, latency);
+            } else {
+                out.printf("%-14s %s allocated=%dB/op%n", operation, latency,
+                    count == 0 ? 0 : getAllocatedBytes(operation) / count);
+            }
+        }
+        out.printf("%-14s success=%d failed=%d%n", "RESULTS", getSuccessCount(), getFailureCount());
+        getFailureCounts().forEach((reason, count) -> out.printf("%-14s %d %s%n", "FAILED", count, reason));
+    }
+
+    private static @Nullable com.sun.management.ThreadMXBean threadBean() {
+        if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean bean
+            && bean.isThreadAllocatedMemorySupported()) {
+            bean.setThreadAllocatedMemoryEnabled(true);
+            return bean;
+        }
+        return null;
+    }
+}
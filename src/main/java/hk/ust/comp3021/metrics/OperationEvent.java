@@ -0,0 +1,24 @@
+package hk.ust.comp3021.metrics;
+
+import jdk.jfr.*;
+
+/**
+ * A JFR event for a checkpoint, an undo or a render of a game with {@link GameMetrics}.
+ */
+@Name("hk.ust.comp3021.Operation")
+@Label("Sokoban Operation")
+@Category("Sokoban")
+@StackTrace(false)
+final class OperationEvent extends Event {
+
+    @Label("Operation")
+    String operation;
+
+    @Label("Latency")
+    @Timespan(Timespan.NANOSECONDS)
+    long latency;
+
+    @Label("Allocated")
+    @DataAmount
+    long allocated;
+}
@@ -0,0 +1,171 @@
+package hk.ust.comp3021.server;
+
+import hk.ust.comp3021.actions.Action;
+import hk.ust.comp3021.actions.Exit;
+import hk.ust.comp3021.actions.InvalidInput;
+import hk.ust.comp3021.game.InputEngine;
+import hk.ust.comp3021.tui.TerminalInputEngine;
+import hk.ust.comp3021.utils.StringResources;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.NoSuchElementException;
+
+/**
+ * An input engine fed with bytes as they arrive on a non-blocking channel.
+ * <p>
+ * It reads the same commands and batches as {@link TerminalInputEngine}, one per line,
+ * ending with {@code \n}, {@code \r} or {@code \r\n}. The bytes are matched as they arrive,
+ * without decoding them into strings or keeping the line: the actions of a batch are queued while it is read,
+ * and dropped again if the line turns out not to be a valid batch.
+ */
+public final class ChannelInputEngine implements InputEngine {
+
+    private static final byte[] EXIT_COMMAND = StringResources.EXIT_COMMAND_TEXT.getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] LURD_PREFIX = TerminalInputEngine.LURD_PREFIX.getBytes(StandardCharsets.US_ASCII);
+
+    private final ArrayDeque<Action> actions = new ArrayDeque<>(2);
+    private final ArrayDeque<Integer> batchSizes = new ArrayDeque<>(2);
+    private int remainingInBatch;
+    private int length;
+    private int pending;
+    private boolean keys;
+    private boolean exit;
+    private boolean lurd;
+    private boolean afterCarriageReturn;
+    private boolean ended;
+
+    /**
+     * Create an engine waiting for the first line.
+     */
+    public ChannelInputEngine() {
+        startLine();
+    }
+
+    /**
+     * Decode the actions on all complete lines in a buffer. An incomplete line is continued by the next buffer.
+     *
+     * @param input The bytes received, which are all consumed.
+     */
+    public void decode(@NotNull ByteBuffer input) {
+        while (input.hasRemaining()) {
+            final var b = input.get();
+            if (b == '\n' && afterCarriageReturn) {
+                afterCarriageReturn = false;
+                continue;
+            }
+            afterCarriageReturn = b == '\r';
+            if (b == '\n' || b == '\r') {
+                endLine();
+            } else {
+                accept(b);
+            }
+        }
+    }
+
+    /**
+     * Mark the end of the input. The last line is decoded even if it is incomplete, and is followed by {@link Exit}.
+     */
+    public void endOfInput() {
+        if (ended) {
+            return;
+        }
+        if (length > 0) {
+            endLine();
+        }
+        actions.add(Exit.of(-1));
+        batchSizes.add(1);
+        ended = true;
+    }
+
+    /**
+     * @return True if an action has been decoded and not fetched yet.
+     */
+    public boolean hasAction() {
+        return remainingInBatch > 0 || !batchSizes.isEmpty();
+    }
+
+    /**
+     * Fetch the next decoded action. It never waits for input.
+     *
+     * @return the user action.
+     * @throws NoSuchElementException if no action has been decoded, see {@link #hasAction()}.
+     */
+    @Override
+    public @NotNull Action fetchAction() {
+        if (remainingInBatch == 0) {
+            remainingInBatch = batchSizes.remove();
+        }
+        --remainingInBatch;
+        return actions.remove();
+    }
+
+    @Override
+    public boolean hasBufferedAction() {
+        return remainingInBatch > 0;
+    }
+
+    @Override
+    public void discardBufferedActions() {
+        for (; remainingInBatch > 0; --remainingInBatch) {
+            actions.remove();
+        }
+    }
+
+    private void accept(byte b) {
+        final var c = (char) (b & 0xff);
+        if (lurd && length >= LURD_PREFIX.length) {
+            lurd = addPending(TerminalInputEngine.lurdAction(c));
+        } else if (lurd) {
+            lurd = Character.toLowerCase(c) == LURD_PREFIX[length];
+        }
+        if (keys) {
+            keys = addPending(TerminalInputEngine.keyAction(c));
+        }
+        exit &= length < EXIT_COMMAND.length && Character.toLowerCase(c) == EXIT_COMMAND[length];
+        if (length <= TerminalInputEngine.MAX_BATCH_LENGTH + LURD_PREFIX.length) {
+            ++length;
+        }
+    }
+
+    private boolean addPending(@Nullable Action action) {
+        if (action == null || pending == TerminalInputEngine.MAX_BATCH_LENGTH) {
+            dropPending();
+            return false;
+        }
+        actions.add(action);
+        ++pending;
+        return true;
+    }
+
+    private void dropPending() {
+        for (; pending > 0; --pending) {
+            actions.removeLast();
+        }
+    }
+
+    private void endLine() {
+        if (exit && length == EXIT_COMMAND.length) {
+            actions.add(Exit.of(-1));
+            batchSizes.add(1);
+        } else if ((keys || lurd) && pending > 0) {
+            batchSizes.add(pending);
+        } else {
+            dropPending();
+            actions.add(InvalidInput.of(-1));
+            batchSizes.add(1);
+        }
+        startLine();
+    }
+
+    private void startLine() {
+        length = 0;
+        pending = 0;
+        keys = true;
+        exit = true;
+        lurd = true;
+    }
+}
@@ -0,0 +1,146 @@
+package hk.ust.comp3021.server;
+
+import hk.ust.comp3021.game.GameState;
+import hk.ust.comp3021.game.RenderingEngine;
+import hk.ust.comp3021.tui.AnsiFrameDiff;
+import hk.ust.comp3021.tui.MapText;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A rendering engine writing the same text as {@link hk.ust.comp3021.tui.TerminalRenderingEngine} to a non-blocking channel.
+ * <p>
+ * Frames and messages are collected in the {@link OutputSegments} of the selector thread
+ * and written together by {@link #flush()} with one gathering write.
+ * Only when the channel cannot take all of them does the engine copy the rest into a buffer of its own,
+ * which {@link #flush()} keeps writing until it is empty.
+ * Like a {@link java.io.PrintStream}, the engine stops writing after the first error.
+ */
+final class ChannelRenderingEngine implements RenderingEngine {
+
+    private static final int PENDING_CAPACITY = 1024;
+    private static final byte[] LINE_SEPARATOR = System.lineSeparator().getBytes(StandardCharsets.UTF_8);
+
+    private final GatheringByteChannel channel;
+    private final OutputSegments segments;
+    private final @Nullable AnsiFrameDiff frameDiff;
+    private final MapText mapText = new MapText();
+    private @Nullable ByteBuffer pending;
+    private boolean failed;
+
+    /**
+     * @param channel      The channel to write to, in non-blocking mode.
+     * @param segments     The output buffers of the selector thread.
+     * @param differential Whether to redraw only the cells changed since the previous frame, see {@link AnsiFrameDiff}.
+     */
+    ChannelRenderingEngine(@NotNull GatheringByteChannel channel, @NotNull OutputSegments segments, boolean differential) {
+        this.channel = channel;
+        this.segments = segments;
+        this.frameDiff = differential ? new AnsiFrameDiff() : null;
+    }
+
+    @Override
+    public void render(@NotNull GameState state) {
+        if (frameDiff != null) {
+            put(frameDiff.update(state));
+            return;
+        }
+        final var length = MapText.length(state);
+        final var frame = segments.chars(length);
+        mapText.draw(state, frame);
+        final var segment = next(length);
+        for (int i = 0; i < length; ++i) {
+            segment.put((byte) frame[i]);
+        }
+    }
+
+    @Override
+    public void message(@NotNull String content) {
+        final var segment = next(content.length() * 3 + LINE_SEPARATOR.length);
+        segments.encoder().encode(CharBuffer.wrap(content), segment, true);
+        segment.put(LINE_SEPARATOR);
+        if (frameDiff != null) {
+            frameDiff.message(content);
+        }
+    }
+
+    @Override
+    public void clearMessages() {
+        if (frameDiff != null) {
+            put(frameDiff.clearMessages());
+        }
+    }
+
+    private void put(@NotNull CharSequence text) {
+        final var segment = next(text.length());
+        for (int i = 0; i < text.length(); ++i) {
+            segment.put((byte) text.charAt(i));
+        }
+    }
+
+    /**
+     * Write everything rendered since the last flush, without waiting for the channel.
+     */
+    void flush() {
+        final var buffers = segments.flip();
+        final var size = segments.size();
+        segments.clear();
+        if (failed) {
+            return;
+        }
+        try {
+            if (pending == null) {
+                channel.write(buffers, 0, size);
+            }
+            for (int i = 0; i < size; ++i) {
+                if (buffers[i].hasRemaining()) {
+                    pending = append(pending, buffers[i]);
+                }
+            }
+            if (pending != null) {
+                channel.write(pending.flip());
+                pending = pending.hasRemaining() ? pending.compact() : null;
+            }
+        } catch (IOException e) {
+            failed = true;
+            pending = null;
+        }
+    }
+
+    /**
+     * @return True if some output is waiting for the channel to become writable.
+     */
+    boolean hasPending() {
+        return pending != null;
+    }
+
+    /**
+     * @return True if writing to the channel has failed.
+     */
+    boolean checkError() {
+        return failed;
+    }
+
+    private @NotNull ByteBuffer next(int capacity) {
+        if (segments.isFull()) {
+            flush();
+        }
+        return segments.next(capacity);
+    }
+
+    private static @NotNull ByteBuffer append(@Nullable ByteBuffer target, @NotNull ByteBuffer source) {
+        if (target == null) {
+            target = ByteBuffer.allocate(Math.max(source.remaining(), PENDING_CAPACITY));
+        } else if (target.remaining() < source.remaining()) {
+            final var grown = ByteBuffer.allocate(Math.max(target.position() + source.remaining(), target.capacity() * 2));
+            target = grown.put(target.flip());
+        }
+        return target.put(source);
+    }
+}
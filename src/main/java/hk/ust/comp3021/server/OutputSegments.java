@@ -0,0 +1,92 @@
+package hk.ust.comp3021.server;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reusable direct buffers holding the output of one game between two writes, shared by every game of a selector thread.
+ * <p>
+ * Every frame and message goes in its own segment, so that all of them are written with one gathering write.
+ * Since a selector thread handles one game at a time and writes its output before moving on,
+ * an idle game holds no output buffer.
+ */
+final class OutputSegments {
+
+    static final int SEGMENTS = 16;
+    private static final int INITIAL_CAPACITY = 256;
+
+    private final ByteBuffer[] buffers = new ByteBuffer[SEGMENTS];
+    private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder();
+    private char[] chars = new char[INITIAL_CAPACITY];
+    private int size;
+
+    OutputSegments() {
+        for (int i = 0; i < SEGMENTS; ++i) {
+            buffers[i] = ByteBuffer.allocateDirect(INITIAL_CAPACITY);
+        }
+    }
+
+    /**
+     * @return True if every segment is in use.
+     */
+    boolean isFull() {
+        return size == SEGMENTS;
+    }
+
+    /**
+     * Start filling the next segment.
+     *
+     * @param capacity The number of bytes the segment must hold.
+     * @return The empty segment.
+     */
+    @NotNull ByteBuffer next(int capacity) {
+        if (buffers[size].capacity() < capacity) {
+            buffers[size] = ByteBuffer.allocateDirect(Math.max(capacity, buffers[size].capacity() * 2));
+        }
+        return buffers[size++].clear();
+    }
+
+    /**
+     * @param capacity The number of chars needed.
+     * @return A scratch array to draw a frame into before copying it into a segment.
+     */
+    char @NotNull [] chars(int capacity) {
+        if (chars.length < capacity) {
+            chars = new char[Math.max(capacity, chars.length * 2)];
+        }
+        return chars;
+    }
+
+    /**
+     * @return The encoder of text in the segments, reset before each use.
+     */
+    @NotNull CharsetEncoder encoder() {
+        return encoder.reset();
+    }
+
+    /**
+     * Flip the filled segments for writing.
+     *
+     * @return The filled segments, from index 0 to {@link #size()}.
+     */
+    @NotNull ByteBuffer[] flip() {
+        for (int i = 0; i < size; ++i) {
+            buffers[i].flip();
+        }
+        return buffers;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Mark every segment as free.
+     */
+    void clear() {
+        size = 0;
+    }
+}
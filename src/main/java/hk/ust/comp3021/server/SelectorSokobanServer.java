@@ -0,0 +1,353 @@
+package hk.ust.comp3021.server;
+
+import hk.ust.comp3021.game.GameMap;
+import hk.ust.comp3021.game.GameState;
+import hk.ust.comp3021.metrics.GameMetrics;
+import hk.ust.comp3021.tui.TerminalSokobanGame;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Serves games like {@link SokobanServer}, but with a few selector threads instead of a thread per connection.
+ * <p>
+ * Every selector thread owns a share of the connections. When a connection has input, its thread decodes the actions
+ * with a {@link ChannelInputEngine}, runs them through the game, and writes the output with a {@link ChannelRenderingEngine}.
+ * A connection whose output the client does not read is not read either until the output is written.
+ * The first selector thread also accepts the connections and hands them out in turn.
+ */
+public final class SelectorSokobanServer implements AutoCloseable {
+
+    private static final int BACKLOG = 1024;
+    private static final int READ_BUFFER_SIZE = 4096;
+
+    private final ServerSocketChannel channel;
+    private final SocketAddress localAddress;
+    private final GameMap map;
+    private final boolean differential;
+    private final Loop[] loops;
+    private final AtomicInteger connections = new AtomicInteger();
+    private int nextLoop;
+    private volatile boolean closed;
+    private volatile @Nullable GameMetrics metrics;
+
+    private SelectorSokobanServer(@NotNull ServerSocketChannel channel, @NotNull GameMap map, int threads,
+                                  boolean differential) throws IOException {
+        this.channel = channel;
+        this.localAddress = channel.getLocalAddress();
+        this.map = map;
+        this.differential = differential;
+        this.loops = new Loop[threads];
+        try {
+            for (int i = 0; i < threads; ++i) {
+                this.loops[i] = new Loop(Selector.open());
+            }
+            channel.configureBlocking(false);
+            channel.register(this.loops[0].selector, SelectionKey.OP_ACCEPT);
+        } catch (IOException e) {
+            for (var loop : this.loops) {
+                if (loop != null) {
+                    loop.selector.close();
+                }
+            }
+            throw e;
+        }
+        for (int i = 0; i < threads; ++i) {
+            this.loops[i].thread = Thread.ofPlatform().name("sokoban-selector-" + i).start(this.loops[i]);
+        }
+    }
+
+    /**
+     * Start serving games with one selector thread per processor.
+     *
+     * @param address The address to listen on, either an {@link InetSocketAddress} or a {@link UnixDomainSocketAddress}.
+     * @param map     The map of every game.
+     * @return The running server.
+     * @throws IOException if the address cannot be bound.
+     * @throws IllegalArgumentException if the map has more than two players.
+     */
+    public static @NotNull SelectorSokobanServer start(@NotNull SocketAddress address, @NotNull GameMap map) throws IOException {
+        return start(address, map, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Start serving games.
+     *
+     * @param address The address to listen on, either an {@link InetSocketAddress} or a {@link UnixDomainSocketAddress}.
+     * @param map     The map of every game.
+     * @param threads The number of selector threads.
+     * @return The running server.
+     * @throws IOException if the address cannot be bound.
+     * @throws IllegalArgumentException if the map has more than two players or the number of threads is not positive.
+     */
+    public static @NotNull SelectorSokobanServer start(@NotNull SocketAddress address, @NotNull GameMap map, int threads) throws IOException {
+        return start(address, map, threads, false);
+    }
+
+    /**
+     * Start serving games.
+     *
+     * @param address      The address to listen on, either an {@link InetSocketAddress} or a {@link UnixDomainSocketAddress}.
+     * @param map          The map of every game.
+     * @param threads      The number of selector threads.
+     * @param differential Whether to send only the cells changed by every move,
+     *                     see {@link hk.ust.comp3021.tui.AnsiFrameDiff}.
+     * @return The running server.
+     * @throws IOException if the address cannot be bound.
+     * @throws IllegalArgumentException if the map has more than two players or the number of threads is not positive.
+     */
+    public static @NotNull SelectorSokobanServer start(@NotNull SocketAddress address, @NotNull GameMap map, int threads,
+                                                       boolean differential) throws IOException {
+        if (map.getPlayerIds().size() > 2) {
+            throw new IllegalArgumentException("A served map can have at most two players.");
+        }
+        if (threads <= 0) {
+            throw new IllegalArgumentException("The number of threads must be positive.");
+        }
+        final var channel = address instanceof UnixDomainSocketAddress
+            ? ServerSocketChannel.open(StandardProtocolFamily.UNIX)
+            : ServerSocketChannel.open();
+        try {
+            channel.bind(address, BACKLOG);
+            return new SelectorSokobanServer(channel, map, threads, differential);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @return The address the server listens on, with the actual port if it was bound to port 0.
+     */
+    public @NotNull SocketAddress getLocalAddress() {
+        return localAddress;
+    }
+
+    /**
+     * @return The number of games currently running.
+     */
+    public int getConnectionCount() {
+        return connections.get();
+    }
+
+    /**
+     * Measure the games started from now on.
+     *
+     * @param metrics The metrics shared by the games, or null to stop measuring new games.
+     */
+    public void setMetrics(@Nullable GameMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Wait until the server is closed.
+     *
+     * @throws InterruptedException if the waiting thread is interrupted.
+     */
+    public void awaitTermination() throws InterruptedException {
+        for (var loop : loops) {
+            loop.thread.join();
+        }
+    }
+
+    /**
+     * Stop accepting connections and close every connection. The socket file of a Unix-domain socket is deleted.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        for (var loop : loops) {
+            loop.selector.wakeup();
+        }
+        try {
+            awaitTermination();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        closeQuietly(channel);
+        if (localAddress instanceof UnixDomainSocketAddress unix) {
+            try {
+                Files.deleteIfExists(unix.getPath());
+            } catch (IOException ignored) {
+                // The file is only left behind.
+            }
+        }
+    }
+
+    private static void closeQuietly(@NotNull AutoCloseable closeable) {
+        try {
+            closeable.close();
+        } catch (Exception ignored) {
+            // Nothing is left to do with a channel which failed to close.
+        }
+    }
+
+    /**
+     * A selector thread and the connections it owns.
+     */
+    private final class Loop implements Runnable {
+        private final Selector selector;
+        private final Queue<SocketChannel> accepted = new ConcurrentLinkedQueue<>();
+        private final ByteBuffer readBuffer = ByteBuffer.allocateDirect(READ_BUFFER_SIZE);
+        private final OutputSegments segments = new OutputSegments();
+        private Thread thread;
+
+        Loop(@NotNull Selector selector) {
+            this.selector = selector;
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (!closed) {
+                    selector.select();
+                    for (SocketChannel client; (client = accepted.poll()) != null; ) {
+                        register(client);
+                    }
+                    for (var key : selector.selectedKeys()) {
+                        if (!key.isValid()) {
+                            continue;
+                        }
+                        if (key.isAcceptable()) {
+                            accept();
+                        } else {
+                            final var game = (ChannelGame) key.attachment();
+                            try {
+                                game.handle(key);
+                            } catch (RuntimeException e) {
+                                // A failing game must not stop the other games of the thread.
+                                game.close(key);
+                            }
+                        }
+                    }
+                    selector.selectedKeys().clear();
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } catch (ClosedSelectorException ignored) {
+                // The server has been closed.
+            } finally {
+                for (var key : selector.keys()) {
+                    if (key.isValid() && key.attachment() instanceof ChannelGame game) {
+                        game.close(key);
+                    }
+                }
+                accepted.forEach(SelectorSokobanServer::closeQuietly);
+                closeQuietly(selector);
+            }
+        }
+
+        private void accept() throws IOException {
+            for (SocketChannel client; (client = channel.accept()) != null; ) {
+                final var loop = loops[nextLoop];
+                nextLoop = (nextLoop + 1) % loops.length;
+                if (loop == this) {
+                    register(client);
+                } else {
+                    loop.accepted.add(client);
+                    loop.selector.wakeup();
+                }
+            }
+        }
+
+        private void register(@NotNull SocketChannel client) {
+            try {
+                client.configureBlocking(false);
+                final var game = new ChannelGame(new GameState(map), client, segments);
+                game.setMetrics(metrics);
+                final var key = client.register(selector, SelectionKey.OP_READ, game);
+                connections.incrementAndGet();
+                game.begin(key);
+            } catch (IOException e) {
+                closeQuietly(client);
+            }
+        }
+
+        /**
+         * A terminal game played over a non-blocking connection, advanced by the selector thread.
+         */
+        private final class ChannelGame extends TerminalSokobanGame {
+            private final SocketChannel client;
+            private final ChannelInputEngine input;
+            private final ChannelRenderingEngine output;
+            private boolean stopped;
+
+            ChannelGame(@NotNull GameState state, @NotNull SocketChannel client, @NotNull OutputSegments segments) {
+                this(state, client, new ChannelInputEngine(), new ChannelRenderingEngine(client, segments, differential));
+            }
+
+            private ChannelGame(@NotNull GameState state, @NotNull SocketChannel client,
+                                @NotNull ChannelInputEngine input, @NotNull ChannelRenderingEngine output) {
+                super(state, input, output);
+                this.client = client;
+                this.input = input;
+                this.output = output;
+            }
+
+            void begin(@NotNull SelectionKey key) {
+                onStart();
+                if (shouldStop()) {
+                    onStop();
+                    stopped = true;
+                }
+                update(key);
+            }
+
+            void handle(@NotNull SelectionKey key) {
+                if (key.isReadable()) {
+                    readBuffer.clear();
+                    int read;
+                    try {
+                        read = client.read(readBuffer);
+                    } catch (IOException e) {
+                        read = -1;
+                    }
+                    if (read < 0) {
+                        input.endOfInput();
+                    } else {
+                        input.decode(readBuffer.flip());
+                    }
+                    while (!stopped && input.hasAction()) {
+                        onAction(input.fetchAction());
+                        if (shouldStop()) {
+                            onStop();
+                            stopped = true;
+                        }
+                    }
+                }
+                update(key);
+            }
+
+            private void update(@NotNull SelectionKey key) {
+                output.flush();
+                if (output.checkError() || (stopped && !output.hasPending())) {
+                    close(key);
+                } else {
+                    key.interestOps(output.hasPending() ? SelectionKey.OP_WRITE : SelectionKey.OP_READ);
+                }
+            }
+
+            void close(@NotNull SelectionKey key) {
+                key.cancel();
+                closeQuietly(client);
+                connections.decrementAndGet();
+            }
+        }
+    }
+}
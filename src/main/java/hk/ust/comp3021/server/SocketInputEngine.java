@@ -0,0 +1,106 @@
+package hk.ust.comp3021.server;
+
+import hk.ust.comp3021.actions.Action;
+import hk.ust.comp3021.actions.Exit;
+import hk.ust.comp3021.actions.InvalidInput;
+import hk.ust.comp3021.game.InputEngine;
+import hk.ust.comp3021.tui.TerminalInputEngine;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.util.ArrayDeque;
+
+/**
+ * An input engine reading the commands and batches of {@link TerminalInputEngine}, one per line, from a socket.
+ * <p>
+ * Unlike a {@link java.util.Scanner}, it starts with a small buffer, which only grows for long batches,
+ * so an idle connection costs little memory. Lines longer than {@link #MAX_LINE_LENGTH} are read as invalid input.
+ */
+public final class SocketInputEngine implements InputEngine {
+
+    /**
+     * The maximum length of a line in bytes, including its line terminator.
+     */
+    public static final int MAX_LINE_LENGTH = TerminalInputEngine.LURD_PREFIX.length() + TerminalInputEngine.MAX_BATCH_LENGTH + 2;
+
+    private static final int INITIAL_BUFFER_SIZE = 128;
+
+    private final ReadableByteChannel channel;
+    private final ArrayDeque<Action> batch = new ArrayDeque<>();
+    private ByteBuffer buffer = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+    private boolean overflow;
+
+    /**
+     * @param channel The channel to read from, in blocking mode.
+     */
+    public SocketInputEngine(@NotNull ReadableByteChannel channel) {
+        this.channel = channel;
+    }
+
+    /**
+     * Fetch the next action of the current batch, or else the action on the next line, waiting for it to arrive.
+     *
+     * @return the user action, or {@link Exit} when the connection is closed.
+     */
+    @Override
+    public @NotNull Action fetchAction() {
+        if (!batch.isEmpty()) {
+            return batch.remove();
+        }
+        int scanned = 0;
+        while (true) {
+            for (int i = scanned; i < buffer.position(); ++i) {
+                if (buffer.get(i) == '\n') {
+                    return takeLine(i);
+                }
+            }
+            if (!buffer.hasRemaining()) {
+                if (buffer.capacity() < MAX_LINE_LENGTH) {
+                    buffer = ByteBuffer.allocate(Math.min(buffer.capacity() * 2, MAX_LINE_LENGTH)).put(buffer.flip());
+                } else {
+                    buffer.clear();
+                    overflow = true;
+                }
+            }
+            scanned = buffer.position();
+            try {
+                if (channel.read(buffer) < 0) {
+                    return Exit.of(-1);
+                }
+            } catch (IOException e) {
+                return Exit.of(-1);
+            }
+        }
+    }
+
+    private @NotNull Action takeLine(int end) {
+        var length = end;
+        if (length > 0 && buffer.get(length - 1) == '\r') {
+            --length;
+        }
+        if (overflow) {
+            batch.add(InvalidInput.of(-1));
+        } else {
+            TerminalInputEngine.parseActions(buffer.array(), 0, length, batch);
+        }
+        overflow = false;
+        buffer.flip().position(end + 1);
+        buffer.compact();
+        if (buffer.position() == 0 && buffer.capacity() > INITIAL_BUFFER_SIZE) {
+            buffer = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+        }
+        return batch.remove();
+    }
+
+    @Override
+    public boolean hasBufferedAction() {
+        return !batch.isEmpty();
+    }
+
+    @Override
+    public void discardBufferedActions() {
+        batch.clear();
+    }
+}
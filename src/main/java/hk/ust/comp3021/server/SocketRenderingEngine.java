@@ -0,0 +1,85 @@
+package hk.ust.comp3021.server;
+
+import hk.ust.comp3021.game.GameState;
+import hk.ust.comp3021.game.RenderingEngine;
+import hk.ust.comp3021.tui.AnsiFrameDiff;
+import hk.ust.comp3021.tui.TerminalRenderingEngine;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A rendering engine writing the same text as {@link TerminalRenderingEngine} to a socket.
+ * <p>
+ * It keeps no buffer between two frames, so an idle connection costs little memory,
+ * unless it draws differential frames, which keeps the previous frame.
+ * Like a {@link java.io.PrintStream}, it stops writing after the first error,
+ * which happens when the other side of the connection has gone.
+ */
+public final class SocketRenderingEngine implements RenderingEngine {
+
+    private final WritableByteChannel channel;
+    private final @Nullable AnsiFrameDiff frameDiff;
+    private boolean failed;
+
+    /**
+     * @param channel The channel to write to, in blocking mode.
+     */
+    public SocketRenderingEngine(@NotNull WritableByteChannel channel) {
+        this(channel, false);
+    }
+
+    /**
+     * @param channel      The channel to write to, in blocking mode.
+     * @param differential Whether to redraw only the cells changed since the previous frame, see {@link AnsiFrameDiff}.
+     */
+    public SocketRenderingEngine(@NotNull WritableByteChannel channel, boolean differential) {
+        this.channel = channel;
+        this.frameDiff = differential ? new AnsiFrameDiff() : null;
+    }
+
+    @Override
+    public void render(@NotNull GameState state) {
+        write(frameDiff == null ? TerminalRenderingEngine.renderFrame(state) : frameDiff.update(state));
+    }
+
+    @Override
+    public void message(@NotNull String content) {
+        write(content + System.lineSeparator());
+        if (frameDiff != null) {
+            frameDiff.message(content);
+        }
+    }
+
+    @Override
+    public void clearMessages() {
+        if (frameDiff != null) {
+            write(frameDiff.clearMessages());
+        }
+    }
+
+    /**
+     * @return True if writing to the channel has failed.
+     */
+    public boolean checkError() {
+        return failed;
+    }
+
+    private void write(@NotNull CharSequence text) {
+        if (failed) {
+            return;
+        }
+        final var buffer = ByteBuffer.wrap(text.toString().getBytes(StandardCharsets.UTF_8));
+        try {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        } catch (IOException e) {
+            failed = true;
+        }
+    }
+}
@@ -0,0 +1,241 @@
+package hk.ust.comp3021.server;
+
+import hk.ust.comp3021.game.GameMap;
+import hk.ust.comp3021.game.GameState;
+import hk.ust.comp3021.metrics.GameMetrics;
+import hk.ust.comp3021.session.SessionRegistry;
+import hk.ust.comp3021.tui.TerminalSokobanGame;
+import hk.ust.comp3021.utils.StringResources;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.time.Duration;
+
+/**
+ * Serves games on a TCP or Unix-domain socket, each connection playing its own game on the same map.
+ * <p>
+ * A connection speaks the protocol of the terminal game: it sends one command per line and receives the rendered map
+ * and messages as text. Every game runs in a {@link SessionRegistry}, so it has its own {@link GameState} and
+ * virtual thread, and a connection waiting for input holds no platform thread.
+ * A game ends when its player exits or wins, or when the connection is closed.
+ */
+public final class SokobanServer implements AutoCloseable {
+
+    /**
+     * The prefix of the address of a Unix-domain socket in {@link #parseAddress(String)}.
+     */
+    public static final String UNIX_ADDRESS_PREFIX = "unix:";
+
+    private static final int BACKLOG = 1024;
+
+    private final ServerSocketChannel channel;
+    private final SocketAddress localAddress;
+    private final GameMap map;
+    private final boolean differential;
+    private final SessionRegistry sessions;
+    private final Thread acceptor;
+    private volatile @Nullable GameMetrics metrics;
+
+    private SokobanServer(@NotNull ServerSocketChannel channel, @NotNull GameMap map, int maxSessions, boolean differential) throws IOException {
+        this.channel = channel;
+        this.localAddress = channel.getLocalAddress();
+        this.map = map;
+        this.differential = differential;
+        this.sessions = new SessionRegistry(maxSessions);
+        this.acceptor = Thread.ofVirtual().name("sokoban-acceptor").start(this::accept);
+    }
+
+    /**
+     * Start serving games without a limit on the number of connections.
+     *
+     * @param address The address to listen on, either an {@link InetSocketAddress} or a {@link UnixDomainSocketAddress}.
+     * @param map     The map of every game.
+     * @return The running server.
+     * @throws IOException if the address cannot be bound.
+     * @throws IllegalArgumentException if the map has more than two players.
+     */
+    public static @NotNull SokobanServer start(@NotNull SocketAddress address, @NotNull GameMap map) throws IOException {
+        return start(address, map, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Start serving games.
+     *
+     * @param address     The address to listen on, either an {@link InetSocketAddress} or a {@link UnixDomainSocketAddress}.
+     * @param map         The map of every game.
+     * @param maxSessions The maximum number of games running at the same time.
+     *                    Further connections are told so and closed.
+     * @return The running server.
+     * @throws IOException if the address cannot be bound.
+     * @throws IllegalArgumentException if the map has more than two players.
+     */
+    public static @NotNull SokobanServer start(@NotNull SocketAddress address, @NotNull GameMap map, int maxSessions) throws IOException {
+        return start(address, map, maxSessions, false);
+    }
+
+    /**
+     * Start serving games.
+     *
+     * @param address      The address to listen on, either an {@link InetSocketAddress} or a {@link UnixDomainSocketAddress}.
+     * @param map          The map of every game.
+     * @param maxSessions  The maximum number of games running at the same time.
+     *                     Further connections are told so and closed.
+     * @param differential Whether to send only the cells changed by every move,
+     *                     see {@link hk.ust.comp3021.tui.AnsiFrameDiff}.
+     * @return The running server.
+     * @throws IOException if the address cannot be bound.
+     * @throws IllegalArgumentException if the map has more than two players.
+     */
+    public static @NotNull SokobanServer start(@NotNull SocketAddress address, @NotNull GameMap map, int maxSessions,
+                                               boolean differential) throws IOException {
+        if (map.getPlayerIds().size() > 2) {
+            throw new IllegalArgumentException("A served map can have at most two players.");
+        }
+        final var channel = address instanceof UnixDomainSocketAddress
+            ? ServerSocketChannel.open(StandardProtocolFamily.UNIX)
+            : ServerSocketChannel.open();
+        try {
+            channel.bind(address, BACKLOG);
+            return new SokobanServer(channel, map, maxSessions, differential);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Parse a server address given on the command line.
+     *
+     * @param text Either {@code unix:<path>} for a Unix-domain socket, {@code <port>} for a TCP port on the loopback
+     *             interface, or {@code <host>:<port>}.
+     * @return The address.
+     * @throws IllegalArgumentException if the text is not a valid address.
+     */
+    public static @NotNull SocketAddress parseAddress(@NotNull String text) {
+        if (text.startsWith(UNIX_ADDRESS_PREFIX)) {
+            return UnixDomainSocketAddress.of(text.substring(UNIX_ADDRESS_PREFIX.length()));
+        }
+        final var colon = text.lastIndexOf(':');
+        try {
+            final var port = Integer.parseInt(text.substring(colon + 1));
+            return colon < 0
+                ? new InetSocketAddress(InetAddress.getLoopbackAddress(), port)
+                : new InetSocketAddress(text.substring(0, colon), port);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid server address: " + text, e);
+        }
+    }
+
+    /**
+     * @return The address the server listens on, with the actual port if it was bound to port 0.
+     */
+    public @NotNull SocketAddress getLocalAddress() {
+        return localAddress;
+    }
+
+    /**
+     * @return The games currently running.
+     */
+    public @NotNull SessionRegistry getSessions() {
+        return sessions;
+    }
+
+    /**
+     * Measure the games started from now on.
+     *
+     * @param metrics The metrics shared by the games, or null to stop measuring new games.
+     */
+    public void setMetrics(@Nullable GameMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Wait until the server is closed.
+     *
+     * @throws InterruptedException if the waiting thread is interrupted.
+     */
+    public void awaitTermination() throws InterruptedException {
+        acceptor.join();
+    }
+
+    /**
+     * Stop accepting connections and end every running game. The socket file of a Unix-domain socket is deleted.
+     */
+    @Override
+    public void close() {
+        closeQuietly(channel);
+        sessions.close();
+        try {
+            if (!acceptor.join(Duration.ofSeconds(1))) {
+                acceptor.interrupt();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (localAddress instanceof UnixDomainSocketAddress unix) {
+            try {
+                Files.deleteIfExists(unix.getPath());
+            } catch (IOException ignored) {
+                // The file is only left behind.
+            }
+        }
+    }
+
+    private void accept() {
+        while (channel.isOpen()) {
+            final SocketChannel client;
+            try {
+                client = channel.accept();
+            } catch (IOException e) {
+                // The server has been closed.
+                return;
+            }
+            try {
+                final var game = new SocketGame(new GameState(map), client, differential);
+                game.setMetrics(metrics);
+                sessions.start(game);
+            } catch (IllegalStateException e) {
+                new SocketRenderingEngine(client).message(StringResources.SERVER_FULL_MESSAGE);
+                closeQuietly(client);
+            }
+        }
+    }
+
+    private static void closeQuietly(@NotNull AutoCloseable closeable) {
+        try {
+            closeable.close();
+        } catch (Exception ignored) {
+            // Nothing is left to do with a channel which failed to close.
+        }
+    }
+
+    /**
+     * A terminal game played over a connection, which closes the connection when the game ends.
+     */
+    private static final class SocketGame extends TerminalSokobanGame {
+        private final SocketChannel client;
+
+        SocketGame(@NotNull GameState state, @NotNull SocketChannel client, boolean differential) {
+            super(state, new SocketInputEngine(client), new SocketRenderingEngine(client, differential));
+            this.client = client;
+        }
+
+        @Override
+        public void run() {
+            try {
+                super.run();
+            } finally {
+                closeQuietly(client);
+            }
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package hk.ust.comp3021.session;
+
+import hk.ust.comp3021.game.AbstractSokobanGame;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.time.Duration;
+
+/**
+ * A game hosted by a {@link SessionRegistry}, running on its own virtual thread.
+ */
+public final class GameSession {
+
+    private final long id;
+    private final AbstractSokobanGame game;
+    private final Thread thread;
+    private volatile @Nullable Throwable failure;
+
+    GameSession(long id, @NotNull AbstractSokobanGame game, @NotNull Runnable onFinish) {
+        this.id = id;
+        this.game = game;
+        // A thread builder is not thread-safe, so every session uses its own.
+        this.thread = Thread.ofVirtual().name("sokoban-session-" + id).unstarted(() -> {
+            try {
+                game.run();
+            } catch (Throwable e) {
+                this.failure = e;
+            } finally {
+                onFinish.run();
+            }
+        });
+    }
+
+    void start() {
+        this.thread.start();
+    }
+
+    /**
+     * @return The id of the session, unique within its registry.
+     */
+    public long getId() {
+        return id;
+    }
+
+    /**
+     * @return True if the game is still running.
+     */
+    public boolean isRunning() {
+        return thread.isAlive();
+    }
+
+    /**
+     * Wait for the game to finish.
+     *
+     * @param timeout The maximum time to wait.
+     * @return True if the game finished within the timeout.
+     * @throws InterruptedException if the waiting thread is interrupted.
+     */
+    public boolean await(@NotNull Duration timeout) throws InterruptedException {
+        return thread.join(timeout);
+    }
+
+    /**
+     * @return The exception which stopped the game, or null if the game is running or finished normally.
+     */
+    public @Nullable Throwable getFailure() {
+        return failure;
+    }
+
+    /**
+     * The estimate is only exact once the game has finished, since the game changes its state while running.
+     *
+     * @return The estimated memory used by the game in bytes.
+     * @see AbstractSokobanGame#estimateMemoryUsage()
+     */
+    public long estimateMemoryUsage() {
+        return game.estimateMemoryUsage();
+    }
+
+    void interrupt() {
+        thread.interrupt();
+    }
+}
@@ -0,0 +1,123 @@
+package hk.ust.comp3021.session;
+
+import hk.ust.comp3021.game.AbstractSokobanGame;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hosts many independent games in one JVM, each running on its own virtual thread.
+ * <p>
+ * A game only touches its own {@link hk.ust.comp3021.game.GameState}, so sessions do not need to synchronize with
+ * each other. A blocked game, for example one waiting for input, only holds its virtual thread and not a platform thread.
+ * Sessions leave the registry as soon as their game finishes.
+ * A session takes one of the registry's slots before it starts and gives it back when it finishes,
+ * so concurrent calls to {@link #start(AbstractSokobanGame)} never run more sessions than the maximum.
+ */
+public final class SessionRegistry implements AutoCloseable {
+
+    private final Map<Long, GameSession> sessions = new ConcurrentHashMap<>();
+    private final AtomicLong nextId = new AtomicLong();
+    private final Semaphore slots;
+    private volatile boolean closed;
+
+    /**
+     * Create a registry without a limit on the number of sessions.
+     */
+    public SessionRegistry() {
+        this(Integer.MAX_VALUE);
+    }
+
+    /**
+     * @param maxSessions The maximum number of sessions running at the same time.
+     */
+    public SessionRegistry(int maxSessions) {
+        if (maxSessions <= 0) {
+            throw new IllegalArgumentException("The maximum number of sessions must be positive.");
+        }
+        this.slots = new Semaphore(maxSessions);
+    }
+
+    /**
+     * Start running a game in a new session.
+     *
+     * @param game The game to run. It must not be running in another session.
+     * @return The new session.
+     * @throws IllegalStateException if the registry is closed or the maximum number of sessions is running.
+     */
+    public @NotNull GameSession start(@NotNull AbstractSokobanGame game) {
+        if (closed) {
+            throw new IllegalStateException("The session registry is closed.");
+        }
+        if (!slots.tryAcquire()) {
+            throw new IllegalStateException("Too many sessions are running.");
+        }
+        final var id = nextId.getAndIncrement();
+        final var session = new GameSession(id, game, () -> {
+            sessions.remove(id);
+            slots.release();
+        });
+        sessions.put(id, session);
+        session.start();
+        return session;
+    }
+
+    /**
+     * @param id The id of the session.
+     * @return The running session with the given id, or null if there is none.
+     */
+    public @Nullable GameSession get(long id) {
+        return sessions.get(id);
+    }
+
+    /**
+     * @return The number of running sessions.
+     */
+    public int size() {
+        return sessions.size();
+    }
+
+    /**
+     * @return The estimated memory used by the games of all running sessions in bytes.
+     */
+    public long estimateMemoryUsage() {
+        long total = 0;
+        for (var session : sessions.values()) {
+            total += session.estimateMemoryUsage();
+        }
+        return total;
+    }
+
+    /**
+     * Wait for every running session to finish.
+     *
+     * @param timeout The maximum time to wait for each session.
+     * @return True if every session finished.
+     * @throws InterruptedException if the waiting thread is interrupted.
+     */
+    public boolean awaitAll(@NotNull Duration timeout) throws InterruptedException {
+        for (var session : List.copyOf(sessions.values())) {
+            if (!session.await(timeout)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Stop accepting sessions and interrupt the running ones.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        for (var session : sessions.values()) {
+            session.interrupt();
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package hk.ust.comp3021.solver;
+
+import hk.ust.comp3021.entities.*;
+import hk.ust.comp3021.game.GameMap;
+import hk.ust.comp3021.game.Position;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+
+/**
+ * The static analysis of a {@link GameMap} shared by all states of a search:
+ * which cells can be walked on, where the destinations are,
+ * and how many pushes a box needs at least to reach a destination from each cell.
+ * <p>
+ * Cells are numbered row by row on the map padded by one cell outside the map on every side,
+ * so that a step from any cell in the map never wraps around to another row.
+ * Box codes pack the cell of a box with the id of its owner: {@code cell << OWNER_BITS | owner}.
+ */
+final class Board {
+
+    static final int OWNER_BITS = 5;
+    static final int OWNER_MASK = (1 << OWNER_BITS) - 1;
+
+    /**
+     * The distance of a cell from which a box can never reach a destination.
+     */
+    static final int UNREACHABLE = Integer.MAX_VALUE;
+
+    /**
+     * The maximum number of entries in the per-destination distance tables,
+     * above which the heuristic falls back to the distance to the nearest destination.
+     */
+    private static final long MAX_DISTANCE_ENTRIES = 1 << 22;
+
+    private final int width;
+    private final int size;
+    private final int[] offsets;
+    private final boolean[] floor;
+    private final boolean[] goal;
+    private final int[] goals;
+    private final int[] nearestGoalDistance;
+    private final int[][] goalDistances;
+    private final int[] initialBoxes;
+    private final int[] initialPlayers;
+
+    /**
+     * @param map The game map to analyse.
+     */
+    Board(@NotNull GameMap map) {
+        this.width = map.getMaxWidth() + 2;
+        this.size = Math.toIntExact((long) this.width * (map.getMaxHeight() + 2));
+        this.offsets = new int[]{-this.width, this.width, -1, 1};
+        this.floor = new boolean[this.size];
+        this.goal = new boolean[this.size];
+
+        var boxes = new int[16];
+        int boxCount = 0;
+        this.initialPlayers = new int[OWNER_MASK + 1];
+        Arrays.fill(this.initialPlayers, -1);
+        for (int y = 0; y < map.getMaxHeight(); ++y) {
+            for (int x = 0; x < map.getMaxWidth(); ++x) {
+                final var cell = cell(x, y);
+                switch (map.getEntity(Position.of(x, y))) {
+                    case null -> {
+                    }
+                    case Wall ignored -> {
+                    }
+                    case Empty ignored -> this.floor[cell] = true;
+                    case Player p -> {
+                        this.floor[cell] = true;
+                        this.initialPlayers[p.getId()] = cell;
+                    }
+                    case Box b -> {
+                        this.floor[cell] = true;
+                        if (boxCount == boxes.length) {
+                            boxes = Arrays.copyOf(boxes, boxCount * 2);
+                        }
+                        boxes[boxCount++] = cell << OWNER_BITS | b.getPlayerId();
+                    }
+                }
+            }
+        }
+        this.initialBoxes = Arrays.copyOf(boxes, boxCount);
+        Arrays.sort(this.initialBoxes);
+
+        this.goals = map.getDestinations().stream()
+            .mapToInt(it -> cell(it.x(), it.y()))
+            .filter(it -> this.floor[it])
+            .sorted()
+            .toArray();
+        for (var cell : this.goals) {
+            this.goal[cell] = true;
+        }
+        this.nearestGoalDistance = pullDistances(this.goals);
+        if ((long) this.goals.length * this.size <= MAX_DISTANCE_ENTRIES) {
+            this.goalDistances = new int[this.goals.length][];
+            for (int i = 0; i < this.goals.length; ++i) {
+                this.goalDistances[i] = pullDistances(new int[]{this.goals[i]});
+            }
+        } else {
+            this.goalDistances = null;
+        }
+    }
+
+    /**
+     * @return The number of cells, including the padding.
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * @param direction One of 0 (up), 1 (down), 2 (left) and 3 (right).
+     * @return The difference between the index of a cell and the index of its neighbour in the direction.
+     */
+    int offset(int direction) {
+        return offsets[direction];
+    }
+
+    boolean isFloor(int cell) {
+        return floor[cell];
+    }
+
+    boolean isGoal(int cell) {
+        return goal[cell];
+    }
+
+    /**
+     * @param cell The cell.
+     * @return Whether a box on the cell can never be pushed to any destination, regardless of the other boxes.
+     */
+    boolean isDead(int cell) {
+        return nearestGoalDistance[cell] == UNREACHABLE;
+    }
+
+    /**
+     * @return The box codes at the start of the game, sorted.
+     */
+    int @NotNull [] initialBoxes() {
+        return initialBoxes.clone();
+    }
+
+    /**
+     * @param id The id of the player.
+     * @return The cell of the player at the start of the game, or -1 if there is no such player.
+     */
+    int initialPlayer(int id) {
+        return initialPlayers[id];
+    }
+
+    /**
+     * Estimate the number of pushes still needed to put every box on a destination.
+     * Every box is matched greedily with the closest destination not yet taken by another box,
+     * so the estimate is close to, but not always below, the real number of pushes.
+     *
+     * @param state The state holding the box codes.
+     * @param from  The index of the first box code in the state.
+     * @return The estimated number of pushes.
+     */
+    int estimate(int @NotNull [] state, int from) {
+        int total = 0;
+        if (goalDistances == null) {
+            for (int i = from; i < state.length; ++i) {
+                total += nearestGoalDistance[state[i] >>> OWNER_BITS];
+            }
+            return total;
+        }
+        final var taken = new boolean[goals.length];
+        for (int i = from; i < state.length; ++i) {
+            final var cell = state[i] >>> OWNER_BITS;
+            int best = -1;
+            for (int g = 0; g < goals.length; ++g) {
+                if (!taken[g] && goalDistances[g][cell] != UNREACHABLE
+                    && (best < 0 || goalDistances[g][cell] < goalDistances[best][cell])) {
+                    best = g;
+                }
+            }
+            if (best < 0) {
+                total += nearestGoalDistance[cell];
+            } else {
+                taken[best] = true;
+                total += goalDistances[best][cell];
+            }
+        }
+        return total;
+    }
+
+    private int cell(int x, int y) {
+        return (y + 1) * width + x + 1;
+    }
+
+    /**
+     * Count the pushes needed to move a box from every cell to the nearest of the given cells,
+     * by pulling boxes backwards from them, ignoring the other boxes and the players.
+     */
+    private int @NotNull [] pullDistances(int @NotNull [] targets) {
+        final var distances = new int[size];
+        Arrays.fill(distances, UNREACHABLE);
+        final var queue = new int[size];
+        int tail = 0;
+        for (var target : targets) {
+            distances[target] = 0;
+            queue[tail++] = target;
+        }
+        for (int head = 0; head < tail; ++head) {
+            final var cell = queue[head];
+            for (var offset : offsets) {
+                final var box = cell - offset;
+                final var player = box - offset;
+                if (floor[box] && floor[player] && distances[box] == UNREACHABLE) {
+                    distances[box] = distances[cell] + 1;
+                    queue[tail++] = box;
+                }
+            }
+        }
+        return distances;
+    }
+}
@@ -0,0 +1,338 @@
+package hk.ust.comp3021.solver;
+
+import hk.ust.comp3021.actions.Move;
+import hk.ust.comp3021.game.GameMap;
+import hk.ust.comp3021.utils.ShouldNotReachException;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Generates the successors of search states on a {@link Board}, following the rules of
+ * {@link hk.ust.comp3021.game.AbstractSokobanGame}: only players A and B can move, and a player can only push its own boxes.
+ * <p>
+ * A state is encoded as a few ints: the cell of every player followed by the sorted box codes (see {@link Board}).
+ * <li>With a single player, a transition is one push, and a state keeps the top-left cell the player can walk to
+ * instead of its exact cell, so that all the ways of walking between two pushes are the same state.</li>
+ * <li>With more players, the players may block each other, so a transition is one step
+ * and a state keeps the exact cell of every player.</li>
+ * <p>
+ * Boxes are never pushed onto cells from which no destination can be reached.
+ * An expander keeps the working arrays of its flood fills, so every thread of a search needs its own.
+ */
+final class Expander {
+
+    private static final int DIRECTIONS = 4;
+    private static final int MOVABLE_PLAYERS = 2;
+
+    /**
+     * Receives the successors of a state.
+     */
+    @FunctionalInterface
+    interface Successors {
+        /**
+         * @param next       The successor, only valid until the method returns.
+         * @param transition The transition from the expanded state to the successor.
+         * @return Whether to continue with the other successors.
+         */
+        boolean accept(int @NotNull [] next, int transition);
+    }
+
+    private final Board board;
+    private final int[] playerIds;
+    private final boolean pushLevel;
+
+    private final byte[] boxAt;
+    private final boolean[] playerAt;
+    private final int[] marks;
+    private final int[] region;
+    private final int[] queue;
+    private final byte[] via;
+    private int[] next = new int[0];
+    private int stamp;
+
+    /**
+     * @param board     The board to search on.
+     * @param playerIds The sorted ids of the players on the board.
+     */
+    Expander(@NotNull Board board, int @NotNull [] playerIds) {
+        this.board = board;
+        this.playerIds = playerIds;
+        this.pushLevel = playerIds.length == 1;
+        this.boxAt = new byte[board.size()];
+        this.playerAt = new boolean[board.size()];
+        this.marks = new int[board.size()];
+        this.region = new int[board.size()];
+        this.queue = new int[board.size()];
+        this.via = new byte[board.size()];
+    }
+
+    /**
+     * @param map The game map.
+     * @return The sorted ids of the players on the map.
+     */
+    static int @NotNull [] playerIds(@NotNull GameMap map) {
+        return map.getPlayerIds().stream().mapToInt(Integer::intValue).sorted().toArray();
+    }
+
+    /**
+     * @return The initial state of the search,
+     * or null if some box can never reach a destination, so the game cannot be won.
+     */
+    int @Nullable [] initialState() {
+        final var boxes = board.initialBoxes();
+        for (var box : boxes) {
+            final var cell = box >>> Board.OWNER_BITS;
+            if (!board.isGoal(cell) && (board.isDead(cell) || !isMovable(box & Board.OWNER_MASK))) {
+                return null;
+            }
+        }
+        final var root = new int[playerIds.length + boxes.length];
+        for (int slot = 0; slot < playerIds.length; ++slot) {
+            root[slot] = board.initialPlayer(playerIds[slot]);
+        }
+        System.arraycopy(boxes, 0, root, playerIds.length, boxes.length);
+        if (pushLevel) {
+            placeBoxes(root);
+            root[0] = normalize(root[0]);
+            clearBoxes(root);
+        }
+        return root;
+    }
+
+    /**
+     * @param state The state.
+     * @return Whether every box of the state is on a destination.
+     */
+    boolean isSolved(int @NotNull [] state) {
+        for (int i = playerIds.length; i < state.length; ++i) {
+            if (!board.isGoal(state[i] >>> Board.OWNER_BITS)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param state The state.
+     * @return The estimated cost of solving the state, see {@link Board#estimate(int[], int)}.
+     */
+    int estimate(int @NotNull [] state) {
+        return board.estimate(state, playerIds.length);
+    }
+
+    /**
+     * Generate the successors of a state.
+     *
+     * @param state      The state.
+     * @param successors The receiver of the successors.
+     * @return False if the receiver stopped the expansion.
+     */
+    boolean expand(int @NotNull [] state, @NotNull Successors successors) {
+        if (next.length != state.length) {
+            next = new int[state.length];
+        }
+        placeBoxes(state);
+        try {
+            return pushLevel ? expandPushes(state, successors) : expandSteps(state, successors);
+        } finally {
+            clearBoxes(state);
+        }
+    }
+
+    private boolean expandPushes(int @NotNull [] state, @NotNull Successors successors) {
+        final var reached = fill(state[0], region);
+        for (int i = 0; i < reached; ++i) {
+            for (int direction = 0; direction < DIRECTIONS; ++direction) {
+                final var box = region[i] + board.offset(direction);
+                if (!canPush(0, box, direction)) {
+                    continue;
+                }
+                push(state, box, direction);
+                final var target = box + board.offset(direction);
+                boxAt[target] = boxAt[box];
+                boxAt[box] = 0;
+                next[0] = normalize(box);
+                boxAt[box] = boxAt[target];
+                boxAt[target] = 0;
+                if (!successors.accept(next, box << 2 | direction)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private boolean expandSteps(int @NotNull [] state, @NotNull Successors successors) {
+        for (int slot = 0; slot < playerIds.length; ++slot) {
+            if (!isMovable(playerIds[slot])) {
+                continue;
+            }
+            for (int direction = 0; direction < DIRECTIONS; ++direction) {
+                final var target = state[slot] + board.offset(direction);
+                if (!board.isFloor(target) || playerAt[target]) {
+                    continue;
+                }
+                if (boxAt[target] == 0) {
+                    System.arraycopy(state, 0, next, 0, state.length);
+                } else if (canPush(slot, target, direction)) {
+                    push(state, target, direction);
+                } else {
+                    continue;
+                }
+                next[slot] = target;
+                if (!successors.accept(next, slot << 2 | direction)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Turn the transitions from the initial state to a solved state into the moves of the players.
+     *
+     * @param transitions The transitions, in order.
+     * @return The moves.
+     */
+    @NotNull List<Move> moves(@NotNull List<Integer> transitions) {
+        final var moves = new ArrayList<Move>();
+        if (!pushLevel) {
+            for (var transition : transitions) {
+                moves.add(Move.of(playerIds[transition >>> 2], transition & 3));
+            }
+            return moves;
+        }
+
+        final var id = playerIds[0];
+        final var boxes = board.initialBoxes();
+        for (var box : boxes) {
+            boxAt[box >>> Board.OWNER_BITS] = (byte) ((box & Board.OWNER_MASK) + 1);
+        }
+        int player = board.initialPlayer(id);
+        for (var transition : transitions) {
+            final var box = transition >>> 2;
+            final var direction = transition & 3;
+            walk(player, box - board.offset(direction), id, moves);
+            moves.add(Move.of(id, direction));
+            boxAt[box + board.offset(direction)] = boxAt[box];
+            boxAt[box] = 0;
+            player = box;
+        }
+        Arrays.fill(boxAt, (byte) 0);
+        return moves;
+    }
+
+    /**
+     * Append the moves of a shortest walk between two cells, around the boxes currently placed.
+     */
+    private void walk(int from, int to, int id, @NotNull List<Move> moves) {
+        fill(from, queue);
+        if (marks[to] != stamp) {
+            throw new ShouldNotReachException();
+        }
+        final var start = moves.size();
+        for (int cell = to; cell != from; cell -= board.offset(via[cell])) {
+            moves.add(Move.of(id, via[cell]));
+        }
+        Collections.reverse(moves.subList(start, moves.size()));
+    }
+
+    /**
+     * Mark every cell a player can walk to from a cell, around the boxes and the players currently placed.
+     *
+     * @param start   The cell of the player.
+     * @param reached The array receiving the reached cells, in the order of their distance from the start.
+     * @return The number of reached cells.
+     */
+    private int fill(int start, int @NotNull [] reached) {
+        if (++stamp == 0) {
+            Arrays.fill(marks, 0);
+            stamp = 1;
+        }
+        marks[start] = stamp;
+        reached[0] = start;
+        int tail = 1;
+        for (int head = 0; head < tail; ++head) {
+            final var cell = reached[head];
+            for (int direction = 0; direction < DIRECTIONS; ++direction) {
+                final var neighbour = cell + board.offset(direction);
+                if (marks[neighbour] != stamp && board.isFloor(neighbour) && boxAt[neighbour] == 0 && !playerAt[neighbour]) {
+                    marks[neighbour] = stamp;
+                    via[neighbour] = (byte) direction;
+                    reached[tail++] = neighbour;
+                }
+            }
+        }
+        return tail;
+    }
+
+    /**
+     * @return The top-left cell a player can walk to from a cell.
+     */
+    private int normalize(int start) {
+        final var reached = fill(start, queue);
+        int min = start;
+        for (int i = 1; i < reached; ++i) {
+            min = Math.min(min, queue[i]);
+        }
+        return min;
+    }
+
+    private boolean canPush(int slot, int box, int direction) {
+        if (boxAt[box] != playerIds[slot] + 1) {
+            return false;
+        }
+        final var target = box + board.offset(direction);
+        return board.isFloor(target) && boxAt[target] == 0 && !playerAt[target] && !board.isDead(target);
+    }
+
+    /**
+     * Copy a state into {@link #next}, moving one box by one cell and keeping the box codes sorted.
+     */
+    private void push(int @NotNull [] state, int box, int direction) {
+        System.arraycopy(state, 0, next, 0, state.length);
+        final var owner = boxAt[box] - 1;
+        final var code = (box + board.offset(direction)) << Board.OWNER_BITS | owner;
+        int i = Arrays.binarySearch(next, playerIds.length, next.length, box << Board.OWNER_BITS | owner);
+        while (i > playerIds.length && next[i - 1] > code) {
+            next[i] = next[i - 1];
+            --i;
+        }
+        while (i < next.length - 1 && next[i + 1] < code) {
+            next[i] = next[i + 1];
+            ++i;
+        }
+        next[i] = code;
+    }
+
+    private void placeBoxes(int @NotNull [] state) {
+        for (int i = playerIds.length; i < state.length; ++i) {
+            boxAt[state[i] >>> Board.OWNER_BITS] = (byte) ((state[i] & Board.OWNER_MASK) + 1);
+        }
+        if (!pushLevel) {
+            for (int slot = 0; slot < playerIds.length; ++slot) {
+                playerAt[state[slot]] = true;
+            }
+        }
+    }
+
+    private void clearBoxes(int @NotNull [] state) {
+        for (int i = playerIds.length; i < state.length; ++i) {
+            boxAt[state[i] >>> Board.OWNER_BITS] = 0;
+        }
+        if (!pushLevel) {
+            for (int slot = 0; slot < playerIds.length; ++slot) {
+                playerAt[state[slot]] = false;
+            }
+        }
+    }
+
+    private boolean isMovable(int id) {
+        return id < MOVABLE_PLAYERS && board.initialPlayer(id) >= 0;
+    }
+}
@@ -0,0 +1,69 @@
+package hk.ust.comp3021.solver;
+
+import java.util.Arrays;
+
+/**
+ * A binary min-heap of state ids ordered by their estimated total cost.
+ * Among states with the same estimate, the one with the largest id, usually the most recently added, comes first.
+ * Every entry is a single long, so the heap allocates nothing but its array.
+ */
+final class Frontier {
+
+    private long[] entries = new long[1024];
+    private int size;
+
+    /**
+     * @param estimate The estimated total cost of the state.
+     * @param id       The id of the state.
+     * @return The heap entry of the state.
+     */
+    static long entry(int estimate, int id) {
+        return (long) estimate << Integer.SIZE | (Integer.MAX_VALUE - id);
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    void push(int estimate, int id) {
+        push(entry(estimate, id));
+    }
+
+    void push(long entry) {
+        if (size == entries.length) {
+            entries = Arrays.copyOf(entries, size * 2);
+        }
+        int i = size++;
+        while (i > 0 && entries[(i - 1) / 2] > entry) {
+            entries[i] = entries[(i - 1) / 2];
+            i = (i - 1) / 2;
+        }
+        entries[i] = entry;
+    }
+
+    /**
+     * @return The id of the state with the lowest estimate, removed from the heap.
+     */
+    int pop() {
+        final var top = entries[0];
+        final var last = entries[--size];
+        int i = 0;
+        while (2 * i + 1 < size) {
+            int child = 2 * i + 1;
+            if (child + 1 < size && entries[child + 1] < entries[child]) {
+                ++child;
+            }
+            if (entries[child] >= last) {
+                break;
+            }
+            entries[i] = entries[child];
+            i = child;
+        }
+        entries[i] = last;
+        return Integer.MAX_VALUE - (int) top;
+    }
+}
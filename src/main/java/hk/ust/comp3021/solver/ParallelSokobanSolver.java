@@ -0,0 +1,276 @@
+package hk.ust.comp3021.solver;
+
+import hk.ust.comp3021.actions.Move;
+import hk.ust.comp3021.game.GameMap;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Finds a sequence of moves which wins a game on a {@link GameMap}, like {@link SokobanSolver}, using many threads.
+ * <p>
+ * The search runs in rounds. Every round takes the most promising states from the frontier
+ * and expands them in parallel on a {@link ForkJoinPool}, which splits the batch among its threads and
+ * lets idle threads steal the remaining work. The visited states are shared through a {@link StripedStateTable}.
+ * <p>
+ * The search stops as soon as a solution is found, when the time budget or the maximum number of states
+ * is exceeded, or when {@link #cancel()} is called. Threads check these conditions between two states,
+ * so a stopped search returns within the time of expanding a single state.
+ * Cancelling only stops the searches running at that time; later searches run as usual.
+ * <p>
+ * The per-thread search buffers are kept by the solver and lent to the tasks,
+ * rather than kept in the pool threads, so they go away together with the solver.
+ */
+public final class ParallelSokobanSolver {
+
+    /**
+     * The default maximum duration of a search.
+     */
+    public static final Duration DEFAULT_TIME_BUDGET = Duration.ofSeconds(30);
+
+    private static final int BATCH_PER_THREAD = 64;
+    private static final int SPLIT_THRESHOLD = 8;
+
+    private final Board board;
+    private final int[] playerIds;
+    private final ForkJoinPool pool;
+    private final Duration timeBudget;
+    private final int maxStates;
+    private final ConcurrentLinkedQueue<Expander> expanders = new ConcurrentLinkedQueue<>();
+    private final Set<Search> running = ConcurrentHashMap.newKeySet();
+    private @Nullable SearchStatistics statistics;
+
+    /**
+     * Create a solver running on the common pool, with the default time budget and maximum number of states.
+     *
+     * @param map The game map to solve.
+     */
+    public ParallelSokobanSolver(@NotNull GameMap map) {
+        this(map, ForkJoinPool.commonPool(), DEFAULT_TIME_BUDGET, SokobanSolver.DEFAULT_MAX_STATES);
+    }
+
+    /**
+     * @param map        The game map to solve.
+     * @param pool       The pool expanding the states.
+     * @param timeBudget The maximum duration of a search.
+     * @param maxStates  The maximum number of states visited before the search gives up.
+     */
+    public ParallelSokobanSolver(@NotNull GameMap map, @NotNull ForkJoinPool pool, @NotNull Duration timeBudget, int maxStates) {
+        if (maxStates <= 0 || maxStates > StripedStateTable.MAX_STATES) {
+            throw new IllegalArgumentException("The maximum number of states must be between 1 and " + StripedStateTable.MAX_STATES + ".");
+        }
+        if (timeBudget.isNegative()) {
+            throw new IllegalArgumentException("The time budget cannot be negative.");
+        }
+        this.board = new Board(map);
+        this.playerIds = Expander.playerIds(map);
+        this.pool = pool;
+        this.timeBudget = timeBudget;
+        this.maxStates = maxStates;
+    }
+
+    /**
+     * Take an idle expander, or create one if every expander is in use.
+     * It must be given back with {@link #release(Expander)}.
+     */
+    private @NotNull Expander borrow() {
+        final var expander = expanders.poll();
+        return expander != null ? expander : new Expander(board, playerIds);
+    }
+
+    private void release(@NotNull Expander expander) {
+        expanders.add(expander);
+    }
+
+    /**
+     * Search for a solution.
+     *
+     * @return The moves which win the game, or empty if the game cannot be won
+     * or no solution was found within the time budget and the maximum number of states, or the search was cancelled.
+     */
+    public @NotNull Optional<List<Move>> solve() {
+        final var expander = borrow();
+        try {
+            return solve(expander);
+        } finally {
+            release(expander);
+        }
+    }
+
+    private @NotNull Optional<List<Move>> solve(@NotNull Expander expander) {
+        final var start = System.nanoTime();
+        final var root = expander.initialState();
+        if (root == null || expander.isSolved(root)) {
+            statistics = new SearchStatistics(root == null ? 0 : 1, Duration.ofNanos(System.nanoTime() - start),
+                pool.getParallelism(), true);
+            return root == null ? Optional.empty() : Optional.of(List.of());
+        }
+
+        final var search = new Search(root.length, start + Math.min(timeBudget.toNanos(), Long.MAX_VALUE / 2));
+        final var frontier = new Frontier();
+        frontier.push(expander.estimate(root), search.table.addIfAbsent(root, -1, 0, 0));
+        final var batchSize = BATCH_PER_THREAD * pool.getParallelism();
+        running.add(search);
+        try {
+            while (!frontier.isEmpty() && !search.shouldStop()) {
+                final var batch = new int[Math.min(batchSize, frontier.size())];
+                for (int i = 0; i < batch.length; ++i) {
+                    batch[i] = frontier.pop();
+                }
+                for (var entry : pool.invoke(new ExpandTask(search, batch, 0, batch.length))) {
+                    frontier.push(entry);
+                }
+            }
+        } finally {
+            running.remove(search);
+        }
+
+        final var table = search.table;
+        final var solved = search.solved.get();
+        final var exhausted = solved < 0 && frontier.isEmpty() && !search.shouldStop();
+        statistics = new SearchStatistics(table.size(), Duration.ofNanos(System.nanoTime() - start),
+            pool.getParallelism(), exhausted);
+        if (solved < 0) {
+            return Optional.empty();
+        }
+        final var transitions = new ArrayList<Integer>();
+        for (int id = solved; table.parent(id) >= 0; id = table.parent(id)) {
+            transitions.add(table.transition(id));
+        }
+        Collections.reverse(transitions);
+        return Optional.of(expander.moves(transitions));
+    }
+
+    /**
+     * Stop the running searches, if any. They return no solution unless one was already found.
+     */
+    public void cancel() {
+        for (var search : running) {
+            search.cancelled = true;
+        }
+    }
+
+    /**
+     * @return The statistics of the last search, or null if the solver has not searched yet.
+     */
+    public @Nullable SearchStatistics getStatistics() {
+        return statistics;
+    }
+
+    /**
+     * The shared state of one search.
+     */
+    private final class Search {
+        private final int stride;
+        private final StripedStateTable table;
+        private final long deadline;
+        private final AtomicInteger solved = new AtomicInteger(-1);
+        private volatile boolean limitReached;
+        private volatile boolean cancelled;
+
+        Search(int stride, long deadline) {
+            this.stride = stride;
+            this.table = new StripedStateTable(stride);
+            this.deadline = deadline;
+        }
+
+        boolean shouldStop() {
+            return solved.get() >= 0 || limitReached || cancelled || System.nanoTime() - deadline > 0;
+        }
+    }
+
+    /**
+     * Expands a range of a batch of states, returning the frontier entries of the new states.
+     */
+    private final class ExpandTask extends RecursiveTask<long[]> {
+        private final Search search;
+        private final int[] batch;
+        private final int from;
+        private final int to;
+
+        ExpandTask(@NotNull Search search, int @NotNull [] batch, int from, int to) {
+            this.search = search;
+            this.batch = batch;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected long @NotNull [] compute() {
+            if (to - from > SPLIT_THRESHOLD) {
+                final var middle = (from + to) >>> 1;
+                final var left = new ExpandTask(search, batch, from, middle);
+                left.fork();
+                final var right = new ExpandTask(search, batch, middle, to).compute();
+                final var leftEntries = left.join();
+                final var entries = Arrays.copyOf(leftEntries, leftEntries.length + right.length);
+                System.arraycopy(right, 0, entries, leftEntries.length, right.length);
+                return entries;
+            }
+
+            final var expander = borrow();
+            try {
+                final var table = search.table;
+                final var state = new int[search.stride];
+                final var successors = new Successors(expander);
+                for (int i = from; i < to && !search.shouldStop(); ++i) {
+                    successors.parent = batch[i];
+                    successors.cost = table.cost(batch[i]) + 1;
+                    table.get(batch[i], state);
+                    expander.expand(state, successors);
+                }
+                return Arrays.copyOf(successors.entries, successors.size);
+            } finally {
+                release(expander);
+            }
+        }
+
+        /**
+         * Adds the successors of the states of one task to the shared table.
+         */
+        private final class Successors implements Expander.Successors {
+            private final Expander expander;
+            private int parent;
+            private int cost;
+            private long[] entries = new long[64];
+            private int size;
+
+            Successors(@NotNull Expander expander) {
+                this.expander = expander;
+            }
+
+            @Override
+            public boolean accept(int @NotNull [] next, int transition) {
+                if (search.table.size() >= maxStates) {
+                    search.limitReached = true;
+                    return false;
+                }
+                final var id = search.table.addIfAbsent(next, parent, transition, cost);
+                if (id < 0) {
+                    return true;
+                }
+                if (expander.isSolved(next)) {
+                    search.solved.compareAndSet(-1, id);
+                    return false;
+                }
+                if (size == entries.length) {
+                    entries = Arrays.copyOf(entries, size * 2);
+                }
+                entries[size++] = Frontier.entry(cost + expander.estimate(next), id);
+                return true;
+            }
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package hk.ust.comp3021.solver;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.time.Duration;
+
+/**
+ * Statistics of a finished search.
+ *
+ * @param states    The number of distinct states visited.
+ * @param elapsed   The wall-clock time of the search.
+ * @param threads   The number of threads expanding states.
+ * @param exhausted Whether every reachable state was visited,
+ *                  so that finding no solution proves the game cannot be won.
+ */
+public record SearchStatistics(long states, @NotNull Duration elapsed, int threads, boolean exhausted) {
+
+    /**
+     * @return The number of states visited per second.
+     */
+    public double statesPerSecond() {
+        final var nanos = elapsed.toNanos();
+        return nanos == 0 ? 0 : states * 1e9 / nanos;
+    }
+}
@@ -0,0 +1,131 @@
+package hk.ust.comp3021.solver;
+
+import hk.ust.comp3021.actions.Move;
+import hk.ust.comp3021.game.GameMap;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Finds a sequence of moves which wins a game on a {@link GameMap}, following the rules of
+ * {@link hk.ust.comp3021.game.AbstractSokobanGame}: only players A and B can move, and a player can only push its own boxes.
+ * <p>
+ * The solver runs an A* search, estimating the remaining cost of a state by matching its boxes with destinations.
+ * With a single player the search advances one push at a time, with more players one step at a time
+ * (see {@link Expander}).
+ * The solutions found are short, but not guaranteed to be the shortest.
+ * A solver is not thread-safe; see {@link ParallelSokobanSolver} for a search using many threads.
+ */
+public final class SokobanSolver {
+
+    /**
+     * The default maximum number of states visited before the search gives up.
+     */
+    public static final int DEFAULT_MAX_STATES = 1 << 22;
+
+    private final Expander expander;
+    private final int maxStates;
+    private @Nullable SearchStatistics statistics;
+
+    /**
+     * @param map The game map to solve.
+     */
+    public SokobanSolver(@NotNull GameMap map) {
+        this(map, DEFAULT_MAX_STATES);
+    }
+
+    /**
+     * @param map       The game map to solve.
+     * @param maxStates The maximum number of states visited before the search gives up.
+     */
+    public SokobanSolver(@NotNull GameMap map, int maxStates) {
+        if (maxStates <= 0) {
+            throw new IllegalArgumentException("The maximum number of states must be positive.");
+        }
+        this.expander = new Expander(new Board(map), Expander.playerIds(map));
+        this.maxStates = maxStates;
+    }
+
+    /**
+     * Search for a solution.
+     *
+     * @return The moves which win the game, or empty if the game cannot be won
+     * or no solution was found within the maximum number of states.
+     */
+    public @NotNull Optional<List<Move>> solve() {
+        final var start = System.nanoTime();
+        final var root = expander.initialState();
+        if (root == null || expander.isSolved(root)) {
+            statistics = new SearchStatistics(root == null ? 0 : 1, Duration.ofNanos(System.nanoTime() - start), 1, true);
+            return root == null ? Optional.empty() : Optional.of(List.of());
+        }
+
+        final var search = new Search(root);
+        final var state = new int[root.length];
+        while (!search.frontier.isEmpty() && search.solved < 0 && !search.limitReached) {
+            search.parent = search.frontier.pop();
+            search.table.get(search.parent, state);
+            expander.expand(state, search);
+        }
+
+        final var table = search.table;
+        final var exhausted = search.solved < 0 && !search.limitReached;
+        statistics = new SearchStatistics(table.size(), Duration.ofNanos(System.nanoTime() - start), 1, exhausted);
+        if (search.solved < 0) {
+            return Optional.empty();
+        }
+        final var transitions = new ArrayList<Integer>();
+        for (int id = search.solved; table.parent(id) >= 0; id = table.parent(id)) {
+            transitions.add(table.transition(id));
+        }
+        Collections.reverse(transitions);
+        return Optional.of(expander.moves(transitions));
+    }
+
+    /**
+     * @return The statistics of the last search, or null if the solver has not searched yet.
+     */
+    public @Nullable SearchStatistics getStatistics() {
+        return statistics;
+    }
+
+    /**
+     * The visited states and the frontier of one search, receiving the successors of the state being expanded.
+     */
+    private final class Search implements Expander.Successors {
+        private final StateTable table;
+        private final Frontier frontier = new Frontier();
+        private int parent;
+        private int solved = -1;
+        private boolean limitReached;
+
+        Search(int @NotNull [] root) {
+            this.table = new StateTable(root.length);
+            this.frontier.push(expander.estimate(root), table.add(root, -1, 0, 0));
+        }
+
+        @Override
+        public boolean accept(int @NotNull [] next, int transition) {
+            if (table.find(next) >= 0) {
+                return true;
+            }
+            if (table.size() >= maxStates) {
+                limitReached = true;
+                return false;
+            }
+            final var cost = table.cost(parent) + 1;
+            final var id = table.add(next, parent, transition, cost);
+            if (expander.isSolved(next)) {
+                solved = id;
+                return false;
+            }
+            frontier.push(cost + expander.estimate(next), id);
+            return true;
+        }
+    }
+}
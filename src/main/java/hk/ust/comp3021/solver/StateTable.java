@@ -0,0 +1,141 @@
+package hk.ust.comp3021.solver;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+
+/**
+ * The set of states visited by a search, with the transition through which each state was first reached.
+ * <p>
+ * Every state is a fixed number of ints, stored back to back in one array and found through an
+ * open-addressing hash index, so a visited state costs a few ints instead of a few objects.
+ * States are identified by the order in which they were added, starting from 0.
+ */
+final class StateTable {
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final int stride;
+    private int[] states;
+    private int[] parents;
+    private int[] transitions;
+    private int[] costs;
+    private int[] slots;
+    private int size;
+
+    /**
+     * @param stride The number of ints in every state.
+     */
+    StateTable(int stride) {
+        this.stride = stride;
+        this.states = new int[INITIAL_CAPACITY * stride];
+        this.parents = new int[INITIAL_CAPACITY];
+        this.transitions = new int[INITIAL_CAPACITY];
+        this.costs = new int[INITIAL_CAPACITY];
+        this.slots = new int[INITIAL_CAPACITY * 2];
+    }
+
+    /**
+     * @return The number of states in the table.
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * @param state The state.
+     * @return The id of the state, or -1 if the state is not in the table.
+     */
+    int find(int @NotNull [] state) {
+        final var mask = slots.length - 1;
+        for (int slot = hash(state) & mask; ; slot = (slot + 1) & mask) {
+            final var id = slots[slot] - 1;
+            if (id < 0 || matches(id, state)) {
+                return id;
+            }
+        }
+    }
+
+    /**
+     * Add a state which is not yet in the table.
+     *
+     * @param state      The state.
+     * @param parent     The id of the state it was reached from, or -1 for the initial state.
+     * @param transition The transition from the parent, as encoded by the search.
+     * @param cost       The cost of reaching the state from the initial state.
+     * @return The id of the state.
+     */
+    int add(int @NotNull [] state, int parent, int transition, int cost) {
+        if (size == parents.length) {
+            grow();
+        }
+        final var id = size++;
+        System.arraycopy(state, 0, states, id * stride, stride);
+        parents[id] = parent;
+        transitions[id] = transition;
+        costs[id] = cost;
+        index(id, hash(state));
+        return id;
+    }
+
+    /**
+     * Copy a state out of the table.
+     *
+     * @param id     The id of the state.
+     * @param target The array to copy the state into.
+     */
+    void get(int id, int @NotNull [] target) {
+        System.arraycopy(states, id * stride, target, 0, stride);
+    }
+
+    int parent(int id) {
+        return parents[id];
+    }
+
+    int transition(int id) {
+        return transitions[id];
+    }
+
+    int cost(int id) {
+        return costs[id];
+    }
+
+    private boolean matches(int id, int @NotNull [] state) {
+        return Arrays.equals(states, id * stride, id * stride + stride, state, 0, stride);
+    }
+
+    private void index(int id, int hash) {
+        final var mask = slots.length - 1;
+        int slot = hash & mask;
+        while (slots[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        slots[slot] = id + 1;
+    }
+
+    private void grow() {
+        final var capacity = Math.multiplyExact(parents.length, 2);
+        states = Arrays.copyOf(states, Math.multiplyExact(capacity, stride));
+        parents = Arrays.copyOf(parents, capacity);
+        transitions = Arrays.copyOf(transitions, capacity);
+        costs = Arrays.copyOf(costs, capacity);
+        slots = new int[Math.multiplyExact(capacity, 2)];
+        final var state = new int[stride];
+        for (int id = 0; id < size; ++id) {
+            get(id, state);
+            index(id, hash(state));
+        }
+    }
+
+    /**
+     * @param state The state.
+     * @return The hash of the state. Its low bits pick the slot of the state in a table.
+     */
+    static int hash(int @NotNull [] state) {
+        int hash = 0;
+        for (var value : state) {
+            hash = (hash ^ value) * 0x9e3779b9;
+        }
+        return hash ^ (hash >>> 16);
+    }
+}
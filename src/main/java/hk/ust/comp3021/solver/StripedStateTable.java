@@ -0,0 +1,98 @@
+package hk.ust.comp3021.solver;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A {@link StateTable} shared by the threads of a parallel search.
+ * <p>
+ * The states are spread over a fixed number of stripes by the high bits of their hash.
+ * Every stripe is a separate table guarded by its own lock, so threads adding different states rarely wait for each other.
+ * The id of a state combines the id within its stripe with the index of the stripe.
+ */
+final class StripedStateTable {
+
+    private static final int STRIPE_BITS = 6;
+    private static final int STRIPE_MASK = (1 << STRIPE_BITS) - 1;
+
+    /**
+     * The maximum number of states, so that every id fits in an int.
+     */
+    static final int MAX_STATES = Integer.MAX_VALUE >>> STRIPE_BITS;
+
+    private final StateTable[] stripes = new StateTable[1 << STRIPE_BITS];
+    private final AtomicInteger size = new AtomicInteger();
+
+    /**
+     * @param stride The number of ints in every state.
+     */
+    StripedStateTable(int stride) {
+        for (int i = 0; i < stripes.length; ++i) {
+            stripes[i] = new StateTable(stride);
+        }
+    }
+
+    /**
+     * @return The number of states in the table.
+     */
+    int size() {
+        return size.get();
+    }
+
+    /**
+     * Add a state unless it is already in the table.
+     *
+     * @param state      The state.
+     * @param parent     The id of the state it was reached from, or -1 for the initial state.
+     * @param transition The transition from the parent, as encoded by the search.
+     * @param cost       The cost of reaching the state from the initial state.
+     * @return The id of the added state, or -1 if the state was already in the table.
+     */
+    int addIfAbsent(int @NotNull [] state, int parent, int transition, int cost) {
+        final var stripe = StateTable.hash(state) >>> (Integer.SIZE - STRIPE_BITS);
+        final var table = stripes[stripe];
+        synchronized (table) {
+            if (table.find(state) >= 0) {
+                return -1;
+            }
+            final var id = table.add(state, parent, transition, cost) << STRIPE_BITS | stripe;
+            size.incrementAndGet();
+            return id;
+        }
+    }
+
+    /**
+     * Copy a state out of the table.
+     *
+     * @param id     The id of the state.
+     * @param target The array to copy the state into.
+     */
+    void get(int id, int @NotNull [] target) {
+        final var table = stripes[id & STRIPE_MASK];
+        synchronized (table) {
+            table.get(id >>> STRIPE_BITS, target);
+        }
+    }
+
+    int parent(int id) {
+        final var table = stripes[id & STRIPE_MASK];
+        synchronized (table) {
+            return table.parent(id >>> STRIPE_BITS);
+        }
+    }
+
+    int transition(int id) {
+        final var table = stripes[id & STRIPE_MASK];
+        synchronized (table) {
+            return table.transition(id >>> STRIPE_BITS);
+        }
+    }
+
+    int cost(int id) {
+        final var table = stripes[id & STRIPE_MASK];
+        synchronized (table) {
+            return table.cost(id >>> STRIPE_BITS);
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package hk.ust.comp3021.tui;
+
+import hk.ust.comp3021.game.GameState;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Turns successive frames of a game into ANSI escape sequences which only redraw the cells that changed.
+ * <p>
+ * The first frame clears the screen and is drawn in full at its top-left corner, followed by the messages
+ * shown so far. Every later frame moves the cursor to each changed cell, writing consecutive changed cells of a row
+ * in one go, then moves it back to where it was, so the messages below the map stay on screen.
+ * The output for a move is thus proportional to the number of changed cells rather than to the size of the map.
+ * The frame is drawn in full again whenever the size of the map changes.
+ * <p>
+ * The messages are cleared by {@link #clearMessages()}, when the next action starts.
+ */
+public final class AnsiFrameDiff {
+
+    private static final String ESCAPE = "\u001b[";
+    private static final String CLEAR_SCREEN = ESCAPE + "H" + ESCAPE + "2J";
+    private static final String CLEAR_BELOW = ESCAPE + "J";
+    private static final String SAVE_CURSOR = "\u001b7";
+    private static final String RESTORE_CURSOR = "\u001b8";
+
+    private char[] last = new char[0];
+    private char[] next = new char[0];
+    private int width = -1;
+    private int height = -1;
+    private final StringBuilder messages = new StringBuilder();
+    private final MapText mapText = new MapText();
+
+    /**
+     * Draw a frame over the previous one.
+     *
+     * @param state The game state to draw.
+     * @return The text to write to the terminal.
+     */
+    public @NotNull StringBuilder update(@NotNull GameState state) {
+        final var frameWidth = state.getMapMaxWidth();
+        final var frameHeight = state.getMapMaxHeight();
+        if (frameWidth != width || frameHeight != height) {
+            width = frameWidth;
+            height = frameHeight;
+            last = new char[MapText.length(state)];
+            next = new char[last.length];
+            mapText.draw(state, last);
+            return new StringBuilder(CLEAR_SCREEN.length() + last.length + messages.length())
+                .append(CLEAR_SCREEN).append(last).append(messages);
+        }
+
+        mapText.draw(state, next);
+        final var output = new StringBuilder();
+        for (int y = 0; y < height; ++y) {
+            var cursor = -1;
+            for (int x = 0; x < width; ++x) {
+                final var c = next[y * (width + 1) + x];
+                if (last[y * (width + 1) + x] == c) {
+                    continue;
+                }
+                if (output.isEmpty()) {
+                    output.append(SAVE_CURSOR);
+                }
+                if (cursor != x) {
+                    moveCursor(output, y, x);
+                }
+                output.append(c);
+                cursor = x + 1;
+            }
+        }
+        final var drawn = last;
+        last = next;
+        next = drawn;
+        return output.isEmpty() ? output : output.append(RESTORE_CURSOR);
+    }
+
+    /**
+     * Remember a message shown under the map, to show it again if the frame is drawn in full.
+     *
+     * @param content The message, without its line separator.
+     */
+    public void message(@NotNull String content) {
+        messages.append(content).append(System.lineSeparator());
+    }
+
+    /**
+     * Clear the messages shown under the map, for example before showing the result of the next action.
+     *
+     * @return The text to write to the terminal.
+     */
+    public @NotNull StringBuilder clearMessages() {
+        messages.setLength(0);
+        final var output = new StringBuilder();
+        if (width >= 0) {
+            moveCursor(output, height, 0);
+            output.append(CLEAR_BELOW);
+        }
+        return output;
+    }
+
+    /**
+     * Draw the next frame in full, for example after the screen has been cleared by someone else.
+     */
+    public void reset() {
+        width = -1;
+        height = -1;
+    }
+
+    private static void moveCursor(@NotNull StringBuilder output, int y, int x) {
+        output.append(ESCAPE).append(y + 1).append(';').append(x + 1).append('H');
+    }
+}
@@ -0,0 +1,88 @@
+package hk.ust.comp3021.tui;
+
+import hk.ust.comp3021.entities.Box;
+import hk.ust.comp3021.entities.Player;
+import hk.ust.comp3021.entities.Wall;
+import hk.ust.comp3021.game.GameState;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+
+/**
+ * Draws game states as text, one line per row ending with a line feed.
+ * Walls are drawn as {@code #}, empty destinations as {@code @}, other empty cells as {@code .}
+ * and cells outside the map as a space. Players are drawn as their upper-case letter,
+ * and boxes as the lower-case letter of their player.
+ * <p>
+ * The walls and destinations of a game never change, so they are drawn once for the game state drawn last,
+ * together with the list of cells players and boxes can move to. Every frame copies that drawing
+ * and then only looks at those cells, so drawing allocates nothing.
+ */
+public final class MapText {
+
+    private @Nullable GameState state;
+    private char[] background = new char[0];
+    private int[] cells = new int[0];
+    private int[] offsets = new int[0];
+
+    /**
+     * @param state The game state.
+     * @return The number of characters in the drawing of the map of the game state.
+     */
+    public static int length(@NotNull GameState state) {
+        return (state.getMapMaxWidth() + 1) * state.getMapMaxHeight();
+    }
+
+    /**
+     * Draw a game state.
+     *
+     * @param state  The game state to draw.
+     * @param target The array to draw into, with at least {@link #length(GameState)} characters.
+     */
+    public void draw(@NotNull GameState state, char @NotNull [] target) {
+        if (state != this.state) {
+            prepare(state);
+        }
+        System.arraycopy(background, 0, target, 0, background.length);
+        for (int i = 0; i < cells.length; ++i) {
+            final var entity = state.getCell(cells[i]);
+            if (entity instanceof Player player) {
+                target[offsets[i]] = (char) ('A' + player.getId());
+            } else if (entity instanceof Box box) {
+                target[offsets[i]] = (char) ('a' + box.getPlayerId());
+            }
+        }
+    }
+
+    private void prepare(@NotNull GameState state) {
+        final var width = state.getMapMaxWidth();
+        final var height = state.getMapMaxHeight();
+        background = new char[length(state)];
+        cells = new int[width * height];
+        offsets = new int[cells.length];
+        var count = 0;
+        for (int y = 0, offset = 0; y < height; ++y, ++offset) {
+            for (int x = 0; x < width; ++x, ++offset) {
+                final var cell = state.idx(x, y);
+                final var entity = state.getCell(cell);
+                if (entity == null) {
+                    background[offset] = ' ';
+                } else if (entity instanceof Wall) {
+                    background[offset] = '#';
+                } else {
+                    background[offset] = '.';
+                    cells[count] = cell;
+                    offsets[count++] = offset;
+                }
+            }
+            background[offset] = '\n';
+        }
+        for (var destination : state.getDestinations()) {
+            background[destination.y() * (width + 1) + destination.x()] = '@';
+        }
+        cells = Arrays.copyOf(cells, count);
+        offsets = Arrays.copyOf(offsets, count);
+        this.state = state;
+    }
+}
@@ -4,65 +4,271 @@ import hk.ust.comp3021.actions.*;
 import hk.ust.comp3021.game.InputEngine;
 import hk.ust.comp3021.utils.StringResources;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
+import java.io.IOException;
 import java.io.InputStream;
-import java.util.Scanner;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Objects;
 
 /**
  * An input engine that fetches actions from terminal input.
+ * <p>
+ * Lines end with {@code \n}, {@code \r} or {@code \r\n}. They are read as bytes into reused buffers
+ * and decoded without creating strings, and the decoded actions are shared instances (see {@link Move#of(int, int)}),
+ * so reading input creates no garbage.
  */
 public class TerminalInputEngine implements InputEngine {
 
     /**
-     * The {@link Scanner} for reading input from the terminal.
+     * The maximum number of actions in a batch.
      */
-    private final Scanner terminalScanner;
+    public static final int MAX_BATCH_LENGTH = 4096;
+
+    /**
+     * The prefix of a batch of moves in LURD notation.
+     */
+    public static final String LURD_PREFIX = "lurd:";
+
+    private static final String KEYS = "wasdhjklu";
+    private static final String LURD_KEYS = "lurd";
+    private static final int READ_BUFFER_SIZE = 8192;
+
+    /**
+     * The stream for reading input from the terminal.
+     */
+    private final InputStream terminalStream;
+
+    private final ArrayDeque<Action> batch = new ArrayDeque<>();
+    private final byte[] input = new byte[READ_BUFFER_SIZE];
+    private int inputPosition;
+    private int inputLimit;
+    /**
+     * The current line. A longer line is invalid whatever its remaining bytes are, so they are not kept.
+     */
+    private final byte[] line = new byte[LURD_PREFIX.length() + MAX_BATCH_LENGTH + 1];
+    private final Latin1Line lineText = new Latin1Line();
+    private boolean afterCarriageReturn;
 
     /**
      * @param terminalStream The stream to read terminal inputs.
      */
     public TerminalInputEngine(InputStream terminalStream) {
-        this.terminalScanner = new Scanner(terminalStream);
+        this.terminalStream = terminalStream;
     }
 
     /**
      * Fetch an action from user in terminal to process.
+     * A line can hold a single command, or a batch of moves and undos, see {@link #parseActions(String, Collection)}.
      *
-     * @return the user action.
+     * @return the user action, or {@link Exit} when the input has ended.
      */
     @Override
     public @NotNull Action fetchAction() {
-        // This is an example showing how to read a line from the Scanner class.
-        // Feel free to change it if you do not like it.
-        final var inputLine = terminalScanner.nextLine();
-
-        // TODO
-        var inputUpper = inputLine.toUpperCase();
-        switch (inputUpper) {
-            case "A":
-                return new Move.Left(0);
-            case "S":
-                return new Move.Down(0);
-            case "W":
-                return new Move.Up(0);
-            case "D":
-                return new Move.Right(0);
-            case "H":
-                return new Move.Left(1);
-            case "J":
-                return new Move.Down(1);
-            case "K":
-                return new Move.Up(1);
-            case "L":
-                return new Move.Right(1);
-            case "U":
-                return new Undo(-1);
-            case "EXIT":
-                return new Exit(-1);
-            default:
-                return new InvalidInput(-1, StringResources.INVALID_INPUT_MESSAGE);
+        if (batch.isEmpty()) {
+            final var length = readLine();
+            if (length < 0) {
+                return Exit.of(-1);
+            }
+            parseActions(lineText.of(line, 0, length), batch);
+        }
+        return batch.remove();
+    }
+
+    /**
+     * Read the next line into {@link #line}, without its line terminator.
+     * A failure to read is taken as the end of the input.
+     *
+     * @return The length of the line, at most the length of {@link #line}, or -1 at the end of the input.
+     */
+    private int readLine() {
+        int length = 0;
+        while (true) {
+            if (inputPosition == inputLimit) {
+                int count;
+                try {
+                    count = terminalStream.read(input);
+                } catch (IOException e) {
+                    count = -1;
+                }
+                if (count < 0) {
+                    return length > 0 ? length : -1;
+                }
+                inputPosition = 0;
+                inputLimit = count;
+                continue;
+            }
+            final var b = input[inputPosition++];
+            if (b == '\n' && afterCarriageReturn) {
+                afterCarriageReturn = false;
+                continue;
+            }
+            afterCarriageReturn = b == '\r';
+            if (b == '\n' || b == '\r') {
+                return length;
+            }
+            if (length < line.length) {
+                line[length++] = b;
+            }
+        }
+    }
+
+    @Override
+    public boolean hasBufferedAction() {
+        return !batch.isEmpty();
+    }
+
+    @Override
+    public void discardBufferedActions() {
+        batch.clear();
+    }
+
+    /**
+     * Convert a line of terminal input to actions. A line holds either:
+     * <ul>
+     * <li>a single command, such as {@code W} or {@code exit};</li>
+     * <li>a batch of up to {@link #MAX_BATCH_LENGTH} move and undo keys, such as {@code WWDDSSHHJ};</li>
+     * <li>{@value #LURD_PREFIX} followed by up to {@link #MAX_BATCH_LENGTH} moves of player A in LURD notation,
+     * such as {@code lurd:ulLDr}. Pushes, in upper case, are moves like the others.</li>
+     * </ul>
+     * Any other line is a single invalid input.
+     *
+     * @param inputLine The line, without its line terminator.
+     * @param actions   The collection to add the actions to.
+     */
+    public static void parseActions(@NotNull CharSequence inputLine, @NotNull Collection<? super Action> actions) {
+        if (inputLine.length() == StringResources.EXIT_COMMAND_TEXT.length()
+            && startsWith(inputLine, StringResources.EXIT_COMMAND_TEXT)) {
+            actions.add(Exit.of(-1));
+            return;
+        }
+        final var lurd = startsWith(inputLine, LURD_PREFIX);
+        final var start = lurd ? LURD_PREFIX.length() : 0;
+        final var end = inputLine.length();
+        var valid = end - start >= 1 && end - start <= MAX_BATCH_LENGTH;
+        for (int i = start; valid && i < end; ++i) {
+            valid = (lurd ? LURD_KEYS : KEYS).indexOf(toLowerCase(inputLine.charAt(i))) >= 0;
+        }
+        if (!valid) {
+            actions.add(InvalidInput.of(-1));
+            return;
+        }
+        for (int i = start; i < end; ++i) {
+            final var c = inputLine.charAt(i);
+            actions.add(lurd ? lurdAction(c) : keyAction(c));
+        }
+    }
+
+    /**
+     * Convert a line of terminal input to actions, like {@link #parseActions(CharSequence, Collection)},
+     * treating every byte as one character.
+     *
+     * @param inputLine The bytes of the line, without its line terminator.
+     * @param offset    The index of the first byte of the line.
+     * @param length    The number of bytes in the line.
+     * @param actions   The collection to add the actions to.
+     */
+    public static void parseActions(byte @NotNull [] inputLine, int offset, int length,
+                                    @NotNull Collection<? super Action> actions) {
+        parseActions(new Latin1Line().of(inputLine, offset, length), actions);
+    }
+
+    /**
+     * @return Whether the line starts with the lower-case text, ignoring case.
+     */
+    private static boolean startsWith(@NotNull CharSequence inputLine, @NotNull String text) {
+        if (inputLine.length() < text.length()) {
+            return false;
+        }
+        for (int i = 0; i < text.length(); ++i) {
+            if (toLowerCase(inputLine.charAt(i)) != text.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Convert an ASCII upper-case letter to lower case, leaving every other character as it is.
+     * Unlike {@link Character#toLowerCase(char)}, no other character is mapped to an ASCII letter,
+     * e.g. the Kelvin sign is not taken as a {@code k}, so validating and converting a key always agree.
+     */
+    private static char toLowerCase(char c) {
+        return c >= 'A' && c <= 'Z' ? (char) (c - 'A' + 'a') : c;
+    }
+
+    /**
+     * @param key A key typed by the user, in either case.
+     * @return The action of the key, or null if the key has no action, including any non-ASCII character.
+     */
+    public static @Nullable Action keyAction(char key) {
+        return switch (toLowerCase(key)) {
+            case 'a' -> Move.of(0, Move.DIRECTION_LEFT);
+            case 's' -> Move.of(0, Move.DIRECTION_DOWN);
+            case 'w' -> Move.of(0, Move.DIRECTION_UP);
+            case 'd' -> Move.of(0, Move.DIRECTION_RIGHT);
+            case 'h' -> Move.of(1, Move.DIRECTION_LEFT);
+            case 'j' -> Move.of(1, Move.DIRECTION_DOWN);
+            case 'k' -> Move.of(1, Move.DIRECTION_UP);
+            case 'l' -> Move.of(1, Move.DIRECTION_RIGHT);
+            case 'u' -> Undo.of(-1);
+            default -> null;
+        };
+    }
+
+    /**
+     * @param move A move of player A in LURD notation, in either case.
+     * @return The move, or null if the character is not a move, including any non-ASCII character.
+     */
+    public static @Nullable Move lurdAction(char move) {
+        return switch (toLowerCase(move)) {
+            case 'l' -> Move.of(0, Move.DIRECTION_LEFT);
+            case 'u' -> Move.of(0, Move.DIRECTION_UP);
+            case 'r' -> Move.of(0, Move.DIRECTION_RIGHT);
+            case 'd' -> Move.of(0, Move.DIRECTION_DOWN);
+            default -> null;
+        };
+    }
+
+    /**
+     * A view of bytes as characters, one character per byte, so a line can be parsed without decoding it into a string.
+     */
+    private static final class Latin1Line implements CharSequence {
+
+        private byte[] bytes = new byte[0];
+        private int offset;
+        private int length;
+
+        @NotNull Latin1Line of(byte @NotNull [] bytes, int offset, int length) {
+            Objects.checkFromIndexSize(offset, length, bytes.length);
+            this.bytes = bytes;
+            this.offset = offset;
+            this.length = length;
+            return this;
+        }
+
+        @Override
+        public int length() {
+            return length;
+        }
+
+        @Override
+        public char charAt(int index) {
+            Objects.checkIndex(index, length);
+            return (char) (bytes[offset + index] & 0xff);
+        }
+
+        @Override
+        public @NotNull CharSequence subSequence(int start, int end) {
+            Objects.checkFromToIndex(start, end, length);
+            return new Latin1Line().of(bytes, offset + start, end - start);
         }
 
-        //throw new NotImplementedException();
+        @Override
+        public @NotNull String toString() {
+            return new String(bytes, offset, length, StandardCharsets.ISO_8859_1);
+        }
     }
 }
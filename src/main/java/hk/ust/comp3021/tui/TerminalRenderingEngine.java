@@ -1,13 +1,9 @@
 package hk.ust.comp3021.tui;
 
-import hk.ust.comp3021.entities.Box;
-import hk.ust.comp3021.entities.Empty;
-import hk.ust.comp3021.entities.Player;
-import hk.ust.comp3021.entities.Wall;
 import hk.ust.comp3021.game.GameState;
-import hk.ust.comp3021.game.Position;
 import hk.ust.comp3021.game.RenderingEngine;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.io.PrintStream;
 
@@ -17,40 +13,52 @@ import java.io.PrintStream;
 public class TerminalRenderingEngine implements RenderingEngine {
 
     private final PrintStream outputSteam;
+    private final @Nullable AnsiFrameDiff frameDiff;
+    private final MapText mapText = new MapText();
+    private char[] frame = new char[0];
 
     /**
      * @param outputSteam The {@link PrintStream} to write the output to.
      */
     public TerminalRenderingEngine(PrintStream outputSteam) {
+        this(outputSteam, false);
+    }
+
+    /**
+     * @param outputSteam  The {@link PrintStream} to write the output to.
+     * @param differential Whether to redraw only the cells changed since the previous frame, see {@link AnsiFrameDiff}.
+     *                     This needs a terminal supporting ANSI escape sequences.
+     */
+    public TerminalRenderingEngine(PrintStream outputSteam, boolean differential) {
         this.outputSteam = outputSteam;
+        this.frameDiff = differential ? new AnsiFrameDiff() : null;
     }
 
     @Override
     public void render(@NotNull GameState state) {
-        final var builder = new StringBuilder();
-        for (int y = 0; y < state.getMapMaxHeight(); y++) {
-            for (int x = 0; x < state.getMapMaxWidth(); x++) {
-                final var entity = state.getEntity(Position.of(x, y));
-                final var charToPrint = switch (entity) {
-                    // TODO
-                    case Wall ignored -> '#';
-                    case Box b -> (char)('a' + b.getPlayerId());
-                    case Player p -> (char)('A'+p.getId());
-                    case Empty ignored -> {
-                        for (var pos : state.getDestinations()) {
-                            if (pos.x() == x && pos.y() == y) {
-                                yield '@';
-                            }
-                        }
-                        yield '.';
-                    }
-                    case null -> ' ';
-                };
-                builder.append(charToPrint);
-            }
-            builder.append('\n');
+        if (frameDiff != null) {
+            outputSteam.print(frameDiff.update(state));
+            return;
         }
-        outputSteam.print(builder);
+        final var length = MapText.length(state);
+        if (frame.length != length) {
+            frame = new char[length];
+        }
+        mapText.draw(state, frame);
+        outputSteam.print(frame);
+    }
+
+    /**
+     * Draw a game state as text, one line per row of the map.
+     *
+     * @param state The game state.
+     * @return The drawn frame.
+     * @see MapText
+     */
+    public static @NotNull StringBuilder renderFrame(@NotNull GameState state) {
+        final var frame = new char[MapText.length(state)];
+        new MapText().draw(state, frame);
+        return new StringBuilder(frame.length).append(frame);
     }
 
     @Override
@@ -58,6 +66,16 @@ public class TerminalRenderingEngine implements RenderingEngine {
         // TODO
         // Hint: System.out is also a PrintStream.
         this.outputSteam.println(content);
+        if (frameDiff != null) {
+            frameDiff.message(content);
+        }
         //throw new NotImplementedException();
     }
+
+    @Override
+    public void clearMessages() {
+        if (frameDiff != null) {
+            outputSteam.print(frameDiff.clearMessages());
+        }
+    }
 }
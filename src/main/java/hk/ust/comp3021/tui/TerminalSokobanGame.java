@@ -1,6 +1,7 @@
 package hk.ust.comp3021.tui;
 
 
+import hk.ust.comp3021.actions.Action;
 import hk.ust.comp3021.actions.ActionResult;
 import hk.ust.comp3021.actions.Exit;
 import hk.ust.comp3021.game.AbstractSokobanGame;
@@ -8,6 +9,7 @@ import hk.ust.comp3021.game.GameState;
 import hk.ust.comp3021.game.InputEngine;
 import hk.ust.comp3021.game.RenderingEngine;
 import hk.ust.comp3021.utils.StringResources;
+import org.jetbrains.annotations.NotNull;
 
 import java.util.Optional;
 
@@ -26,11 +28,11 @@ public class TerminalSokobanGame extends AbstractSokobanGame {
      * This is only because it is hard to control too many players in a terminal-based game.
      *
      * @param gameState       The game state.
-     * @param inputEngine     the terminal input engin.
-     * @param renderingEngine the terminal rendering engine.
+     * @param inputEngine     the terminal input engin, or any engine reading the same commands, such as one reading a socket.
+     * @param renderingEngine the terminal rendering engine, or any engine writing the same text.
      * @throws IllegalArgumentException when there are more than two players in the map.
      */
-    public TerminalSokobanGame(GameState gameState, TerminalInputEngine inputEngine, TerminalRenderingEngine renderingEngine) {
+    public TerminalSokobanGame(GameState gameState, InputEngine inputEngine, RenderingEngine renderingEngine) {
         super(gameState);
         this.inputEngine = inputEngine;
         this.renderingEngine = renderingEngine;
@@ -45,33 +47,65 @@ public class TerminalSokobanGame extends AbstractSokobanGame {
     @Override
     public void run() {
         // TODO
+        this.onStart();
+        while (!this.shouldStop()) {
+            this.onAction(this.inputEngine.fetchAction());
+        }
+        this.onStop();
+        //System.exit(0);
+    }
+
+    /**
+     * Greet the players and show the initial map.
+     * {@link #run()} calls it once before fetching any action. A game driven by events calls it directly instead,
+     * then {@link #onAction(Action)} for every action until {@link #shouldStop()}, then {@link #onStop()}.
+     */
+    protected void onStart() {
         this.renderingEngine.message(StringResources.GAME_READY_MESSAGE);
         this.printMap();
-        while (!this.shouldStop()) {
-            var act = this.inputEngine.fetchAction();
-            if (act instanceof Exit) {
-                this.requestExit = true;
-            }
-            var actResult = this.processAction(act);
-            if (actResult instanceof ActionResult.Failed) {
-                this.renderingEngine.message(((ActionResult.Failed) actResult).getReason());
-            }
+    }
+
+    /**
+     * Process one action and show its result, after clearing the messages shown for the previous action.
+     * Within a batch of actions, the map is only shown after the last one, and a failed action drops the rest of the batch.
+     *
+     * @param act The action received from the players.
+     */
+    protected void onAction(@NotNull Action act) {
+        this.renderingEngine.clearMessages();
+        if (act instanceof Exit) {
+            this.requestExit = true;
+        }
+        var actResult = this.processAction(act);
+        if (actResult instanceof ActionResult.Failed) {
+            this.renderingEngine.message(((ActionResult.Failed) actResult).getReason());
+            this.inputEngine.discardBufferedActions();
+        }
+        if (!this.inputEngine.hasBufferedAction() || this.shouldStop()) {
             this.printMap();
         }
+    }
+
+    /**
+     * Show the result of the game once it has stopped.
+     */
+    protected void onStop() {
         this.renderingEngine.message(StringResources.GAME_EXIT_MESSAGE);
         if (this.state.isWin()) {
             this.renderingEngine.message(StringResources.WIN_MESSAGE);
         }
-        //System.exit(0);
     }
 
     public void printMap() {
-        this.renderingEngine.render(this.state);
+        this.render(this.renderingEngine);
         Optional<Integer> quota = this.state.getUndoQuota();
         if (quota.isEmpty()) {
             this.renderingEngine.message(StringResources.UNDO_QUOTA_UNLIMITED);
         } else if (quota.isPresent()) {
             this.renderingEngine.message(String.format(StringResources.UNDO_QUOTA_TEMPLATE, this.state.getUndoQuota().get()));
         }
+        if (this.state.isDeadlocked()) {
+            this.renderingEngine.message(StringResources.DEADLOCK_WARNING);
+        }
     }
 }
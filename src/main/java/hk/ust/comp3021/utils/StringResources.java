@@ -12,9 +12,17 @@ public class StringResources {
     public static final String UNDO_QUOTA_RUN_OUT = "You have run out of your undo quota.";
 
     public static final String PLAYER_NOT_FOUND = "Player not found.";
+    public static final String HIT_WALL_MESSAGE = "You hit a wall";
+    public static final String HIT_PLAYER_MESSAGE = "You hit another player.";
+    public static final String OTHER_PLAYERS_BOX_MESSAGE = "You cannot move other players' boxes.";
+    public static final String PUSH_FAILED_MESSAGE = "Failed to push the box.";
+
+    public static final String DEADLOCK_WARNING = "Deadlock: some box can no longer reach any destination. Undo to continue.";
 
     public static final String GAME_EXIT_MESSAGE = "Game exits.";
     public static final String WIN_MESSAGE = "You win.";
 
+    public static final String SERVER_FULL_MESSAGE = "The server is full. Please try again later.";
+
     public static final String EXIT_COMMAND_TEXT = "exit";
 }
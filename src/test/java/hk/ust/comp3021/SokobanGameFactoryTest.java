@@ -8,6 +8,7 @@ import org.junit.jupiter.api.io.TempDir;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
@@ -37,5 +38,36 @@ class SokobanGameFactoryTest {
         assertEquals(233, gameMap.getUndoLimit().orElse(null));
     }
 
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testLoadedMapsAreCachedUntilModified() throws IOException {
+        final var mapFile = tempDir.resolve("cachedMap.map");
+        Files.writeString(mapFile, """
+            233
+            ######
+            #A.a@#
+            ######
+            """);
+        final var cache = SokobanGameFactory.getMapCache();
+        final var misses = cache.getMissCount();
+        final var hits = cache.getHitCount();
+        SokobanGameFactory.loadGameMap(mapFile);
+        SokobanGameFactory.loadGameMap(mapFile.toString());
+        assertEquals(misses + 1, cache.getMissCount());
+        assertEquals(hits + 1, cache.getHitCount());
+
+        Files.writeString(mapFile, """
+            5
+            #######
+            #A.a.@#
+            #######
+            """);
+        Files.setLastModifiedTime(mapFile, FileTime.fromMillis(Files.getLastModifiedTime(mapFile).toMillis() + 1000));
+        final var modified = SokobanGameFactory.loadGameMap(mapFile);
+        assertEquals(7, modified.getMaxWidth());
+        assertEquals(5, modified.getUndoLimit().orElse(null));
+        assertEquals(misses + 2, cache.getMissCount());
+    }
+
 
 }
@@ -3,11 +3,14 @@ package hk.ust.comp3021.game;
 import hk.ust.comp3021.actions.Action;
 import hk.ust.comp3021.actions.ActionResult;
 import hk.ust.comp3021.actions.Move;
+import hk.ust.comp3021.utils.StringResources;
 import hk.ust.comp3021.utils.TestHelper;
 import hk.ust.comp3021.utils.TestKind;
 import org.junit.jupiter.api.Tag;
 import org.junit.jupiter.api.Test;
 
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.*;
 
@@ -78,6 +81,39 @@ class AbstractSokobanGameTest {
     }
 
 
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testResultsOfSharedActionsAreShared() {
+        String mapText = """
+            233
+            ######
+            #A..@#
+            #a...#
+            #....#
+            ######
+            """;
+        final var game = new SokobanGameForTesting(new GameState(TestHelper.parseGameMap(mapText)));
+        final var right = Move.of(0, Move.DIRECTION_RIGHT);
+        final var left = Move.of(0, Move.DIRECTION_LEFT);
+
+        final var moved = game.feedActionForProcessing(right);
+        assertTrue(moved instanceof ActionResult.Success);
+        assertSame(right, moved.getAction());
+        assertTrue(game.feedActionForProcessing(left) instanceof ActionResult.Success);
+        assertSame(moved, game.feedActionForProcessing(right));
+
+        final var hitWall = game.feedActionForProcessing(Move.of(0, Move.DIRECTION_UP));
+        assertTrue(hitWall instanceof ActionResult.Failed);
+        assertSame(hitWall, game.feedActionForProcessing(Move.of(0, Move.DIRECTION_UP)));
+
+        final var down = Move.of(0, Move.DIRECTION_DOWN);
+        final var hitPlayer = ActionResult.Failed.of(down, new String(StringResources.HIT_PLAYER_MESSAGE));
+        assertSame(ActionResult.Failed.of(down, StringResources.HIT_WALL_MESSAGE),
+            ActionResult.Failed.of(down, StringResources.HIT_WALL_MESSAGE));
+        assertSame(hitPlayer, ActionResult.Failed.of(down, StringResources.HIT_PLAYER_MESSAGE));
+        assertNotSame(ActionResult.Failed.of(down, "?"), ActionResult.Failed.of(down, "?"));
+    }
+
     @Tag(TestKind.PUBLIC)
     @Test
     void testShouldStopWhenWin() {
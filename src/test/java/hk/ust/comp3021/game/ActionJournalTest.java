@@ -0,0 +1,62 @@
+package hk.ust.comp3021.game;
+
+import hk.ust.comp3021.actions.*;
+import hk.ust.comp3021.utils.StringResources;
+import hk.ust.comp3021.utils.TestKind;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ActionJournalTest {
+
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testRoundTrip() {
+        final List<ActionResult> results = List.of(
+            new ActionResult.Success(new Move.Up(0)),
+            new ActionResult.Failed(new Move.Down(1), "You hit a wall"),
+            new ActionResult.Success(new Move.Left(25)),
+            new ActionResult.Failed(new Move.Right(42), StringResources.PLAYER_NOT_FOUND),
+            new ActionResult.Success(new Undo(0)),
+            new ActionResult.Failed(new InvalidInput(-1, "?"), StringResources.PLAYER_NOT_FOUND),
+            new ActionResult.Success(new Exit(-1))
+        );
+        final var journal = new ActionJournal();
+        results.forEach(journal::append);
+
+        final var decoded = ActionJournal.fromByteArray(journal.toByteArray());
+        assertEquals(results.size() + 5, journal.toByteArray().length);
+        assertEquals(results.size(), decoded.size());
+        for (int i = 0; i < results.size(); ++i) {
+            final var expected = results.get(i).getAction();
+            final var actual = decoded.getAction(i);
+            assertSame(expected.getClass(), actual.getClass());
+            assertEquals(results.get(i) instanceof ActionResult.Success, decoded.isSuccess(i));
+            if (expected instanceof Move && expected.getInitiator() < 26) {
+                assertEquals(expected.getInitiator(), actual.getInitiator());
+            }
+        }
+        assertTrue(decoded.getAction(3).getInitiator() > 1);
+        final var other = new ActionJournal();
+        other.append(new ActionResult.Success(new Move.Up(0)));
+        assertSame(decoded.getAction(0), other.getAction(0));
+    }
+
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testRejectsCorruptedBytes() {
+        final var bytes = new ActionJournal().toByteArray();
+        assertThrows(IllegalArgumentException.class, () -> ActionJournal.fromByteArray(new byte[]{1, 2}));
+        bytes[0] ^= 1;
+        assertThrows(IllegalArgumentException.class, () -> ActionJournal.fromByteArray(bytes));
+        bytes[0] ^= 1;
+        final var withEntry = Arrays.copyOf(bytes, bytes.length + 1);
+        withEntry[bytes.length] = 0x7f;
+        assertThrows(IllegalArgumentException.class, () -> ActionJournal.fromByteArray(withEntry));
+        assertThrows(IndexOutOfBoundsException.class, () -> new ActionJournal().getAction(0));
+    }
+}
@@ -0,0 +1,118 @@
+package hk.ust.comp3021.game;
+
+import hk.ust.comp3021.entities.Empty;
+import hk.ust.comp3021.utils.TestHelper;
+import hk.ust.comp3021.utils.TestKind;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GameMapCacheTest {
+
+    private static final String MAP_TEXT = """
+        233
+        ######
+        #A.a@#
+        ######
+        """;
+
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testHitsAndCopies() throws IOException {
+        final var cache = new GameMapCache(4, 1 << 20);
+        final var loads = new AtomicInteger();
+        final GameMapCache.Loader loader = () -> {
+            loads.incrementAndGet();
+            return TestHelper.parseGameMap(MAP_TEXT);
+        };
+
+        final var first = cache.get("map", loader);
+        first.putEntity(new Position(1, 1), new Empty());
+        final var second = cache.get("map", loader);
+
+        assertEquals(1, loads.get());
+        assertEquals(1, cache.getMissCount());
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.size());
+        assertTrue(cache.getEstimatedBytes() > 0);
+        assertNotSame(first, second);
+        assertEquals(new Position(1, 1), second.getPlayerPosition().get('A'));
+    }
+
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testEvictsLeastRecentlyUsed() throws IOException {
+        final var cache = new GameMapCache(2, 1 << 20);
+        final GameMapCache.Loader loader = () -> TestHelper.parseGameMap(MAP_TEXT);
+        cache.get("a", loader);
+        cache.get("b", loader);
+        cache.get("a", loader);
+        cache.get("c", loader);
+
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.getEvictionCount());
+        cache.get("a", loader);
+        assertEquals(2, cache.getHitCount());
+        cache.get("b", loader);
+        assertEquals(4, cache.getMissCount());
+
+        final var tiny = new GameMapCache(10, 1);
+        tiny.get("a", loader);
+        tiny.get("b", loader);
+        assertEquals(1, tiny.size());
+        assertEquals(1, tiny.getEvictionCount());
+    }
+
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testConcurrentMissesLoadOnce() throws Exception {
+        final var cache = new GameMapCache(4, 1 << 20);
+        final var loads = new AtomicInteger();
+        final var release = new CountDownLatch(1);
+        final GameMapCache.Loader loader = () -> {
+            loads.incrementAndGet();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                throw new IOException(e);
+            }
+            return TestHelper.parseGameMap(MAP_TEXT);
+        };
+        try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            final var results = new ArrayList<Future<GameMap>>();
+            for (int i = 0; i < 8; ++i) {
+                results.add(executor.submit(() -> cache.get("map", loader)));
+            }
+            while (cache.getHitCount() + cache.getMissCount() < 8) {
+                Thread.sleep(1);
+            }
+            release.countDown();
+            for (var result : results) {
+                assertEquals(6, result.get().getMaxWidth());
+            }
+        }
+        assertEquals(1, loads.get());
+        assertEquals(1, cache.getMissCount());
+        assertEquals(7, cache.getHitCount());
+    }
+
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testFailedLoadIsNotCached() throws IOException {
+        final var cache = new GameMapCache(4, 1 << 20);
+        assertThrows(IOException.class, () -> cache.get("map", () -> {
+            throw new IOException("unreadable");
+        }));
+        assertEquals(0, cache.size());
+        assertEquals(6, cache.get("map", () -> TestHelper.parseGameMap(MAP_TEXT)).getMaxWidth());
+        assertThrows(IllegalArgumentException.class, () -> new GameMapCache(0, 1));
+    }
+}
@@ -0,0 +1,83 @@
+package hk.ust.comp3021.game;
+
+import hk.ust.comp3021.utils.TestHelper;
+import hk.ust.comp3021.utils.TestKind;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GameMapCodecTest {
+
+    @Tag(TestKind.PUBLIC)
+    @ParameterizedTest
+    @ValueSource(strings = {"map00", "map01", "map02", "map03", "multiPlayermap01", "playerOutsideMap"})
+    void testRoundTrip(String mapName) throws IOException {
+        final String text;
+        try (var stream = getClass().getClassLoader().getResourceAsStream(mapName + ".map")) {
+            text = new String(stream.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        final var original = TestHelper.parseGameMap(text);
+        final var encoded = GameMapCodec.encode(original);
+        final var decoded = GameMapCodec.decode(encoded);
+
+        assertEquals(original.getMaxWidth(), decoded.getMaxWidth());
+        assertEquals(original.getMaxHeight(), decoded.getMaxHeight());
+        assertEquals(original.getUndoLimit(), decoded.getUndoLimit());
+        assertEquals(original.getDestinations(), decoded.getDestinations());
+        assertEquals(original.getPlayerPosition(), decoded.getPlayerPosition());
+        for (int y = 0; y < original.getMaxHeight(); ++y) {
+            for (int x = 0; x < original.getMaxWidth(); ++x) {
+                assertSame(original.getEntity(Position.of(x, y)), decoded.getEntity(Position.of(x, y)));
+            }
+        }
+        assertTrue(encoded.length < text.length());
+    }
+
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testEncodingIsCompact() {
+        final var builder = new StringBuilder("-1\n");
+        builder.append("#".repeat(100)).append('\n');
+        for (int y = 0; y < 98; ++y) {
+            builder.append('#').append(y == 0 ? "Aa@" + ".".repeat(95) : ".".repeat(98)).append("#\n");
+        }
+        builder.append("#".repeat(100)).append('\n');
+        final var encoded = GameMapCodec.encode(TestHelper.parseGameMap(builder.toString()));
+        assertTrue(encoded.length * 2 < builder.length());
+    }
+
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testRejectsInvalidData() {
+        final var encoded = GameMapCodec.encode(TestHelper.parseGameMap("""
+            5
+            #####
+            #Aa@#
+            #####
+            """));
+        assertThrows(IllegalArgumentException.class, () -> GameMapCodec.decode(new byte[]{1, 2, 3, 4, 5}));
+        assertThrows(IllegalArgumentException.class,
+            () -> GameMapCodec.decode(Arrays.copyOf(encoded, encoded.length - 1)));
+
+        // A five-byte varint can carry the sign bit into a size.
+        final byte[] minusOne = {(byte) 0xff, (byte) 0xff, (byte) 0xff, (byte) 0xff, 0x0f};
+        assertThrows(IllegalArgumentException.class, () -> GameMapCodec.decode(header(encoded, minusOne, new byte[]{2})));
+        assertThrows(IllegalArgumentException.class, () -> GameMapCodec.decode(header(encoded, new byte[]{2}, minusOne)));
+        assertThrows(IllegalArgumentException.class, () -> GameMapCodec.decode(header(encoded, minusOne, minusOne)));
+    }
+
+    private static byte[] header(byte[] encoded, byte[] width, byte[] height) {
+        // Magic and version from a valid encoding, then the sizes, no undo limit and a one-wall palette.
+        final var header = ByteBuffer.allocate(5 + width.length + height.length + 4);
+        header.put(encoded, 0, 5).put(width).put(height).put(new byte[]{0, 1, 2, 0});
+        return header.array();
+    }
+}
@@ -0,0 +1,70 @@
+package hk.ust.comp3021.game;
+
+import hk.ust.comp3021.entities.Box;
+import hk.ust.comp3021.entities.Player;
+import hk.ust.comp3021.utils.TestKind;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GameMapPackTest {
+
+    @TempDir
+    private Path tempDir;
+
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testPackAndLoad() throws IOException {
+        final var mapDir = Files.createDirectory(tempDir.resolve("maps"));
+        Files.writeString(mapDir.resolve("b.map"), """
+            -1
+            #####
+            #Aa@#
+            #####
+            """);
+        Files.writeString(mapDir.resolve("a.map"), """
+            5
+            ######
+            #A.a@#
+            #..a@#
+            ######
+            """);
+        Files.writeString(mapDir.resolve("notes.txt"), "not a map");
+        final var packFile = tempDir.resolve("levels.pack");
+
+        assertEquals(List.of("a.map", "b.map"), GameMapPack.pack(mapDir, packFile));
+
+        final var pack = GameMapPack.open(packFile);
+        assertEquals(2, pack.size());
+        final var second = pack.load(1);
+        assertEquals(5, second.getMaxWidth());
+        assertTrue(second.getUndoLimit().isEmpty());
+        assertInstanceOf(Box.class, second.getEntity(Position.of(2, 1)));
+        final var first = pack.load(0);
+        assertEquals(5, first.getUndoLimit().orElse(null));
+        assertInstanceOf(Player.class, first.getEntity(Position.of(1, 1)));
+        assertThrows(IndexOutOfBoundsException.class, () -> pack.load(2));
+    }
+
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testRejectsInvalidFile() throws IOException {
+        final var file = tempDir.resolve("invalid.pack");
+        Files.writeString(file, "5\n###\n");
+        assertThrows(IllegalArgumentException.class, () -> GameMapPack.open(file));
+
+        final var chunk = new byte[64 << 20];
+        final var tooLarge = Collections.nCopies((int) (GameMapPack.MAX_PACK_SIZE / chunk.length) + 1, chunk);
+        final var largeFile = tempDir.resolve("large.pack");
+        assertThrows(IllegalArgumentException.class, () -> GameMapPack.write(tooLarge, largeFile));
+        assertFalse(Files.exists(largeFile));
+    }
+}
@@ -9,6 +9,10 @@ import hk.ust.comp3021.utils.TestKind;
 import org.junit.jupiter.api.Tag;
 import org.junit.jupiter.api.Test;
 
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Set;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 class GameMapTest {
@@ -46,6 +50,27 @@ class GameMapTest {
         assertInstanceOf(Empty.class, gameMap.getEntity(Position.of(4, 1)));
     }
 
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testPositionSetsFollowBoxes() {
+        final var gameMap = TestHelper.parseGameMap(rectangularMap);
+        final var destinations = gameMap.getDestinations();
+        assertEquals(Set.of(Position.of(4, 1), Position.of(4, 2)), destinations);
+        assertTrue(destinations.contains(Position.of(4, 2)));
+        assertFalse(destinations.contains(Position.of(6, 2)));
+        assertFalse(destinations.contains(Position.of(-1, 0)));
+        assertThrows(UnsupportedOperationException.class, () -> destinations.add(Position.of(1, 1)));
+
+        final var copy = new GameMap(gameMap);
+        final var before = copy.getBoxPositions();
+        copy.putEntity(Position.of(4, 1), new Box(0));
+        copy.putEntity(Position.of(2, 4), new Empty());
+        assertEquals(Set.of(Position.of(2, 4), Position.of(3, 5)), before);
+        assertEquals(Set.of(Position.of(4, 1), Position.of(3, 5)), copy.getBoxPositions());
+        assertEquals(Set.of(Position.of(2, 4), Position.of(3, 5)), gameMap.getBoxPositions());
+        assertSame(destinations, copy.getDestinations());
+    }
+
     @Tag(TestKind.PUBLIC)
     @Test
     void testWallParsing() {
@@ -86,4 +111,73 @@ class GameMapTest {
         assertTrue(entity instanceof Wall);
     }
 
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testCopyDoesNotAffectOriginal() {
+        final var gameMap = TestHelper.parseGameMap(rectangularMap);
+        final var copy = new GameMap(gameMap);
+        copy.putEntity(Position.of(2, 1), new Wall());
+        copy.putEntity(Position.of(1, 1), new Empty());
+
+        assertInstanceOf(Empty.class, gameMap.getEntity(Position.of(2, 1)));
+        assertInstanceOf(Player.class, gameMap.getEntity(Position.of(1, 1)));
+        assertInstanceOf(Wall.class, copy.getEntity(Position.of(2, 1)));
+        assertTrue(copy.getPlayerIds().isEmpty());
+    }
+
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testEntitiesAreShared() {
+        final var gameMap = TestHelper.parseGameMap(rectangularMap);
+        assertSame(gameMap.getEntity(Position.of(0, 0)), gameMap.getEntity(Position.of(5, 6)));
+        assertSame(gameMap.getEntity(Position.of(2, 4)), gameMap.getEntity(Position.of(3, 5)));
+    }
+
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testParseFromReader() throws IOException {
+        final var gameMap = GameMap.parse(new StringReader(rectangularMap.replace("\n", "\r\n")));
+        assertEquals(6, gameMap.getMaxWidth());
+        assertEquals(7, gameMap.getMaxHeight());
+        assertEquals(233, gameMap.getUndoLimit().orElse(null));
+        assertInstanceOf(Box.class, gameMap.getEntity(Position.of(3, 5)));
+        assertEquals(TestHelper.parseGameMap(rectangularMap).getDestinations(), gameMap.getDestinations());
+    }
+
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testParseErrorReportsLocation() {
+        final var exception = assertThrows(IllegalArgumentException.class, () -> TestHelper.parseGameMap("""
+            233
+            ######
+            #A..@#
+            #..A@#
+            #aa..#
+            ######
+            """));
+        assertTrue(exception.getMessage().contains("line 4, column 4"));
+    }
+
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testDeadSquares() {
+        final var gameMap = TestHelper.parseGameMap("""
+            -1
+            #######
+            #..a.@#
+            #.a...#
+            #.A..@#
+            #######
+            """);
+        final var copy = new GameMap(gameMap);
+
+        assertTrue(gameMap.isDeadSquare(Position.of(1, 1)));
+        assertTrue(gameMap.isDeadSquare(Position.of(1, 2)));
+        assertFalse(gameMap.isDeadSquare(Position.of(2, 1)));
+        assertFalse(gameMap.isDeadSquare(Position.of(3, 2)));
+        assertFalse(gameMap.isDeadSquare(Position.of(5, 1)));
+        assertFalse(gameMap.isDeadSquare(Position.of(0, 0)));
+        assertFalse(gameMap.isDeadSquare(Position.of(10, 10)));
+        assertTrue(copy.isDeadSquare(Position.of(1, 3)));
+    }
 }
@@ -1,7 +1,9 @@
 package hk.ust.comp3021.game;
 
+import hk.ust.comp3021.actions.Move;
 import hk.ust.comp3021.entities.Box;
 import hk.ust.comp3021.entities.Empty;
+import hk.ust.comp3021.metrics.GameMetrics;
 import hk.ust.comp3021.utils.TestHelper;
 import hk.ust.comp3021.utils.TestKind;
 import org.junit.jupiter.api.Tag;
@@ -118,4 +120,360 @@ class GameStateTest {
         assertEquals(232, gameState.getUndoQuota().orElse(null));
     }
 
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testMoveDoesNotModifyGameMap() {
+        final var gameMap = TestHelper.parseGameMap("""
+            233
+            ######
+            #A.a@#
+            #..a@#
+            ######
+            """);
+        final var gameState = new GameState(gameMap);
+        final var otherState = new GameState(gameMap);
+        gameState.move(Position.of(1, 1), Position.of(2, 1));
+
+        assertEquals(Position.of(1, 1), gameMap.getPlayerPosition().get('A'));
+        assertEquals(Position.of(1, 1), otherState.getPlayerPositionById(0));
+        assertInstanceOf(Empty.class, gameMap.getEntity(Position.of(2, 1)));
+        assertInstanceOf(Empty.class, otherState.getEntity(Position.of(2, 1)));
+    }
+
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testUndoRevertsToLastCheckpointOnly() {
+        final var gameState = new GameState(TestHelper.parseGameMap("""
+            -1
+            #######
+            #A.a.@#
+            #..a.@#
+            #######
+            """
+        ));
+        gameState.move(Position.of(1, 1), Position.of(2, 1));
+        gameState.checkpoint();
+        gameState.move(Position.of(3, 1), Position.of(4, 1));
+        gameState.move(Position.of(2, 1), Position.of(3, 1));
+        gameState.checkpoint();
+        gameState.move(Position.of(4, 1), Position.of(5, 1));
+        gameState.move(Position.of(3, 1), Position.of(4, 1));
+        gameState.move(Position.of(4, 1), Position.of(4, 2));
+
+        gameState.undo();
+        assertEquals(Position.of(3, 1), gameState.getPlayerPositionById(0));
+        assertInstanceOf(Box.class, gameState.getEntity(Position.of(4, 1)));
+        assertInstanceOf(Empty.class, gameState.getEntity(Position.of(5, 1)));
+        assertInstanceOf(Box.class, gameState.getEntity(Position.of(3, 2)));
+
+        gameState.undo();
+        assertEquals(Position.of(2, 1), gameState.getPlayerPositionById(0));
+        assertInstanceOf(Box.class, gameState.getEntity(Position.of(3, 1)));
+
+        gameState.undo();
+        assertEquals(Position.of(1, 1), gameState.getPlayerPositionById(0));
+        assertTrue(gameState.getUndoQuota().isEmpty());
+    }
+
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testBoxesOnDestinations() {
+        final var gameState = new GameState(TestHelper.parseGameMap("""
+            -1
+            ######
+            #Aa.@#
+            #Bb.@#
+            ######
+            """
+        ));
+        gameState.checkpoint();
+        gameState.move(Position.of(2, 1), Position.of(3, 1));
+        gameState.move(Position.of(3, 1), Position.of(4, 1));
+        assertEquals(1, gameState.getBoxesOnDestinations(0));
+        assertEquals(0, gameState.getBoxesOnDestinations(1));
+        assertFalse(gameState.isWin());
+
+        gameState.move(Position.of(2, 2), Position.of(4, 2));
+        assertEquals(2, gameState.getBoxesOnDestinations());
+        assertTrue(gameState.isWin());
+
+        gameState.undo();
+        assertEquals(0, gameState.getBoxesOnDestinations());
+        assertFalse(gameState.isWin());
+    }
+
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testDeadlockAfterPush() {
+        final var gameState = new GameState(TestHelper.parseGameMap("""
+            -1
+            #######
+            #..a.@#
+            #.a...#
+            #.A..@#
+            #######
+            """
+        ));
+        assertFalse(gameState.isDeadlocked());
+
+        gameState.checkpoint();
+        gameState.move(Position.of(2, 2), Position.of(2, 1));
+        gameState.move(Position.of(2, 3), Position.of(2, 2));
+        assertTrue(gameState.isDeadlocked());
+
+        gameState.undo();
+        assertFalse(gameState.isDeadlocked());
+
+        gameState.move(Position.of(2, 3), Position.of(3, 3));
+        gameState.move(Position.of(3, 3), Position.of(3, 2));
+        assertFalse(gameState.isDeadlocked());
+        gameState.checkpoint();
+        gameState.move(Position.of(2, 2), Position.of(1, 2));
+        gameState.move(Position.of(3, 2), Position.of(2, 2));
+        assertTrue(gameState.isDeadlocked());
+    }
+
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testDeadlockInBoxCluster() {
+        final var gameState = new GameState(TestHelper.parseGameMap("""
+            -1
+            #########
+            #.......#
+            #..aa...#
+            #...a.a.#
+            #..a....#
+            #A.@@@@@#
+            #########
+            """
+        ));
+        assertFalse(gameState.isDeadlocked());
+
+        // Every box of the cluster is checked, and none of them is frozen.
+        gameState.move(Position.of(6, 3), Position.of(5, 3));
+        assertFalse(gameState.isDeadlocked());
+        gameState.move(Position.of(5, 3), Position.of(5, 4));
+        assertFalse(gameState.isDeadlocked());
+
+        gameState.move(Position.of(3, 4), Position.of(3, 3));
+        assertTrue(gameState.isDeadlocked());
+    }
+
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testZobristHash() {
+        final var gameMap = TestHelper.parseGameMap("""
+            -1
+            ######
+            #A.a@#
+            #..a@#
+            ######
+            """);
+        final var gameState = new GameState(gameMap);
+        final var other = new GameState(gameMap);
+        final var initialHash = gameState.getZobristHash();
+        assertEquals(initialHash, other.getZobristHash());
+
+        gameState.move(Position.of(1, 1), Position.of(2, 1));
+        assertNotEquals(initialHash, gameState.getZobristHash());
+        gameState.move(Position.of(2, 1), Position.of(2, 2));
+
+        other.move(Position.of(1, 1), Position.of(1, 2));
+        other.move(Position.of(1, 2), Position.of(2, 2));
+        assertEquals(gameState.getZobristHash(), other.getZobristHash());
+
+        other.checkpoint();
+        other.move(Position.of(3, 2), Position.of(4, 2));
+        other.move(Position.of(2, 2), Position.of(3, 2));
+        assertNotEquals(gameState.getZobristHash(), other.getZobristHash());
+        other.undo();
+        assertEquals(gameState.getZobristHash(), other.getZobristHash());
+    }
+
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testStateKey() {
+        final var gameState = new GameState(TestHelper.parseGameMap("""
+            -1
+            ######
+            #A.a@#
+            #..a@#
+            ######
+            """));
+        final var initialKey = gameState.getStateKey();
+
+        gameState.move(Position.of(1, 1), Position.of(1, 2));
+        gameState.move(Position.of(1, 2), Position.of(2, 2));
+        assertEquals(initialKey, gameState.getStateKey());
+        assertEquals(initialKey.hashCode(), gameState.getStateKey().hashCode());
+
+        gameState.move(Position.of(3, 2), Position.of(4, 2));
+        gameState.move(Position.of(2, 2), Position.of(3, 2));
+        assertNotEquals(initialKey, gameState.getStateKey());
+    }
+
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testStateKeyWithTwoPlayers() {
+        final var gameState = new GameState(TestHelper.parseGameMap("""
+            -1
+            #######
+            #A..B.#
+            #a@@b.#
+            #######
+            """));
+        final var initialKey = gameState.getStateKey();
+
+        gameState.move(Position.of(1, 1), Position.of(3, 1));
+        gameState.move(Position.of(4, 1), Position.of(1, 1));
+        gameState.move(Position.of(3, 1), Position.of(4, 1));
+        assertNotEquals(initialKey, gameState.getStateKey());
+
+        gameState.move(Position.of(4, 1), Position.of(2, 1));
+        assertNotEquals(initialKey, gameState.getStateKey());
+        gameState.move(Position.of(2, 1), Position.of(4, 1));
+        gameState.move(Position.of(1, 1), Position.of(2, 1));
+        gameState.move(Position.of(4, 1), Position.of(1, 1));
+        gameState.move(Position.of(2, 1), Position.of(4, 1));
+        assertEquals(initialKey, gameState.getStateKey());
+    }
+
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testUndoQuotaPerGameState() {
+        final var limitedMap = TestHelper.parseGameMap("""
+            2
+            ######
+            #.Aa@#
+            #..a@#
+            ######
+            """
+        );
+        final var limited = new GameState(limitedMap);
+        final var unlimited = new GameState(TestHelper.parseGameMap("""
+            -1
+            ######
+            #.Aa@#
+            #..a@#
+            ######
+            """
+        ));
+
+        limited.move(Position.of(3, 1), Position.of(4, 1));
+        limited.move(Position.of(2, 1), Position.of(3, 1));
+        limited.checkpoint();
+        limited.undo();
+
+        assertEquals(1, limited.getUndoQuota().orElse(null));
+        assertTrue(unlimited.getUndoQuota().isEmpty());
+        assertEquals(2, new GameState(limitedMap).getUndoQuota().orElse(null));
+    }
+
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testEstimateMemoryUsage() {
+        final var gameState = new GameState(TestHelper.parseGameMap("""
+            233
+            ######
+            #.Aa@#
+            #..a@#
+            ######
+            """
+        ));
+        final var initial = gameState.estimateMemoryUsage();
+        assertTrue(initial > 0);
+
+        gameState.move(Position.of(2, 1), Position.of(1, 1));
+        assertTrue(gameState.estimateMemoryUsage() > initial);
+
+        final var afterFirstMove = gameState.estimateMemoryUsage();
+        for (int i = 0; i < 1000; ++i) {
+            gameState.move(Position.of(1, 1), Position.of(1, 2));
+            gameState.move(Position.of(1, 2), Position.of(1, 1));
+        }
+        assertEquals(afterFirstMove, gameState.estimateMemoryUsage());
+    }
+
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testCellIndexApi() {
+        final var gameState = new GameState(TestHelper.parseGameMap("""
+            233
+            ######
+            #.Aa@#
+            ######
+            """));
+        final var player = gameState.getPlayerCell(0);
+        assertEquals(gameState.idx(2, 1), player);
+        assertEquals(Position.of(2, 1), gameState.getPosition(player));
+        assertEquals(-1, gameState.getPlayerCell(1));
+        assertEquals(-1, gameState.idx(6, 0));
+        assertNull(gameState.getCell(-1));
+        assertNull(gameState.getCell(18));
+
+        final var right = gameState.neighbor(player, Move.DIRECTION_RIGHT);
+        assertEquals(player + gameState.getDirectionOffset(Move.DIRECTION_RIGHT), right);
+        assertEquals(player - 6, gameState.neighbor(player, Move.DIRECTION_UP));
+        assertInstanceOf(Box.class, gameState.getCell(right));
+        assertEquals(-1, gameState.neighbor(gameState.idx(5, 1), Move.DIRECTION_RIGHT));
+        assertEquals(-1, gameState.neighbor(gameState.idx(0, 1), Move.DIRECTION_LEFT));
+        assertEquals(-1, gameState.neighbor(gameState.idx(2, 2), Move.DIRECTION_DOWN));
+        assertThrows(IllegalArgumentException.class, () -> gameState.getDirectionOffset(4));
+
+        gameState.checkpoint();
+        gameState.move(right, gameState.neighbor(right, Move.DIRECTION_RIGHT));
+        gameState.move(player, right);
+        assertTrue(gameState.isWin());
+        assertEquals(right, gameState.getPlayerCell(0));
+        assertEquals(Position.of(3, 1), gameState.getPlayerPositionById(0));
+    }
+
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testCellPositionsAreSharedOnLargeMaps() {
+        final var gameMap = TestHelper.parseGameMap(
+            "233\n" + "#".repeat(100) + "\n#" + ".".repeat(95) + "Aa@#\n" + "#".repeat(100) + "\n");
+        final var gameState = new GameState(gameMap);
+        final var player = gameState.getPlayerCell(0);
+        assertSame(gameState.getPosition(player), gameState.getPosition(player));
+        assertEquals(Position.of(96, 1), gameState.getPosition(player));
+
+        gameState.move(player, player - 1);
+        assertEquals(Position.of(95, 1), gameState.getPlayerPositionById(0));
+        assertSame(gameState.getPosition(player - 1), new GameState(gameMap).getPosition(player - 1));
+    }
+
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testSteadyStateMoveDoesNotAllocate() {
+        final var gameState = new GameState(TestHelper.parseGameMap("""
+            -1
+            #######
+            #A....#
+            #..a.@#
+            #######
+            """));
+        final var start = gameState.getPlayerCell(0);
+        final var next = gameState.neighbor(start, Move.DIRECTION_RIGHT);
+        final var box = gameState.idx(3, 2);
+        final var moves = 10_000;
+        // Grow the undo journal once, then undo to the checkpoint so that its room is reused.
+        gameState.checkpoint();
+        gameState.move(box, box + 1);
+        for (int i = 0; i < moves; ++i) {
+            gameState.move(start, next);
+            gameState.move(next, start);
+        }
+        gameState.undo();
+
+        gameState.checkpoint();
+        gameState.move(box, box + 1);
+        final var allocated = GameMetrics.allocatedBytes();
+        for (int i = 0; i < moves; ++i) {
+            gameState.move(start, next);
+            gameState.move(next, start);
+        }
+        assertTrue(GameMetrics.allocatedBytes() - allocated < 1024);
+        assertEquals(start, gameState.getPlayerCell(0));
+    }
 }
@@ -0,0 +1,75 @@
+package hk.ust.comp3021.game;
+
+import hk.ust.comp3021.actions.*;
+import hk.ust.comp3021.utils.TestHelper;
+import hk.ust.comp3021.utils.TestKind;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JournalReplayGameTest {
+
+    private static final String MAP_TEXT = """
+        233
+        #######
+        #A.a.@#
+        #.....#
+        #######
+        """;
+
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testReplayReproducesGame() {
+        final var map = TestHelper.parseGameMap(MAP_TEXT);
+        final var recording = new RecordingGame(new GameState(map));
+        recording.play(List.of(new Move.Up(0), new Move.Right(0), new InvalidInput(-1, "?"),
+            new Move.Right(0), new Undo(-1), new Move.Down(1), new Move.Right(0), new Move.Right(0)));
+        assertTrue(recording.getState().isWin());
+
+        final var journal = ActionJournal.fromByteArray(recording.getActionJournal().toByteArray());
+        final var replay = new JournalReplayGame(new GameState(map), journal);
+        replay.run();
+
+        assertTrue(replay.matchesRecording());
+        assertEquals(8, replay.getReplayedCount());
+        assertEquals(recording.getState().getZobristHash(), replay.getState().getZobristHash());
+        assertArrayEquals(journal.toByteArray(), replay.getActionJournal().toByteArray());
+    }
+
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testReplayReportsDivergence() {
+        final var recording = new RecordingGame(new GameState(TestHelper.parseGameMap(MAP_TEXT)));
+        recording.play(List.of(new Move.Down(0), new Move.Right(0), new Exit(-1), new Move.Up(0)));
+
+        final var changed = TestHelper.parseGameMap(MAP_TEXT.replace("#.....#", "##....#"));
+        final var replay = new JournalReplayGame(new GameState(changed), recording.getActionJournal());
+        replay.run();
+
+        assertFalse(replay.matchesRecording());
+        assertEquals(0, replay.getFirstDivergence());
+        assertEquals(3, replay.getReplayedCount());
+    }
+
+    private static class RecordingGame extends AbstractSokobanGame {
+
+        RecordingGame(GameState gameState) {
+            super(gameState);
+        }
+
+        @Override
+        public void run() {
+        }
+
+        void play(List<Action> actions) {
+            actions.forEach(this::processAction);
+        }
+
+        GameState getState() {
+            return state;
+        }
+    }
+}
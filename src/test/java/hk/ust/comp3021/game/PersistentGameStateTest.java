@@ -0,0 +1,125 @@
+package hk.ust.comp3021.game;
+
+import hk.ust.comp3021.actions.Move;
+import hk.ust.comp3021.entities.Box;
+import hk.ust.comp3021.entities.Empty;
+import hk.ust.comp3021.entities.Player;
+import hk.ust.comp3021.utils.TestHelper;
+import hk.ust.comp3021.utils.TestKind;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PersistentGameStateTest {
+
+    private static final String map = """
+        233
+        ######
+        #A.a@#
+        #..a@#
+        #B.b@#
+        #....#
+        ######
+        """;
+
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testApplyForksWithoutModifyingParent() {
+        final var root = new PersistentGameState(TestHelper.parseGameMap(map));
+        final var right = root.apply(new Move.Right(0));
+        final var down = root.apply(new Move.Down(0));
+
+        assertEquals(Position.of(1, 1), root.getPlayerPositionById(0));
+        assertEquals(Position.of(2, 1), right.getPlayerPositionById(0));
+        assertEquals(Position.of(1, 2), down.getPlayerPositionById(0));
+        assertInstanceOf(Player.class, root.getEntity(Position.of(1, 1)));
+        assertInstanceOf(Empty.class, right.getEntity(Position.of(1, 1)));
+        assertEquals(0, root.getMoveCount());
+        assertEquals(1, right.getMoveCount());
+
+        assertSame(root, root.apply(new Move.Up(0)));
+        assertSame(root, root.apply(new Move.Left(0)));
+        assertSame(root, root.apply(new Move.Up(5)));
+        final var blocked = right.apply(new Move.Down(0)).apply(new Move.Down(0));
+        assertSame(blocked, blocked.apply(new Move.Right(0)));
+        assertThrows(IllegalArgumentException.class, () -> root.apply(0, 4));
+    }
+
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testPushAndWin() {
+        final var gameMap = TestHelper.parseGameMap(map);
+        final var gameState = new GameState(gameMap);
+        var state = new PersistentGameState(gameMap);
+        assertEquals(gameState.getZobristHash(), state.getZobristHash());
+
+        state = state.apply(new Move.Right(0)).apply(new Move.Right(0));
+        gameState.move(Position.of(1, 1), Position.of(2, 1));
+        gameState.move(Position.of(3, 1), Position.of(4, 1));
+        gameState.move(Position.of(2, 1), Position.of(3, 1));
+        assertInstanceOf(Box.class, state.getEntity(Position.of(4, 1)));
+        assertEquals(1, state.getBoxesOnDestinations());
+        assertEquals(gameState.getZobristHash(), state.getZobristHash());
+        assertSame(state, state.apply(new Move.Right(0)));
+
+        state = state.apply(new Move.Left(0)).apply(new Move.Down(0)).apply(new Move.Right(0));
+        assertEquals(2, state.getBoxesOnDestinations());
+        assertSame(state, state.apply(new Move.Right(0)));
+        final var besideA = state.apply(new Move.Up(1)).apply(new Move.Right(1));
+        assertSame(besideA, besideA.apply(new Move.Right(1)));
+        state = besideA.apply(new Move.Down(1)).apply(new Move.Right(1));
+        assertEquals(3, state.getBoxesOnDestinations());
+        assertTrue(state.isWin());
+
+        final var continued = new GameState(state.toGameMap());
+        assertTrue(continued.isWin());
+        assertEquals(state.getZobristHash(), continued.getZobristHash());
+        assertEquals(gameMap.getUndoLimit(), continued.getUndoQuota());
+    }
+
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testRandomWalkMatchesGameState() {
+        final var text = new StringBuilder("-1\n");
+        final var width = 70;
+        final var height = 40;
+        final var random = new Random(3021);
+        for (int y = 0; y < height; ++y) {
+            for (int x = 0; x < width; ++x) {
+                final var border = x == 0 || y == 0 || x == width - 1 || y == height - 1;
+                text.append(border ? '#' : x == 1 && y == 1 ? 'A' : x % 7 == 3 && y % 5 == 2 ? 'a'
+                    : x % 7 == 5 && y % 5 == 3 ? '@' : random.nextInt(10) == 0 ? '#' : '.');
+            }
+            text.append('\n');
+        }
+        final var gameMap = TestHelper.parseGameMap(text.toString());
+        final var gameState = new GameState(gameMap);
+        final var root = new PersistentGameState(gameMap);
+        var state = root;
+        for (int i = 0; i < 5000; ++i) {
+            final var direction = random.nextInt(Move.DIRECTIONS);
+            final var next = state.apply(0, direction);
+            final var from = gameState.getPlayerCell(0);
+            final var to = gameState.neighbor(from, direction);
+            if (gameState.getCell(to) instanceof Box && gameState.getCell(gameState.neighbor(to, direction)) instanceof Empty) {
+                gameState.move(to, gameState.neighbor(to, direction));
+            }
+            if (gameState.getCell(to) instanceof Empty) {
+                gameState.move(from, to);
+                assertNotSame(state, next);
+            } else {
+                assertSame(state, next);
+            }
+            state = next;
+            assertEquals(gameState.getZobristHash(), state.getZobristHash());
+            assertEquals(gameState.getBoxesOnDestinations(), state.getBoxesOnDestinations());
+        }
+        for (int idx = 0; idx < width * height; ++idx) {
+            assertSame(gameState.getCell(idx), state.getCell(idx));
+            assertSame(gameMap.getCell(idx), root.getCell(idx));
+        }
+    }
+}
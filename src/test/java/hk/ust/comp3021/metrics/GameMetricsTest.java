@@ -0,0 +1,106 @@
+package hk.ust.comp3021.metrics;
+
+import hk.ust.comp3021.actions.*;
+import hk.ust.comp3021.game.AbstractSokobanGame;
+import hk.ust.comp3021.game.GameState;
+import hk.ust.comp3021.game.RenderingEngine;
+import hk.ust.comp3021.utils.StringResources;
+import hk.ust.comp3021.utils.TestHelper;
+import hk.ust.comp3021.utils.TestKind;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class GameMetricsTest {
+
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testRecordsGameOperations() {
+        final var game = new MeasuredGame(new GameState(TestHelper.parseGameMap("""
+            233
+            #######
+            #A.a.@#
+            #.....#
+            #######
+            """)));
+        final var metrics = new GameMetrics();
+        game.play(List.of(new Move.Down(0), new Move.Up(0)));
+        assertEquals(0, metrics.getLatency(GameMetrics.Operation.PROCESS_ACTION).getCount());
+
+        game.setMetrics(metrics);
+        game.play(List.of(new Move.Up(0), new Move.Right(0), new Move.Right(0), new Undo(0), new InvalidInput(0, "?")));
+        game.renderWith(mock(RenderingEngine.class));
+
+        assertEquals(5, metrics.getLatency(GameMetrics.Operation.PROCESS_ACTION).getCount());
+        assertEquals(1, metrics.getLatency(GameMetrics.Operation.CHECKPOINT).getCount());
+        assertEquals(1, metrics.getLatency(GameMetrics.Operation.UNDO).getCount());
+        assertEquals(1, metrics.getLatency(GameMetrics.Operation.RENDER).getCount());
+        assertEquals(3, metrics.getSuccessCount());
+        assertEquals(2, metrics.getFailureCount());
+        assertEquals(Map.of("You hit a wall", 1L, StringResources.INVALID_INPUT_MESSAGE, 1L), metrics.getFailureCounts());
+        assertTrue(metrics.getAllocatedBytes(GameMetrics.Operation.PROCESS_ACTION) >= 0);
+
+        final var output = new ByteArrayOutputStream();
+        metrics.dump(new PrintStream(output, true));
+        final var text = output.toString();
+        assertTrue(text.contains("PROCESS_ACTION"));
+        assertTrue(text.contains("success=3 failed=2"));
+        assertTrue(text.contains("1 You hit a wall"));
+    }
+
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testAllocationUnavailableOnVirtualThreads() throws InterruptedException {
+        final var game = new MeasuredGame(new GameState(TestHelper.parseGameMap("""
+            233
+            #######
+            #A.a.@#
+            #.....#
+            #######
+            """)));
+        final var metrics = new GameMetrics();
+        game.setMetrics(metrics);
+        Thread.ofVirtual().start(() -> {
+            assertEquals(-1, GameMetrics.allocatedBytes());
+            game.play(List.of(new Move.Right(0), new Move.Right(0)));
+        }).join();
+
+        assertEquals(2, metrics.getLatency(GameMetrics.Operation.PROCESS_ACTION).getCount());
+        assertEquals(1, metrics.getLatency(GameMetrics.Operation.CHECKPOINT).getCount());
+        assertEquals(0, metrics.getAllocationCount(GameMetrics.Operation.PROCESS_ACTION));
+        assertEquals(0, metrics.getAllocatedBytes(GameMetrics.Operation.PROCESS_ACTION));
+
+        game.play(List.of(new Move.Left(0)));
+        assertEquals(1, metrics.getAllocationCount(GameMetrics.Operation.PROCESS_ACTION));
+
+        final var output = new ByteArrayOutputStream();
+        metrics.dump(new PrintStream(output, true));
+        assertTrue(output.toString().contains("allocated=n/a"));
+    }
+
+    private static class MeasuredGame extends AbstractSokobanGame {
+
+        MeasuredGame(GameState gameState) {
+            super(gameState);
+        }
+
+        @Override
+        public void run() {
+        }
+
+        void play(List<Action> actions) {
+            actions.forEach(this::processAction);
+        }
+
+        void renderWith(RenderingEngine renderingEngine) {
+            render(renderingEngine);
+        }
+    }
+}
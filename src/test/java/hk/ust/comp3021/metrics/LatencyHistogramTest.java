@@ -0,0 +1,41 @@
+package hk.ust.comp3021.metrics;
+
+import hk.ust.comp3021.utils.TestKind;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LatencyHistogramTest {
+
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testBucketsCoverEveryValue() {
+        for (long value : new long[]{0, 1, 15, 16, 17, 31, 32, 1000, 123_456_789, Long.MAX_VALUE}) {
+            final var bucket = LatencyHistogram.bucketOf(value);
+            assertTrue(LatencyHistogram.highestValueIn(bucket) >= value);
+            assertTrue(bucket == 0 || LatencyHistogram.highestValueIn(bucket - 1) < value);
+            assertTrue(LatencyHistogram.highestValueIn(bucket) - value <= value / 16);
+        }
+    }
+
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testPercentiles() {
+        final var histogram = new LatencyHistogram();
+        assertEquals(0, histogram.getValueAtPercentile(99));
+        for (int i = 1; i <= 1000; ++i) {
+            histogram.record(i * 1000L);
+        }
+        histogram.record(-5);
+
+        assertEquals(1001, histogram.getCount());
+        assertEquals(1_000_000, histogram.getMax());
+        assertEquals(500_500_000, histogram.getTotal());
+        assertEquals(500_000, histogram.getValueAtPercentile(50), 500_000 / 16.0);
+        assertEquals(990_000, histogram.getValueAtPercentile(99), 990_000 / 16.0);
+        assertEquals(1_000_000, histogram.getValueAtPercentile(100));
+        assertEquals(0, histogram.getValueAtPercentile(0));
+        assertThrows(IllegalArgumentException.class, () -> histogram.getValueAtPercentile(101));
+    }
+}
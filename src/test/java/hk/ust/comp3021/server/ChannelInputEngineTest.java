@@ -0,0 +1,86 @@
+package hk.ust.comp3021.server;
+
+import hk.ust.comp3021.actions.Exit;
+import hk.ust.comp3021.actions.InvalidInput;
+import hk.ust.comp3021.actions.Move;
+import hk.ust.comp3021.actions.Undo;
+import hk.ust.comp3021.utils.TestKind;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.NoSuchElementException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChannelInputEngineTest {
+
+    private static ByteBuffer bytes(String text) {
+        return ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testDecodeCommands() {
+        final var engine = new ChannelInputEngine();
+        engine.decode(bytes("a\nS\r\nk\ru\nEXIT\nwasdx\nexits\n\n"));
+
+        final var left = assertInstanceOf(Move.Left.class, engine.fetchAction());
+        assertEquals(0, left.getInitiator());
+        assertInstanceOf(Move.Down.class, engine.fetchAction());
+        final var up = assertInstanceOf(Move.Up.class, engine.fetchAction());
+        assertEquals(1, up.getInitiator());
+        assertInstanceOf(Undo.class, engine.fetchAction());
+        assertInstanceOf(Exit.class, engine.fetchAction());
+        assertInstanceOf(InvalidInput.class, engine.fetchAction());
+        assertInstanceOf(InvalidInput.class, engine.fetchAction());
+        assertInstanceOf(InvalidInput.class, engine.fetchAction());
+        assertFalse(engine.hasAction());
+        assertThrows(NoSuchElementException.class, engine::fetchAction);
+    }
+
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testLineSplitAcrossBuffers() {
+        final var engine = new ChannelInputEngine();
+        engine.decode(bytes("ex"));
+        assertFalse(engine.hasAction());
+        engine.decode(bytes("it\r"));
+        assertInstanceOf(Exit.class, engine.fetchAction());
+        engine.decode(bytes("\nd"));
+        assertFalse(engine.hasAction());
+
+        engine.endOfInput();
+        assertInstanceOf(Move.Right.class, engine.fetchAction());
+        assertInstanceOf(Exit.class, engine.fetchAction());
+        assertFalse(engine.hasAction());
+    }
+
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testBatches() {
+        final var engine = new ChannelInputEngine();
+        engine.decode(bytes("wD\nlu"));
+        engine.decode(bytes("rd\nLURD:rU\nlurd:x\nlu\n"));
+
+        assertInstanceOf(Move.Up.class, engine.fetchAction());
+        assertTrue(engine.hasBufferedAction());
+        assertInstanceOf(Move.Right.class, engine.fetchAction());
+        assertFalse(engine.hasBufferedAction());
+
+        // "lurd" without the prefix is neither a batch of keys nor of LURD moves.
+        assertInstanceOf(InvalidInput.class, engine.fetchAction());
+        assertFalse(engine.hasBufferedAction());
+
+        final var right = assertInstanceOf(Move.Right.class, engine.fetchAction());
+        assertEquals(0, right.getInitiator());
+        engine.discardBufferedActions();
+
+        assertInstanceOf(InvalidInput.class, engine.fetchAction());
+        final var keyL = assertInstanceOf(Move.Right.class, engine.fetchAction());
+        assertEquals(1, keyL.getInitiator());
+        assertInstanceOf(Undo.class, engine.fetchAction());
+        assertFalse(engine.hasAction());
+    }
+}
@@ -0,0 +1,100 @@
+package hk.ust.comp3021.server;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A client opening many connections to a {@link SokobanServer}.
+ * <p>
+ * Run it on its own against a running server to measure how many idle sessions the server holds:
+ * {@code LoadGenerator <address> <connections>}.
+ */
+public class LoadGenerator implements AutoCloseable {
+
+    private final List<SocketChannel> clients = new ArrayList<>();
+
+    /**
+     * Open connections to a server.
+     *
+     * @param address     The address of the server.
+     * @param connections The number of connections.
+     * @throws IOException if a connection fails.
+     */
+    public LoadGenerator(@NotNull SocketAddress address, int connections) throws IOException {
+        for (int i = 0; i < connections; ++i) {
+            final var client = address instanceof UnixDomainSocketAddress
+                ? SocketChannel.open(StandardProtocolFamily.UNIX)
+                : SocketChannel.open();
+            clients.add(client);
+            client.connect(address);
+        }
+    }
+
+    /**
+     * Send the same input on every connection.
+     *
+     * @param input The input.
+     * @throws IOException if writing fails.
+     */
+    public void sendAll(@NotNull String input) throws IOException {
+        for (var client : clients) {
+            final var buffer = ByteBuffer.wrap(input.getBytes(StandardCharsets.UTF_8));
+            while (buffer.hasRemaining()) {
+                client.write(buffer);
+            }
+        }
+    }
+
+    /**
+     * Read everything the server sends on every connection, until the server closes it.
+     *
+     * @return The output of every connection.
+     * @throws IOException if reading fails.
+     */
+    public @NotNull List<String> readAll() throws IOException {
+        final var outputs = new ArrayList<String>();
+        final var buffer = ByteBuffer.allocate(4096);
+        for (var client : clients) {
+            final var output = new ByteArrayOutputStream();
+            while (client.read(buffer.clear()) >= 0) {
+                output.write(buffer.array(), 0, buffer.position());
+            }
+            outputs.add(output.toString(StandardCharsets.UTF_8));
+        }
+        return outputs;
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (var client : clients) {
+            client.close();
+        }
+    }
+
+    /**
+     * Hold idle connections to a server until the user presses enter, then exit every game.
+     *
+     * @param args The address of the server, see {@link SokobanServer#parseAddress(String)},
+     *             and the number of connections.
+     * @throws IOException if a connection fails.
+     */
+    public static void main(@NotNull String[] args) throws IOException {
+        final var start = System.nanoTime();
+        try (var generator = new LoadGenerator(SokobanServer.parseAddress(args[0]), Integer.parseInt(args[1]))) {
+            System.out.printf("Opened %s connections in %d ms.%n", args[1], (System.nanoTime() - start) / 1_000_000);
+            System.in.read();
+            generator.sendAll("exit\n");
+            generator.readAll();
+        }
+    }
+}
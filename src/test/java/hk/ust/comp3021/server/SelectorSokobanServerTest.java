@@ -0,0 +1,137 @@
+package hk.ust.comp3021.server;
+
+import hk.ust.comp3021.game.GameMap;
+import hk.ust.comp3021.game.GameState;
+import hk.ust.comp3021.tui.TerminalRenderingEngine;
+import hk.ust.comp3021.utils.StringResources;
+import hk.ust.comp3021.utils.TestHelper;
+import hk.ust.comp3021.utils.TestKind;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SelectorSokobanServerTest {
+
+    private static final GameMap MAP = TestHelper.parseGameMap("""
+        2
+        #######
+        #.Aa.@#
+        #..a.@#
+        #######
+        """);
+
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testManySessionsOnFewThreads() throws IOException, InterruptedException {
+        final var connections = 500;
+        try (var server = SelectorSokobanServer.start(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), MAP, 2);
+             var generator = new LoadGenerator(server.getLocalAddress(), connections)) {
+            while (server.getConnectionCount() < connections) {
+                Thread.sleep(1);
+            }
+
+            generator.sendAll("d\nu\nexit\n");
+            for (var output : generator.readAll()) {
+                assertTrue(output.startsWith(StringResources.GAME_READY_MESSAGE), output);
+                assertTrue(output.contains(String.format(StringResources.UNDO_QUOTA_TEMPLATE, 1)), output);
+                assertTrue(output.endsWith(StringResources.GAME_EXIT_MESSAGE + System.lineSeparator()), output);
+            }
+            while (server.getConnectionCount() > 0) {
+                Thread.sleep(1);
+            }
+        }
+    }
+
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testSameOutputAsThreadPerConnection(@TempDir Path directory) throws IOException {
+        final var input = "x\nd\nd\nu\nh\nexit\n";
+        final String expected;
+        try (var server = SokobanServer.start(UnixDomainSocketAddress.of(directory.resolve("a.sock")), MAP);
+             var generator = new LoadGenerator(server.getLocalAddress(), 1)) {
+            generator.sendAll(input);
+            expected = generator.readAll().get(0);
+        }
+        final var address = UnixDomainSocketAddress.of(directory.resolve("b.sock"));
+        try (var server = SelectorSokobanServer.start(address, MAP, 1);
+             var generator = new LoadGenerator(address, 1)) {
+            generator.sendAll(input);
+            assertEquals(expected, generator.readAll().get(0));
+        }
+        assertFalse(Files.exists(address.getPath()));
+    }
+
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testSlowChannelKeepsOrder() {
+        final var channel = new SlowChannel();
+        final var engine = new ChannelRenderingEngine(channel, new OutputSegments(), false);
+        final var state = new GameState(MAP);
+        final var expected = new StringBuilder();
+        for (int i = 0; i < OutputSegments.SEGMENTS * 2; ++i) {
+            engine.message("message " + i);
+            engine.render(state);
+            expected.append("message ").append(i).append(System.lineSeparator()).append(TerminalRenderingEngine.renderFrame(state));
+        }
+        engine.flush();
+        while (engine.hasPending()) {
+            engine.flush();
+        }
+        assertFalse(engine.checkError());
+        assertEquals(expected.toString(), channel.output.toString(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * A channel taking at most a few bytes per write, like a socket whose client reads slowly.
+     */
+    private static final class SlowChannel implements GatheringByteChannel {
+        private static final int BYTES_PER_WRITE = 7;
+        private final ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        @Override
+        public int write(ByteBuffer src) {
+            final var length = Math.min(src.remaining(), BYTES_PER_WRITE);
+            for (int i = 0; i < length; ++i) {
+                output.write(src.get());
+            }
+            return length;
+        }
+
+        @Override
+        public long write(ByteBuffer[] srcs, int offset, int length) {
+            for (int i = offset; i < offset + length; ++i) {
+                if (srcs[i].hasRemaining()) {
+                    return write(srcs[i]);
+                }
+            }
+            return 0;
+        }
+
+        @Override
+        public long write(ByteBuffer[] srcs) {
+            return write(srcs, 0, srcs.length);
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
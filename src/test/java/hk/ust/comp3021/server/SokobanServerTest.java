@@ -0,0 +1,91 @@
+package hk.ust.comp3021.server;
+
+import hk.ust.comp3021.game.GameMap;
+import hk.ust.comp3021.utils.StringResources;
+import hk.ust.comp3021.utils.TestHelper;
+import hk.ust.comp3021.utils.TestKind;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.UnixDomainSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SokobanServerTest {
+
+    private static final GameMap MAP = TestHelper.parseGameMap("""
+        2
+        #######
+        #.Aa.@#
+        #..a.@#
+        #######
+        """);
+
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testManyIdleSessions() throws IOException, InterruptedException {
+        final var connections = 500;
+        try (var server = SokobanServer.start(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), MAP);
+             var generator = new LoadGenerator(server.getLocalAddress(), connections)) {
+            while (server.getSessions().size() < connections) {
+                Thread.sleep(1);
+            }
+            assertTrue(server.getSessions().estimateMemoryUsage() > 0);
+
+            generator.sendAll("d\nu\nexit\n");
+            for (var output : generator.readAll()) {
+                assertTrue(output.contains(String.format(StringResources.UNDO_QUOTA_TEMPLATE, 1)), output);
+                assertTrue(output.endsWith(StringResources.GAME_EXIT_MESSAGE + System.lineSeparator()), output);
+            }
+        }
+    }
+
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testUnixDomainSocket(@TempDir Path directory) throws IOException {
+        final var address = UnixDomainSocketAddress.of(directory.resolve("sokoban.sock"));
+        try (var server = SokobanServer.start(address, MAP);
+             var generator = new LoadGenerator(address, 1)) {
+            generator.sendAll("x\r\n" + "w".repeat(SocketInputEngine.MAX_LINE_LENGTH * 2) + "\nexit\n");
+            final var output = generator.readAll().get(0);
+
+            assertTrue(output.startsWith(StringResources.GAME_READY_MESSAGE), output);
+            assertEquals(2, output.split(StringResources.INVALID_INPUT_MESSAGE, -1).length - 1, output);
+            assertTrue(output.endsWith(StringResources.GAME_EXIT_MESSAGE + System.lineSeparator()), output);
+        }
+        assertFalse(Files.exists(address.getPath()));
+    }
+
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testDisconnectEndsSession() throws IOException, InterruptedException {
+        try (var server = SokobanServer.start(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), MAP, 1)) {
+            try (var ignored = new LoadGenerator(server.getLocalAddress(), 1)) {
+                while (server.getSessions().size() < 1) {
+                    Thread.sleep(1);
+                }
+                try (var rejected = new LoadGenerator(server.getLocalAddress(), 1)) {
+                    assertEquals(StringResources.SERVER_FULL_MESSAGE + System.lineSeparator(), rejected.readAll().get(0));
+                }
+            }
+            while (server.getSessions().size() > 0) {
+                Thread.sleep(1);
+            }
+        }
+    }
+
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testParseAddress() {
+        assertEquals(UnixDomainSocketAddress.of("/tmp/sokoban.sock"), SokobanServer.parseAddress("unix:/tmp/sokoban.sock"));
+        assertEquals(new InetSocketAddress(InetAddress.getLoopbackAddress(), 3021), SokobanServer.parseAddress("3021"));
+        assertEquals(new InetSocketAddress("localhost", 3021), SokobanServer.parseAddress("localhost:3021"));
+        assertThrows(IllegalArgumentException.class, () -> SokobanServer.parseAddress("localhost"));
+    }
+}
@@ -0,0 +1,198 @@
+package hk.ust.comp3021.session;
+
+import hk.ust.comp3021.actions.Action;
+import hk.ust.comp3021.game.GameMap;
+import hk.ust.comp3021.game.GameState;
+import hk.ust.comp3021.tui.TerminalInputEngine;
+import hk.ust.comp3021.tui.TerminalRenderingEngine;
+import hk.ust.comp3021.tui.TerminalSokobanGame;
+import hk.ust.comp3021.utils.StringResources;
+import hk.ust.comp3021.utils.TestHelper;
+import hk.ust.comp3021.utils.TestKind;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SessionRegistryTest {
+
+    private static final String MAP = """
+        2
+        #######
+        #.Aa.@#
+        #..a.@#
+        #######
+        """;
+
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testManyIsolatedSessions() throws InterruptedException {
+        final var map = TestHelper.parseGameMap(MAP);
+        final var outputs = new ArrayList<ByteArrayOutputStream>();
+        try (var registry = new SessionRegistry()) {
+            for (int i = 0; i < 1000; ++i) {
+                // Every other session spends an undo, which must not change the quota of the other sessions.
+                final var input = i % 2 == 0 ? "d\nu\nexit\n" : "exit\n";
+                final var output = new ByteArrayOutputStream();
+                outputs.add(output);
+                registry.start(new TerminalSokobanGame(new GameState(map),
+                    new TerminalInputEngine(new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8))),
+                    new TerminalRenderingEngine(new PrintStream(output, true, StandardCharsets.UTF_8))));
+            }
+            assertTrue(registry.awaitAll(Duration.ofSeconds(1)));
+            assertEquals(0, registry.size());
+        }
+
+        for (int i = 0; i < outputs.size(); ++i) {
+            final var text = outputs.get(i).toString(StandardCharsets.UTF_8);
+            assertTrue(text.contains(StringResources.GAME_EXIT_MESSAGE));
+            final var quota = i % 2 == 0 ? 1 : 2;
+            assertTrue(text.trim().endsWith(String.format(StringResources.UNDO_QUOTA_TEMPLATE, quota)
+                + System.lineSeparator() + StringResources.GAME_EXIT_MESSAGE), text);
+        }
+    }
+
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testFailureAndMemoryUsage() throws InterruptedException {
+        final var map = TestHelper.parseGameMap(MAP);
+        final var blocked = new CountDownLatch(1);
+        try (var registry = new SessionRegistry(1)) {
+            final var session = registry.start(new TerminalSokobanGame(new GameState(map),
+                new TerminalInputEngine(new ByteArrayInputStream(new byte[0])) {
+                    @Override
+                    public Action fetchAction() {
+                        try {
+                            blocked.await();
+                        } catch (InterruptedException e) {
+                            throw new IllegalStateException(e);
+                        }
+                        throw new IllegalStateException("No more input.");
+                    }
+                },
+                new TerminalRenderingEngine(new PrintStream(new ByteArrayOutputStream(), true, StandardCharsets.UTF_8))));
+
+            assertSame(session, registry.get(session.getId()));
+            assertTrue(registry.estimateMemoryUsage() > 0);
+            assertThrows(IllegalStateException.class, () -> registry.start(new TerminalSokobanGame(new GameState(map),
+                new TerminalInputEngine(new ByteArrayInputStream(new byte[0])),
+                new TerminalRenderingEngine(new PrintStream(new ByteArrayOutputStream(), true, StandardCharsets.UTF_8)))));
+
+            blocked.countDown();
+            assertTrue(session.await(Duration.ofSeconds(1)));
+            assertInstanceOf(IllegalStateException.class, session.getFailure());
+            assertNull(registry.get(session.getId()));
+        }
+    }
+
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testConcurrentStartsRespectLimit() throws InterruptedException {
+        final var map = TestHelper.parseGameMap(MAP);
+        final var blocked = new CountDownLatch(1);
+        final var ready = new CountDownLatch(1);
+        final var started = new AtomicInteger();
+        final var rejected = new AtomicInteger();
+        try (var registry = new SessionRegistry(4)) {
+            final var starters = new ArrayList<Thread>();
+            for (int i = 0; i < 32; ++i) {
+                starters.add(Thread.ofPlatform().start(() -> {
+                    try {
+                        ready.await();
+                        registry.start(blockedGame(map, blocked));
+                        started.incrementAndGet();
+                    } catch (IllegalStateException e) {
+                        rejected.incrementAndGet();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }));
+            }
+            ready.countDown();
+            for (var starter : starters) {
+                starter.join();
+            }
+            assertEquals(4, started.get());
+            assertEquals(28, rejected.get());
+            assertEquals(4, registry.size());
+
+            blocked.countDown();
+            assertTrue(registry.awaitAll(Duration.ofSeconds(1)));
+            assertEquals(0, registry.size());
+            final var session = registry.start(blockedGame(map, blocked));
+            assertTrue(session.await(Duration.ofSeconds(1)));
+        }
+    }
+
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testConcurrentStartsNameThreads() throws InterruptedException {
+        final var map = TestHelper.parseGameMap(MAP);
+        final var ready = new CountDownLatch(1);
+        final var names = ConcurrentHashMap.<String>newKeySet();
+        final var ids = ConcurrentHashMap.<Long>newKeySet();
+        try (var registry = new SessionRegistry()) {
+            final var starters = new ArrayList<Thread>();
+            for (int i = 0; i < 16; ++i) {
+                starters.add(Thread.ofPlatform().start(() -> {
+                    try {
+                        ready.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                    for (int j = 0; j < 16; ++j) {
+                        final var session = registry.start(new TerminalSokobanGame(new GameState(map),
+                            new TerminalInputEngine(new ByteArrayInputStream(new byte[0])) {
+                                @Override
+                                public Action fetchAction() {
+                                    names.add(Thread.currentThread().getName());
+                                    return super.fetchAction();
+                                }
+                            },
+                            new TerminalRenderingEngine(new PrintStream(new ByteArrayOutputStream(), true, StandardCharsets.UTF_8))));
+                        ids.add(session.getId());
+                    }
+                }));
+            }
+            ready.countDown();
+            for (var starter : starters) {
+                starter.join();
+            }
+            assertTrue(registry.awaitAll(Duration.ofSeconds(1)));
+        }
+
+        final Set<String> expected = new HashSet<>();
+        ids.forEach(id -> expected.add("sokoban-session-" + id));
+        assertEquals(256, expected.size());
+        assertEquals(expected, names);
+    }
+
+    private static TerminalSokobanGame blockedGame(GameMap map, CountDownLatch blocked) {
+        return new TerminalSokobanGame(new GameState(map),
+            new TerminalInputEngine(new ByteArrayInputStream(new byte[0])) {
+                @Override
+                public Action fetchAction() {
+                    try {
+                        blocked.await();
+                    } catch (InterruptedException e) {
+                        throw new IllegalStateException(e);
+                    }
+                    throw new IllegalStateException("No more input.");
+                }
+            },
+            new TerminalRenderingEngine(new PrintStream(new ByteArrayOutputStream(), true, StandardCharsets.UTF_8)));
+    }
+}
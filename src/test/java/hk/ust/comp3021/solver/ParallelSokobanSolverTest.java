@@ -0,0 +1,136 @@
+package hk.ust.comp3021.solver;
+
+import hk.ust.comp3021.utils.TestHelper;
+import hk.ust.comp3021.utils.TestKind;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ParallelSokobanSolverTest {
+
+    @Tag(TestKind.PUBLIC)
+    @ParameterizedTest
+    @ValueSource(strings = {"map00", "map01", "map02", "map03", "multiPlayermap01"})
+    void testSolvesBuiltInMaps(String mapName) throws IOException {
+        final String text;
+        try (var stream = getClass().getClassLoader().getResourceAsStream(mapName + ".map")) {
+            text = new String(stream.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        final var gameMap = TestHelper.parseGameMap(text);
+        final var pool = new ForkJoinPool(4);
+        try {
+            final var solver = new ParallelSokobanSolver(gameMap, pool, Duration.ofSeconds(10), 1 << 20);
+
+            final var solution = solver.solve();
+
+            assertTrue(solution.isPresent());
+            assertTrue(new ReplayGame(gameMap).wins(solution.get()));
+            final var statistics = solver.getStatistics();
+            assertNotNull(statistics);
+            assertEquals(4, statistics.threads());
+            assertTrue(statistics.states() > 0);
+            assertFalse(statistics.exhausted());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testStopsWithinTimeBudget() {
+        final var gameMap = TestHelper.parseGameMap("""
+            -1
+            #########
+            #A......#
+            #.a.a.a.#
+            #.......#
+            #.a.a.a.#
+            #......@#
+            #..@@@@@#
+            #########
+            """);
+        final var solver = new ParallelSokobanSolver(gameMap, ForkJoinPool.commonPool(), Duration.ZERO, 1 << 20);
+
+        assertTrue(solver.solve().isEmpty());
+        final var statistics = solver.getStatistics();
+        assertNotNull(statistics);
+        assertFalse(statistics.exhausted());
+    }
+
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testCancelStopsRunningSearch() throws InterruptedException {
+        final var gameMap = TestHelper.parseGameMap("""
+            -1
+            #########
+            #A......#
+            #.a.a.a.#
+            #.......#
+            #.a.a.a.#
+            #......@#
+            #..@@@@@#
+            #########
+            """);
+        final var solver = new ParallelSokobanSolver(gameMap, ForkJoinPool.commonPool(), Duration.ofSeconds(30), 1 << 20);
+        final var done = new AtomicBoolean();
+        final var canceller = new Thread(() -> {
+            while (!done.get()) {
+                solver.cancel();
+                Thread.onSpinWait();
+            }
+        });
+        canceller.start();
+        try {
+            assertTrue(solver.solve().isEmpty());
+        } finally {
+            done.set(true);
+            canceller.join();
+        }
+        final var statistics = solver.getStatistics();
+        assertNotNull(statistics);
+        assertFalse(statistics.exhausted());
+    }
+
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testCancelBeforeSolveIsNotKept() {
+        final var gameMap = TestHelper.parseGameMap("""
+            -1
+            #######
+            #A.a.@#
+            #######
+            """);
+        final var solver = new ParallelSokobanSolver(gameMap);
+        solver.cancel();
+
+        assertTrue(solver.solve().isPresent());
+    }
+
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testExhaustsUnsolvableMap() {
+        final var gameMap = TestHelper.parseGameMap("""
+            -1
+            #######
+            #A.a..#
+            #.a..@#
+            ###@###
+            #######
+            """);
+        final var solver = new ParallelSokobanSolver(gameMap);
+
+        assertTrue(solver.solve().isEmpty());
+        final var statistics = solver.getStatistics();
+        assertNotNull(statistics);
+        assertTrue(statistics.exhausted());
+    }
+}
@@ -0,0 +1,39 @@
+package hk.ust.comp3021.solver;
+
+import hk.ust.comp3021.actions.ActionResult;
+import hk.ust.comp3021.actions.Move;
+import hk.ust.comp3021.game.AbstractSokobanGame;
+import hk.ust.comp3021.game.GameMap;
+import hk.ust.comp3021.game.GameState;
+
+import java.util.List;
+
+/**
+ * Plays moves found by a solver through the rules of the game.
+ */
+class ReplayGame extends AbstractSokobanGame {
+
+    /**
+     * @param gameMap The map to play on.
+     */
+    ReplayGame(GameMap gameMap) {
+        super(new GameState(gameMap));
+    }
+
+    /**
+     * @param moves The moves to play.
+     * @return Whether every move succeeded and the game is won at the end.
+     */
+    boolean wins(List<Move> moves) {
+        for (var move : moves) {
+            if (processAction(move) instanceof ActionResult.Failed) {
+                return false;
+            }
+        }
+        return state.isWin();
+    }
+
+    @Override
+    public void run() {
+    }
+}
@@ -0,0 +1,80 @@
+package hk.ust.comp3021.solver;
+
+import hk.ust.comp3021.utils.TestHelper;
+import hk.ust.comp3021.utils.TestKind;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SokobanSolverTest {
+
+    @Tag(TestKind.PUBLIC)
+    @ParameterizedTest
+    @ValueSource(strings = {"map00", "map01", "map02", "map03", "multiPlayermap00", "multiPlayermap01"})
+    void testSolvesBuiltInMaps(String mapName) throws IOException {
+        final String text;
+        try (var stream = getClass().getClassLoader().getResourceAsStream(mapName + ".map")) {
+            text = new String(stream.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        final var gameMap = TestHelper.parseGameMap(text);
+
+        final var solution = new SokobanSolver(gameMap).solve();
+
+        assertTrue(solution.isPresent());
+        assertTrue(new ReplayGame(gameMap).wins(solution.get()));
+    }
+
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testWalksAroundBoxesBetweenPushes() {
+        final var gameMap = TestHelper.parseGameMap("""
+            -1
+            #######
+            #@....#
+            #.aa..#
+            #..A.@#
+            #######
+            """);
+
+        final var solution = new SokobanSolver(gameMap).solve();
+
+        assertTrue(solution.isPresent());
+        assertTrue(new ReplayGame(gameMap).wins(solution.get()));
+    }
+
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testUnsolvableMap() {
+        final var boxInCorner = TestHelper.parseGameMap("""
+            -1
+            ######
+            #a..@#
+            #...A#
+            ######
+            """);
+        final var boxOfImmovablePlayer = TestHelper.parseGameMap("""
+            -1
+            #######
+            #A.a.@#
+            #C.c.@#
+            #######
+            """);
+
+        assertTrue(new SokobanSolver(boxInCorner).solve().isEmpty());
+        assertTrue(new SokobanSolver(boxOfImmovablePlayer).solve().isEmpty());
+        assertTrue(new SokobanSolver(TestHelper.parseGameMap("""
+            -1
+            #######
+            #A.a.@#
+            #.....#
+            #..#..#
+            #######
+            """), 1).solve().isEmpty());
+    }
+}
@@ -0,0 +1,61 @@
+package hk.ust.comp3021.tui;
+
+import hk.ust.comp3021.game.GameState;
+import hk.ust.comp3021.game.Position;
+import hk.ust.comp3021.utils.TestHelper;
+import hk.ust.comp3021.utils.TestKind;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class MapTextTest {
+
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testDrawMap() {
+        final var gameState = new GameState(TestHelper.parseGameMap("""
+            233
+            ######
+            #.Aa@#
+            #B.b@###
+            ######
+            """));
+        gameState.move(Position.of(3, 1), Position.of(4, 1));
+        gameState.move(Position.of(2, 1), Position.of(3, 1));
+
+        final var frame = new char[MapText.length(gameState)];
+        new MapText().draw(gameState, frame);
+        assertEquals("######  \n#..Aa#  \n#B.b@###\n######  \n", new String(frame));
+    }
+
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testDrawsEveryGameState() {
+        final var first = new GameState(TestHelper.parseGameMap("""
+            233
+            #####
+            #Aa@#
+            #####
+            """));
+        final var second = new GameState(TestHelper.parseGameMap("""
+            233
+            ######
+            #@aA.#
+            ######
+            """));
+        final var mapText = new MapText();
+        final var frame = new char[MapText.length(second)];
+
+        mapText.draw(first, frame);
+        assertEquals("#####\n#Aa@#\n#####\n", new String(frame, 0, MapText.length(first)));
+        mapText.draw(second, frame);
+        assertEquals("######\n#@aA.#\n######\n", new String(frame));
+        second.move(second.getPlayerCell(0), second.idx(4, 1));
+        mapText.draw(second, frame);
+        assertEquals("######\n#@a.A#\n######\n", new String(frame));
+        first.move(first.idx(2, 1), first.idx(3, 1));
+        mapText.draw(first, frame);
+        assertEquals("#####\n#A.a#\n#####\n", new String(frame, 0, MapText.length(first)));
+    }
+}
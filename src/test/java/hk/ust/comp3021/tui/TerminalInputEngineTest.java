@@ -1,6 +1,10 @@
 package hk.ust.comp3021.tui;
 
+import hk.ust.comp3021.actions.Action;
 import hk.ust.comp3021.actions.Exit;
+import hk.ust.comp3021.actions.InvalidInput;
+import hk.ust.comp3021.actions.Move;
+import hk.ust.comp3021.actions.Undo;
 import hk.ust.comp3021.utils.TestKind;
 import org.junit.jupiter.api.Tag;
 import org.junit.jupiter.api.Test;
@@ -8,8 +12,10 @@ import org.junit.jupiter.api.Test;
 import java.io.ByteArrayInputStream;
 import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
 
-import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.*;
 
 class TerminalInputEngineTest {
 
@@ -25,6 +31,63 @@ class TerminalInputEngineTest {
         assertTrue(action instanceof Exit);
     }
 
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testBatch() {
+        final var inputEngine = new TerminalInputEngine(fixValueStream("WdJ\nlurd:Lr\nwx\n"));
+
+        assertTrue(inputEngine.fetchAction() instanceof Move.Up);
+        assertTrue(inputEngine.hasBufferedAction());
+        assertTrue(inputEngine.fetchAction() instanceof Move.Right);
+        assertTrue(inputEngine.fetchAction() instanceof Move.Down down && down.getInitiator() == 1);
+        assertFalse(inputEngine.hasBufferedAction());
+
+        assertTrue(inputEngine.fetchAction() instanceof Move.Left left && left.getInitiator() == 0);
+        inputEngine.discardBufferedActions();
+        assertFalse(inputEngine.hasBufferedAction());
+
+        assertTrue(inputEngine.fetchAction() instanceof InvalidInput);
+        assertTrue(inputEngine.fetchAction() instanceof Exit);
+    }
+
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testDecodingSharesActions() {
+        final var longLine = "lurd:" + "l".repeat(TerminalInputEngine.MAX_BATCH_LENGTH) + "r";
+        final var inputEngine = new TerminalInputEngine(fixValueStream("a\r\nA\r\rEXIT\n" + longLine + "\nu"));
+
+        final var left = inputEngine.fetchAction();
+        assertSame(Move.of(0, Move.DIRECTION_LEFT), left);
+        assertSame(left, inputEngine.fetchAction());
+        assertSame(InvalidInput.of(-1), inputEngine.fetchAction());
+        assertSame(Exit.of(-1), inputEngine.fetchAction());
+        assertTrue(inputEngine.fetchAction() instanceof InvalidInput);
+        assertSame(Undo.of(-1), inputEngine.fetchAction());
+        assertSame(Exit.of(-1), inputEngine.fetchAction());
+
+        final var actions = new ArrayList<Action>();
+        final var bytes = "xxlurd:uRx".getBytes(StandardCharsets.US_ASCII);
+        TerminalInputEngine.parseActions(bytes, 2, 7, actions);
+        assertEquals(List.of(Move.of(0, Move.DIRECTION_UP), Move.of(0, Move.DIRECTION_RIGHT)), actions);
+    }
+
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testNonAsciiLettersAreInvalid() {
+        for (final var line : List.of("\u212A", "W\u212Aw", "lurd:\u0130", "\u00FF", "EX\u0130T")) {
+            final var actions = new ArrayList<Action>();
+            TerminalInputEngine.parseActions(line, actions);
+            assertEquals(List.of(InvalidInput.of(-1)), actions);
+        }
+        assertNull(TerminalInputEngine.keyAction('\u212A'));
+        assertNull(TerminalInputEngine.lurdAction('\u0130'));
+
+        final var actions = new ArrayList<Action>();
+        final var bytes = new byte[]{(byte) 0xb5, (byte) 0xff};
+        TerminalInputEngine.parseActions(bytes, 0, bytes.length, actions);
+        assertEquals(List.of(InvalidInput.of(-1)), actions);
+    }
+
     private InputStream fixValueStream(String content) {
         final var bytes = content.getBytes(StandardCharsets.UTF_8);
         return new ByteArrayInputStream(bytes);
@@ -1,6 +1,7 @@
 package hk.ust.comp3021.tui;
 
 import hk.ust.comp3021.game.GameState;
+import hk.ust.comp3021.game.Position;
 import hk.ust.comp3021.utils.TestHelper;
 import hk.ust.comp3021.utils.TestKind;
 import org.junit.jupiter.api.Tag;
@@ -55,6 +56,36 @@ class TerminalRenderingEngineTest {
         assertEquals('a', lines.get(3).charAt(1));
     }
 
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testDifferentialRender() {
+        final var gameState = new GameState(TestHelper.parseGameMap("""
+            233
+            ######
+            #.Aa@#
+            #..a@#
+            ######
+            """));
+        final var stream = new CapturingStream();
+        final var renderingEngine = new TerminalRenderingEngine(stream, true);
+
+        renderingEngine.render(gameState);
+        final var fullFrame = stream.getContent();
+        assertEquals("\u001b[H\u001b[2J" + TerminalRenderingEngine.renderFrame(gameState), fullFrame);
+
+        gameState.move(Position.of(2, 1), Position.of(1, 1));
+        renderingEngine.render(gameState);
+        assertEquals("\u001b7\u001b[2;2HA.\u001b8", stream.getContent().substring(fullFrame.length()));
+
+        final var movedFrame = stream.getContent();
+        renderingEngine.render(gameState);
+        assertEquals(movedFrame, stream.getContent());
+
+        renderingEngine.message("Hello");
+        renderingEngine.clearMessages();
+        assertEquals("Hello" + System.lineSeparator() + "\u001b[5;1H\u001b[J", stream.getContent().substring(movedFrame.length()));
+    }
+
     static class CapturingStream extends PrintStream {
         public CapturingStream() {
             super(new ByteArrayOutputStream());
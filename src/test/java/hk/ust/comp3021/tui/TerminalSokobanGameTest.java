@@ -2,16 +2,26 @@ package hk.ust.comp3021.tui;
 
 import hk.ust.comp3021.actions.Exit;
 import hk.ust.comp3021.actions.InvalidInput;
+import hk.ust.comp3021.actions.Move;
 import hk.ust.comp3021.game.GameState;
 import hk.ust.comp3021.game.Position;
+import hk.ust.comp3021.utils.StringResources;
+import hk.ust.comp3021.utils.TestHelper;
 import hk.ust.comp3021.utils.TestKind;
 import org.junit.jupiter.api.Tag;
 import org.junit.jupiter.api.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.HashSet;
 
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.*;
 
 class TerminalSokobanGameTest {
@@ -58,4 +68,57 @@ class TerminalSokobanGameTest {
 
         assertDoesNotThrow(() -> new TerminalSokobanGame(gameState, inputEngine, renderingEngine));
     }
+
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testBatchRendersOnce() {
+        final var gameState = new GameState(TestHelper.parseGameMap("""
+            233
+            ######
+            #.Aa@#
+            #..a@#
+            ######
+            """));
+        final var inputEngine = new TerminalInputEngine(
+            new ByteArrayInputStream("ssd\nexit\n".getBytes(StandardCharsets.UTF_8)));
+        final var renderingEngine = mock(TerminalRenderingEngine.class);
+
+        new TerminalSokobanGame(gameState, inputEngine, renderingEngine).run();
+
+        // Once at the start, once for the batch, which stops at the wall before the last move, and once on exit.
+        verify(renderingEngine, times(3)).render(eq(gameState));
+        assertEquals(Position.of(2, 2), gameState.getPlayerPositionById(0));
+    }
+
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testDifferentialFramesKeepMessages() {
+        final var gameState = new GameState(TestHelper.parseGameMap("""
+            233
+            ######
+            #.Aa@#
+            #..a@#
+            ######
+            """));
+        final var output = new ByteArrayOutputStream();
+        final var game = new TerminalSokobanGame(gameState,
+            new TerminalInputEngine(new ByteArrayInputStream(new byte[0])),
+            new TerminalRenderingEngine(new PrintStream(output, true, StandardCharsets.UTF_8), true));
+        final var clearBelow = "\u001b[J";
+
+        game.onStart();
+        var text = output.toString(StandardCharsets.UTF_8);
+        assertTrue(text.substring(text.lastIndexOf("\u001b[2J")).contains(StringResources.GAME_READY_MESSAGE));
+
+        game.onAction(Move.of(0, Move.DIRECTION_UP));
+        text = output.toString(StandardCharsets.UTF_8);
+        final var screen = text.substring(text.lastIndexOf(clearBelow));
+        assertTrue(screen.contains("You hit a wall"), screen);
+        assertTrue(screen.contains(String.format(StringResources.UNDO_QUOTA_TEMPLATE, 233)), screen);
+        assertFalse(screen.contains(StringResources.GAME_READY_MESSAGE), screen);
+
+        game.onAction(Move.of(0, Move.DIRECTION_LEFT));
+        text = output.toString(StandardCharsets.UTF_8);
+        assertFalse(text.substring(text.lastIndexOf(clearBelow)).contains("You hit a wall"));
+    }
 }